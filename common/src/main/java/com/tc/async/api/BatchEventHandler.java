@@ -0,0 +1,35 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.async.api;
+
+/**
+ * An {@link EventHandler} which would rather be given everything that has piled up in its queue at once.
+ * <p>
+ * Stages normally call {@link #handleEvent(Object)} once per context.  When a stage's handler implements this
+ * interface its worker threads instead drain up to {@link #getMaxBatchSize()} queued contexts at a time and hand them
+ * to {@link #handleEvents(java.util.Collection)}, so the handler can coalesce the work (a network send, a persistence
+ * flush, ...) across the batch.  Contexts are always handed over in the order in which they were queued
+ * and the collection is reused once the call returns, so it mustn't be kept.
+ */
+public interface BatchEventHandler<EC> extends EventHandler<EC> {
+  /**
+   * @return The most contexts that will be passed to a single handleEvents call (values below 2 disable batching)
+   */
+  public int getMaxBatchSize();
+}
@@ -18,6 +18,8 @@
  */
 package com.tc.async.api;
 
+import java.util.Collection;
+
 /**
  * This is used by the internals to manage the process of processing EventContexts in the manner that makes sense for
  * each one. Individual Stages SHOULD NOT HAVE TO EITHER USE OR IMPLEMENT THIS INTERFACE
@@ -28,6 +30,13 @@ public interface Source<EC> {
 
   public EC poll(long period) throws InterruptedException;
 
+  /**
+   * Moves up to maxElements already queued contexts, in order, into the given collection without waiting.
+   * 
+   * @return The number of contexts moved
+   */
+  public int drainTo(Collection<? super EC> c, int maxElements);
+
   public String getSourceName();
 
   public boolean isEmpty();
@@ -37,4 +37,6 @@ public interface Stage<EC> extends PrettyPrintable {
     
   public String getName();
 
+  public StageLatencyStats getLatencyStats();
+
 }
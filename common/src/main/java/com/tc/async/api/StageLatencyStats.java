@@ -0,0 +1,42 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.async.api;
+
+import com.tc.stats.LatencyHistogram;
+import com.tc.stats.Stats;
+
+/**
+ * Where the time goes in a stage:  how long contexts wait in its queues and how long its handler takes with them.
+ */
+public interface StageLatencyStats extends Stats {
+
+  String getName();
+
+  /**
+   * @return Time from a context being added to the sink until a worker thread picks it up
+   */
+  LatencyHistogram getQueueTime();
+
+  /**
+   * @return Time spent in each handler call (a whole batch, for batching handlers)
+   */
+  LatencyHistogram getServiceTime();
+
+  void reset();
+}
@@ -43,5 +43,10 @@ public interface StageManager extends PrettyPrintable {
 
   public Stats[] getStats();
 
+  /**
+   * @return The queue and service time histograms of every stage, ordered by stage name
+   */
+  public StageLatencyStats[] getLatencyStats();
+
   public void cleanup();
 }
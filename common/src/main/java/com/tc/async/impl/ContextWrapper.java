@@ -27,4 +27,14 @@ import com.tc.async.api.EventHandlerException;
    */
 public interface ContextWrapper<EC> {
   public void runWithHandler(EventHandler<EC> handler) throws EventHandlerException;
+
+  /**
+   * @return The context to pass to a batching handler, or null if this wrapper has to be run on its own
+   */
+  public EC getBatchableContext();
+
+  /**
+   * @return The System.nanoTime() at which this wrapper was created, as it was added to the sink
+   */
+  public long getEnqueueTime();
 }
@@ -21,6 +21,7 @@ package com.tc.async.impl;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.Sink;
 import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
 import com.tc.text.PrettyPrinter;
 
 /**
@@ -30,10 +31,12 @@ public class MockStage implements Stage {
 
   private final String  name;
   public final MockSink sink;
+  private final StageLatencyStats latency;
 
   public MockStage(String name) {
     this.name = name;
     this.sink = new MockSink();
+    this.latency = new StageImpl.LatencyStats(name);
   }
 
   @Override
@@ -72,6 +75,12 @@ public class MockStage implements Stage {
     return name;
   }
 
+  @Override
+  public StageLatencyStats getLatencyStats() {
+    // Nothing runs through a mock stage so these stay empty, but callers walking all stages must not see null.
+    return latency;
+  }
+
   @Override
   public PrettyPrinter prettyPrint(PrettyPrinter out) {
     return null;
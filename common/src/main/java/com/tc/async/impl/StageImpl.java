@@ -18,21 +18,27 @@
  */
 package com.tc.async.impl;
 
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.EventHandlerException;
 import com.tc.async.api.Sink;
 import com.tc.async.api.Source;
 import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
 import com.tc.exception.TCNotRunningException;
 import com.tc.exception.TCRuntimeException;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLoggerProvider;
 import com.tc.properties.TCPropertiesImpl;
+import com.tc.stats.LatencyHistogram;
 import com.tc.text.PrettyPrinter;
 import com.tc.util.concurrent.QueueFactory;
 import com.tc.util.concurrent.ThreadUtil;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * The SEDA Stage
  */
@@ -47,6 +53,7 @@ public class StageImpl<EC> implements Stage<EC> {
   private final TCLogger       logger;
   private final int            sleepMs;
   private final boolean        pausable;
+  private final LatencyStats   latency;
 
   private volatile boolean     paused;
   private volatile boolean     shutdown = true;
@@ -76,6 +83,7 @@ public class StageImpl<EC> implements Stage<EC> {
     this.threads = new WorkerThread[queueCount];
     this.stageQueue = new StageQueueImpl<EC>(queueCount, queueFactory, loggerProvider, name, queueSize);
     this.group = group;
+    this.latency = new LatencyStats(name);
     this.sleepMs = TCPropertiesImpl.getProperties().getInt("seda." + name + ".sleepMs", 0);
     if (this.sleepMs > 0) {
       logger.warn("Sleep of " + this.sleepMs + "ms enabled for stage " + name);
@@ -110,6 +118,11 @@ public class StageImpl<EC> implements Stage<EC> {
     return stageQueue;
   }
 
+  @Override
+  public StageLatencyStats getLatencyStats() {
+    return latency;
+  }
+
   @Override
   public int pause() {
     paused = true;
@@ -162,6 +175,9 @@ public class StageImpl<EC> implements Stage<EC> {
     private final int          sleepMs;
     private final boolean      pausable;
     private final String       stageName;
+    private final int          maxBatchSize;
+    private final List<ContextWrapper<EC>> drained = new ArrayList<ContextWrapper<EC>>();
+    private final List<EC>     batch = new ArrayList<EC>();
 
     public WorkerThread(String name, Source<ContextWrapper<EC>> source, EventHandler<EC> handler, ThreadGroup group, TCLogger logger, int sleepMs, boolean pausable, String stageName) {
       super(group, name);
@@ -172,6 +188,7 @@ public class StageImpl<EC> implements Stage<EC> {
       this.sleepMs = sleepMs;
       this.pausable = pausable;
       this.stageName = stageName;
+      this.maxBatchSize = (handler instanceof BatchEventHandler) ? ((BatchEventHandler<EC>) handler).getMaxBatchSize() : 1;
     }
 
     private void handleStageDebugPauses() {
@@ -193,23 +210,24 @@ public class StageImpl<EC> implements Stage<EC> {
         try {
           ctxt = source.poll(pollTime);
           if (ctxt != null) {
+            long now = System.nanoTime();
+            latency.queueTime.record(now - ctxt.getEnqueueTime());
             handleStageDebugPauses();
-            ctxt.runWithHandler(handler);
+            if (maxBatchSize > 1) {
+              drained.add(ctxt);
+              ctxt = null;
+              source.drainTo(drained, maxBatchSize - 1);
+              for (int i = 1; i < drained.size(); ++i) {
+                latency.queueTime.record(now - drained.get(i).getEnqueueTime());
+              }
+              runDrained();
+            } else {
+              runSafely(ctxt, null);
+            }
           }
         } catch (InterruptedException ie) {
           if (shutdown) { continue; }
           throw new TCRuntimeException(ie);
-        } catch (EventHandlerException ie) {
-          if (shutdown) { continue; }
-          throw new TCRuntimeException(ie);
-        } catch (Exception e) {
-          if (isTCNotRunningException(e)) {
-            if (shutdown) { continue; }
-            tcLogger.info("Ignoring " + TCNotRunningException.class.getSimpleName() + " while handling context: "
-                          + ctxt);
-          } else {
-            throw new TCRuntimeException("Uncaught exception in stage", e);
-          }
         } finally {
           // Aggressively null out the reference before going around the loop again. If you don't do this, the reference
           // to the context will exist until another context comes in. This can potentially keep many objects in memory
@@ -218,6 +236,102 @@ public class StageImpl<EC> implements Stage<EC> {
         }
       }
     }
+
+    /**
+     * Hands the drained contexts to the handler in queue order:  runs of plain contexts go through handleEvents while
+     * anything which must run on its own (specialized or flushing contexts) ends the current run.
+     */
+    private void runDrained() {
+      try {
+        for (ContextWrapper<EC> wrapper : drained) {
+          EC context = wrapper.getBatchableContext();
+          if (context != null) {
+            batch.add(context);
+          } else {
+            runBatch();
+            runSafely(wrapper, null);
+          }
+        }
+        runBatch();
+      } finally {
+        drained.clear();
+        batch.clear();
+      }
+    }
+
+    private void runBatch() {
+      if (!batch.isEmpty()) {
+        try {
+          runSafely(null, batch);
+        } finally {
+          batch.clear();
+        }
+      }
+    }
+
+    private void runSafely(ContextWrapper<EC> ctxt, List<EC> contexts) {
+      long start = System.nanoTime();
+      try {
+        if (ctxt != null) {
+          ctxt.runWithHandler(handler);
+        } else {
+          handler.handleEvents(contexts);
+        }
+        latency.serviceTime.record(System.nanoTime() - start);
+      } catch (EventHandlerException ie) {
+        if (shutdown) { return; }
+        throw new TCRuntimeException(ie);
+      } catch (Exception e) {
+        if (isTCNotRunningException(e)) {
+          if (shutdown) { return; }
+          tcLogger.info("Ignoring " + TCNotRunningException.class.getSimpleName() + " while handling context: "
+                        + (ctxt != null ? ctxt : contexts));
+        } else {
+          throw new TCRuntimeException("Uncaught exception in stage", e);
+        }
+      }
+    }
+  }
+
+  static class LatencyStats implements StageLatencyStats {
+    private final String           name;
+    private final LatencyHistogram queueTime   = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+
+    LatencyStats(String name) {
+      this.name = name;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public LatencyHistogram getQueueTime() {
+      return queueTime;
+    }
+
+    @Override
+    public LatencyHistogram getServiceTime() {
+      return serviceTime;
+    }
+
+    @Override
+    public void reset() {
+      queueTime.reset();
+      serviceTime.reset();
+    }
+
+    @Override
+    public String getDetails() {
+      return name + " queue(us): " + queueTime + " service(us): " + serviceTime;
+    }
+
+    @Override
+    public void logDetails(TCLogger statsLogger) {
+      statsLogger.info(getDetails());
+    }
   }
 
   private static boolean isTCNotRunningException(Throwable e) {
@@ -22,16 +22,20 @@ import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.PostInit;
 import com.tc.async.api.Stage;
+import com.tc.async.api.StageLatencyStats;
 import com.tc.async.api.StageManager;
 import com.tc.logging.DefaultLoggerProvider;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLoggerProvider;
+import com.tc.properties.TCProperties;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.stats.Stats;
 import com.tc.text.PrettyPrinter;
 import com.tc.util.Assert;
 import com.tc.util.concurrent.QueueFactory;
+import com.tc.util.concurrent.RingBufferBlockingQueue.WaitStrategy;
+import com.tc.util.concurrent.RingBufferQueueFactory;
 import com.tc.util.concurrent.ThreadUtil;
 
 import java.util.Arrays;
@@ -50,6 +54,7 @@ public class StageManagerImpl implements StageManager {
                                                      .getBoolean(TCPropertiesConsts.TC_STAGE_MONITOR_ENABLED);
   private static final long        MONITOR_DELAY = TCPropertiesImpl.getProperties()
                                                      .getLong(TCPropertiesConsts.TC_STAGE_MONITOR_DELAY);
+  private static final int         DEFAULT_RING_CAPACITY = 8192;
 
   private final Map<String, Stage<?>>   stages        = new ConcurrentHashMap<String, Stage<?>>();
   private final Map<String, Class<?>> classVerifications = new ConcurrentHashMap<String, Class<?>>();
@@ -88,6 +93,11 @@ public class StageManagerImpl implements StageManager {
           for (Stats stat : stats) {
             stat.logDetails(logger);
           }
+          logger.info("Stage Latencies");
+          logger.info("=================================");
+          for (StageLatencyStats stat : StageManagerImpl.this.getLatencyStats()) {
+            stat.logDetails(logger);
+          }
         } catch (Throwable th) {
           logger.error(th);
         }
@@ -109,15 +119,34 @@ public class StageManagerImpl implements StageManager {
     }
 
     int capacity = maxSize > 0 ? maxSize : Integer.MAX_VALUE;
-    // Note that the queue factory is used by all the stages under this manager so it can't be type-safe.
-    @SuppressWarnings("unchecked")
-    QueueFactory<ContextWrapper<EC>> queueFactory = (QueueFactory<ContextWrapper<EC>>) this.queueFactory;
+    QueueFactory<ContextWrapper<EC>> queueFactory = queueFactoryFor(name);
     Stage<EC> s = new StageImpl<EC>(loggerProvider, name, handler, queueCount, group, queueFactory, capacity);
     addStage(name, s);
     this.classVerifications.put(name,  verification);
     return s;
   }
 
+  /**
+   * A stage uses the manager's queue factory unless seda.&lt;stage&gt;.queue.type selects the ring buffer queue for it.
+   * Note that the ring is bounded so producers into a full ring block (per the configured wait strategy) where a
+   * LinkedBlockingQueue would have kept growing.
+   */
+  private <EC> QueueFactory<ContextWrapper<EC>> queueFactoryFor(String name) {
+    TCProperties props = TCPropertiesImpl.getProperties();
+    String prefix = "seda." + name + ".queue.";
+    String type = props.getProperty(prefix + "type", true);
+    if ("ring".equalsIgnoreCase(type)) {
+      int ringCapacity = props.getInt(prefix + "capacity", DEFAULT_RING_CAPACITY);
+      WaitStrategy wait = WaitStrategy.parse(props.getProperty(prefix + "wait", true), WaitStrategy.PARK);
+      return new RingBufferQueueFactory<ContextWrapper<EC>>(ringCapacity, wait);
+    }
+    Assert.assertTrue("Unknown queue type " + type + " for stage " + name, null == type || "linked".equalsIgnoreCase(type));
+    // Note that the queue factory is used by all the stages under this manager so it can't be type-safe.
+    @SuppressWarnings("unchecked")
+    QueueFactory<ContextWrapper<EC>> queueFactory = (QueueFactory<ContextWrapper<EC>>) this.queueFactory;
+    return queueFactory;
+  }
+
   private synchronized <EC> void addStage(String name, Stage<EC> s) {
     Object prev = stages.put(name, s);
     Assert.assertNull(prev);
@@ -181,6 +210,17 @@ public class StageManagerImpl implements StageManager {
     return stats;
   }
 
+  @Override
+  public synchronized StageLatencyStats[] getLatencyStats() {
+    final String[] names = stageNames;
+    final StageLatencyStats[] stats = new StageLatencyStats[names.length];
+
+    for (int i = 0; i < names.length; i++) {
+      stats[i] = stages.get(names[i]).getLatencyStats();
+    }
+    return stats;
+  }
+
   @Override
   public PrettyPrinter prettyPrint(PrettyPrinter out) {
     out.print(this.getClass().getName()).flush();
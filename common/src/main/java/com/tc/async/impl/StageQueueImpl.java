@@ -31,7 +31,9 @@ import com.tc.logging.TCLoggerProvider;
 import com.tc.stats.Stats;
 import com.tc.util.Assert;
 import com.tc.util.concurrent.QueueFactory;
+import java.util.Collection;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -139,15 +141,19 @@ public class StageQueueImpl<EC> implements Sink<EC> {
     boolean interrupted = Thread.interrupted();
     MultiThreadedEventContext cxt = (MultiThreadedEventContext)context;
     int index = getSourceQueueFor(cxt);
-    ContextWrapper<EC> wrapper = (cxt.flush()) ? new FlushingHandledContext(context, index) : new HandledContext<EC>(context);
+    // A flushing context goes on every queue, starting with its own, so they can all drain toward it at once.
+    int queueCount = (cxt.flush()) ? this.sourceQueues.length : 1;
+    ContextWrapper<EC> wrapper = (cxt.flush()) ? new FlushingHandledContext<EC>(context, queueCount) : new HandledContext<EC>(context);
     try {
-      while (true) {
-        try {
-          this.sourceQueues[index].put(wrapper);
-          break;
-        } catch (InterruptedException e) {
-          this.logger.debug("StageQueue Add: " + e);
-          interrupted = true;
+      for (int i = 0; i < queueCount; i++) {
+        while (true) {
+          try {
+            this.sourceQueues[(index + i) % this.sourceQueues.length].put(wrapper);
+            break;
+          } catch (InterruptedException e) {
+            this.logger.debug("StageQueue Add: " + e);
+            interrupted = true;
+          }
         }
       }
     } finally {
@@ -182,35 +188,55 @@ public class StageQueueImpl<EC> implements Sink<EC> {
     }
   }
   
-  private volatile int fcheck = 0;
-//  TODO:  Way too busy. need a better way
-  private int findShortestQueueIndex() {
-      int stop = (fcheck++) % this.sourceQueues.length;
-      int pointer = stop+1;
-      int min = Integer.MAX_VALUE;
-      int can = -1;
-// special case where context can go to any queue, pick the shortest
-      while (pointer != stop) {
-        if (++pointer >= this.sourceQueues.length) {
-          pointer = 0;
-        }
-        SourceQueueImpl<ContextWrapper<EC>> impl = this.sourceQueues[pointer];
-        if (impl.isEmpty()) {
-          return pointer;
-        } else {
-          if (Math.min(min, impl.size()) != min) {
-            can = pointer;
-            min = impl.size();
-          }
-        }
+  // Up to this many queues, scanning all of them for the shortest is measured to be at least as cheap as two choices.
+  private static final int SCAN_QUEUE_LIMIT = 8;
+  private final AtomicInteger nextUnkeyedQueue = new AtomicInteger();
+
+  /**
+   * Picks the queue for a context which can go to any of them.  With few queues, every queue is scanned, starting at the
+   * next one in round-robin order, for an empty or else the shortest queue.  With more, this uses "power of two choices":
+   * the next queue in round-robin order, unless a second, randomly chosen queue is shorter.  That reads at most two queue
+   * sizes however many queues there are, while still steering work away from a backed-up worker.
+   */
+  private int findUnkeyedQueueIndex() {
+    int length = this.sourceQueues.length;
+    int first = (this.nextUnkeyedQueue.getAndIncrement() & Integer.MAX_VALUE) % length;
+    if (1 == length || this.sourceQueues[first].isEmpty()) {
+      return first;
+    }
+    if (length <= SCAN_QUEUE_LIMIT) {
+      return findShortestQueueIndex(first);
+    }
+    int second = ThreadLocalRandom.current().nextInt(length - 1);
+    if (second >= first) {
+      second += 1;
+    }
+    return (this.sourceQueues[second].size() < this.sourceQueues[first].size()) ? second : first;
+  }
+
+  private int findShortestQueueIndex(int start) {
+    int length = this.sourceQueues.length;
+    int can = start;
+    int min = this.sourceQueues[start].size();
+    for (int offset = 1; offset < length; ++offset) {
+      int pointer = (start + offset) % length;
+      SourceQueueImpl<ContextWrapper<EC>> impl = this.sourceQueues[pointer];
+      if (impl.isEmpty()) {
+        return pointer;
       }
-      return can;
+      int size = impl.size();
+      if (size < min) {
+        can = pointer;
+        min = size;
+      }
+    }
+    return can;
   }
 
   private int getSourceQueueFor(MultiThreadedEventContext context) {
     Object schedulingKey = context.getSchedulingKey();
     if (null == schedulingKey) {
-      return findShortestQueueIndex();
+      return findUnkeyedQueueIndex();
     } else {
       int index = hashCodeToArrayIndex(schedulingKey.hashCode(), this.sourceQueues.length);
       return index;
@@ -357,6 +383,15 @@ public class StageQueueImpl<EC> implements Sink<EC> {
       return rv;
     }
 
+    @Override
+    public int drainTo(Collection<? super W> c, int maxElements) {
+      int drained = this.queue.drainTo(c, maxElements);
+      for (int i = 0; i < drained; ++i) {
+        this.statsCollector.contextRemoved();
+      }
+      return drained;
+    }
+
     public void put(W context) throws InterruptedException {
       this.queue.put(context);
       this.statsCollector.contextAdded();
@@ -483,6 +518,7 @@ public class StageQueueImpl<EC> implements Sink<EC> {
   
   private static class DirectExecuteContext<EC> implements ContextWrapper<EC> {
     private final SpecializedEventContext context;
+    private final long enqueueTime = System.nanoTime();
     public DirectExecuteContext(SpecializedEventContext context) {
       this.context = context;
     }
@@ -490,10 +526,19 @@ public class StageQueueImpl<EC> implements Sink<EC> {
     public void runWithHandler(EventHandler<EC> handler) throws EventHandlerException {
       this.context.execute();
     }
+    @Override
+    public long getEnqueueTime() {
+      return this.enqueueTime;
+    }
+    @Override
+    public EC getBatchableContext() {
+      return null;
+    }
   }
   
   private static class HandledContext<EC> implements ContextWrapper<EC> {
     private final EC context;
+    private final long enqueueTime = System.nanoTime();
     public HandledContext(EC context) {
       this.context = context;
     }
@@ -502,6 +547,16 @@ public class StageQueueImpl<EC> implements Sink<EC> {
       handler.handleEvent(this.context);
     }
 
+    @Override
+    public long getEnqueueTime() {
+      return this.enqueueTime;
+    }
+
+    @Override
+    public EC getBatchableContext() {
+      return this.context;
+    }
+
     @Override
     public boolean equals(Object obj) {
       if (context.getClass().isInstance(obj)) {
@@ -511,41 +566,39 @@ public class StageQueueImpl<EC> implements Sink<EC> {
     }
   }
   
-  private class FlushingHandledContext<T extends EC> implements ContextWrapper<EC> {
+  /**
+   * A context which must only run once everything queued ahead of it, on every queue, has been handled.  The same
+   * wrapper is put on each queue as a marker and the worker which takes the last marker runs the context, so no worker
+   * ever has to forward it on to another (possibly full) queue.
+   */
+  private static class FlushingHandledContext<EC> implements ContextWrapper<EC> {
     private final EC context;
-    private final int offset;
-    private int executionCount = 0;
-    public FlushingHandledContext(EC context, int offset) {
+    private final AtomicInteger remaining;
+    private final long enqueueTime = System.nanoTime();
+    public FlushingHandledContext(EC context, int queueCount) {
       this.context = context;
-      this.offset = offset;
+      this.remaining = new AtomicInteger(queueCount);
     }
     
     @Override
     public void runWithHandler(EventHandler<EC> handler) throws EventHandlerException {
-      if (++executionCount == sourceQueues.length) {
-//  been through all the queues.  execute now.
+      if (this.remaining.decrementAndGet() == 0) {
+//  every queue has reached this point.  execute now.
         handler.handleEvent(this.context);
-      } else {
-//  move to next queue
-        boolean interrupted = false;
-        try {
-          while (true) {
-            try {
-              sourceQueues[(executionCount + offset) % sourceQueues.length].put(this);
-              break;
-            } catch (InterruptedException e) {
-              logger.debug("FlushingHandledContext move to next queue: " + e + " : " + ((executionCount + offset) % sourceQueues.length));
-              interrupted = true;
-            }
-          }
-        } finally {
-          if (interrupted) {
-            Thread.currentThread().interrupt();
-          }
-        }
       }
     }
 
+    @Override
+    public long getEnqueueTime() {
+      return this.enqueueTime;
+    }
+
+    @Override
+    public EC getBatchableContext() {
+//  has to run on its own so the batch queued ahead of it is handled first
+      return null;
+    }
+
     @Override
     public boolean equals(Object obj) {
       if (context.getClass().isInstance(obj)) {
@@ -29,13 +29,13 @@ public class TCByteBufferFactoryConfigImpl implements TCByteBufferFactoryConfig
   }
 
   @Override
-  public int getPoolMaxBufCount() {
-    return (TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.TC_BYTEBUFFER_THREADLOCAL_POOL_MAXCOUNT, 2000));
+  public long getPoolMaxBytes() {
+    return (TCPropertiesImpl.getProperties().getLong(TCPropertiesConsts.TC_BYTEBUFFER_POOL_MAXBYTES, 64L * 1024 * 1024));
   }
 
   @Override
-  public int getCommonPoolMaxBufCount() {
-    return (TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.TC_BYTEBUFFER_COMMON_POOL_MAXCOUNT, 3000));
+  public int getPoolMagazineBytes() {
+    return (TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.TC_BYTEBUFFER_POOL_MAGAZINEBYTES, 64 * 1024));
   }
 
 }
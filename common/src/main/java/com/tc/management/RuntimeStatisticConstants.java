@@ -23,4 +23,7 @@ public interface RuntimeStatisticConstants {
   public static final String MEMORY_USED = "memory used";
   public static final String CPU_USAGE   = "cpu usage";
   public static final String CPU_LOAD    = "cpu load";
+  public static final String REQUEST_WINDOW_SIZE        = "request window size";
+  public static final String REQUEST_WINDOW_STALL_COUNT = "request window stall count";
+  public static final String REQUEST_WINDOW_STALL_TIME  = "request window stall time";
 }
@@ -55,6 +55,21 @@ class ClearTextBufferManager implements BufferManager {
     return written;
   }
 
+  /**
+   * Writes the given buffers straight to the channel with a single gathering write, bypassing the send buffer. Anything
+   * still sitting in the send buffer goes out first so the stream stays in order.
+   */
+  long gatheringWrite(ByteBuffer[] srcs, int offset, int length) throws IOException {
+    long written = 0;
+    if (sendBuffer.position() > 0) {
+      written += sendFromBuffer();
+      if (sendBuffer.position() > 0) { return written; }
+    }
+    long sent = this.channel.write(srcs, offset, length);
+    if (sent == -1) { throw new EOFException(); }
+    return written + sent;
+  }
+
   @Override
   public int recvToBuffer() throws IOException {
     int read = this.channel.read(recvBuffer);
@@ -62,6 +77,17 @@ class ClearTextBufferManager implements BufferManager {
     return read;
   }
 
+  /**
+   * Reads from the channel straight into the given buffers, bypassing the receive buffer. Nothing is read while the
+   * receive buffer still holds data, since that has to be handed on first.
+   */
+  long scatteringRead(ByteBuffer[] dsts, int offset, int length) throws IOException {
+    if (recvBuffer.position() > 0) { return 0; }
+    long read = this.channel.read(dsts, offset, length);
+    if (read == -1) { throw new EOFException(); }
+    return read;
+  }
+
   @Override
   public void close() {
     //
@@ -53,6 +53,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
@@ -116,6 +117,20 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
                                                                                 .getProperties()
                                                                                 .getBoolean(TCPropertiesConsts.TC_MESSAGE_PACKUP_ENABLED,
                                                                                             true);
+  private static final boolean                  GATHERING_WRITE             = TCPropertiesImpl
+                                                                                .getProperties()
+                                                                                .getBoolean(TCPropertiesConsts.TC_MESSAGE_GATHERING_WRITE_ENABLED,
+                                                                                            true);
+  // upper bound on the buffers handed to a single write(ByteBuffer[]); the OS caps it at IOV_MAX anyway
+  private static final int                      MAX_GATHER_BUFFERS          = 64;
+  private final ByteBuffer[]                    gatherBuffers               = new ByteBuffer[MAX_GATHER_BUFFERS];
+  private static final boolean                  SCATTER_READ                = TCPropertiesImpl
+                                                                                .getProperties()
+                                                                                .getBoolean(TCPropertiesConsts.TC_MESSAGE_SCATTER_READ_ENABLED,
+                                                                                            true);
+  // payloads with at least this much left to read skip the receive buffer and are read straight into their buffers
+  private static final int                      SCATTER_READ_MIN_BYTES      = 8 * 1024;
+  private final ByteBuffer[]                    scatterBuffers              = new ByteBuffer[MAX_GATHER_BUFFERS];
   private final Object                          readerLock                  = new Object();
   private final Object                          writerLock                  = new Object();
 
@@ -287,6 +302,21 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
   }
 
   private int doReadInternal() throws IOException {
+    if (isScatterRead()) {
+      final int read;
+      try {
+        read = doScatterRead();
+      } catch (IOException ioe) {
+        closeReadOnException(ioe);
+        return 0;
+      }
+      if (read > 0) {
+        this.totalRead.addAndGet(read);
+        return read;
+      }
+      // nothing big enough to read directly, fall back to a buffered read
+    }
+
     try {
       bufferManager.recvToBuffer();
     } catch (SSLException ssle) {
@@ -314,6 +344,49 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     return totalBytesReadFromBuffer;
   }
 
+  /**
+   * The clear text counterpart of {@link #isGatheringWrite()}:  once the protocol adaptor is expecting a large payload
+   * the socket is read straight into the adaptor's buffers instead of going through the buffer manager's receive
+   * buffer.  Headers and small messages still use the buffered read so several of them come in with one system call.
+   */
+  private boolean isScatterRead() {
+    return SCATTER_READ && this.pipeSocket == null && this.bufferManager instanceof ClearTextBufferManager;
+  }
+
+  /**
+   * @return the bytes read, or 0 if the adaptor isn't waiting on enough data to be worth reading directly
+   */
+  private int doScatterRead() throws IOException {
+    final ClearTextBufferManager clearText = (ClearTextBufferManager) this.bufferManager;
+    final TCByteBuffer[] readBuffers = getReadBuffers();
+
+    int count = 0;
+    long wanted = 0;
+    for (int i = 0, n = readBuffers.length; i < n && count < MAX_GATHER_BUFFERS; i++) {
+      final ByteBuffer buf = extractNioBuffer(readBuffers[i]);
+      if (buf.hasRemaining()) {
+        this.scatterBuffers[count++] = buf;
+        wanted += buf.remaining();
+      }
+    }
+
+    long read = 0;
+    try {
+      if (wanted >= SCATTER_READ_MIN_BYTES) {
+        read = clearText.scatteringRead(this.scatterBuffers, 0, count);
+      }
+    } finally {
+      Arrays.fill(this.scatterBuffers, 0, count, null);
+    }
+    if (read > 0) {
+      if (logger.isDebugEnabled()) {
+        logger.debug("Read " + read + " bytes directly on connection " + this.channel.toString());
+      }
+      addNetworkData(readBuffers, (int) read);
+    }
+    return (int) read;
+  }
+
   public int doReadFromBuffer() throws IOException {
     if (pipeSocket != null) {
       return bufferManager.forwardFromReadBuffer(pipeSocket.getInputPipeSinkChannel());
@@ -330,6 +403,18 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
   }
 
   private int doWriteInternal() throws IOException {
+    if (isGatheringWrite()) {
+      int written;
+      try {
+        written = doGatheringWrite();
+      } catch (IOException ioe) {
+        closeWriteOnException(ioe);
+        return 0;
+      }
+      this.totalWrite.addAndGet(written);
+      return written;
+    }
+
     int written;
     try {
       written = doWriteToBuffer();
@@ -379,6 +464,69 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
     }
   }
 
+  /**
+   * Clear text connections skip the buffer manager's send buffer and hand the packed up message buffers to the
+   * channel in a single gathering write.  Secure connections have to go through the buffer manager to be
+   * encrypted, and a detached connection writes through its pipe socket.
+   */
+  private boolean isGatheringWrite() {
+    return GATHERING_WRITE && this.pipeSocket == null && this.bufferManager instanceof ClearTextBufferManager;
+  }
+
+  private int doGatheringWrite() throws IOException {
+    final boolean debug = logger.isDebugEnabled();
+    final ClearTextBufferManager clearText = (ClearTextBufferManager) this.bufferManager;
+    long totalBytesWritten = 0;
+
+    if (this.writeContexts.isEmpty()) {
+      buildWriteContextsFromMessages();
+    }
+    while (!this.writeContexts.isEmpty()) {
+      int count = 0;
+      long gathered = 0;
+      for (int i = 0, n = this.writeContexts.size(); i < n && count < MAX_GATHER_BUFFERS; i++) {
+        WriteContext context = this.writeContexts.get(i);
+        int before = count;
+        count = context.gather(this.gatherBuffers, count);
+        for (int j = before; j < count; j++) {
+          gathered += this.gatherBuffers[j].remaining();
+        }
+      }
+      long written;
+      try {
+        written = (count > 0) ? clearText.gatheringWrite(this.gatherBuffers, 0, count) : 0;
+      } finally {
+        Arrays.fill(this.gatherBuffers, 0, count, null);
+      }
+      totalBytesWritten += written;
+      if (debug) {
+        logger.debug("Wrote " + written + " bytes on connection " + this.channel.toString());
+      }
+
+      while (!this.writeContexts.isEmpty()) {
+        WriteContext context = this.writeContexts.get(0);
+        context.retireWritten();
+        if (!context.done()) {
+          break;
+        }
+        context.writeComplete();
+        this.writeContexts.remove(0);
+      }
+
+      if (written < gathered) {
+        // the socket is full, wait for the next write interest
+        break;
+      }
+    }
+
+    synchronized (this.writeMessages) {
+      if (!this.closed.isSet() && this.writeMessages.isEmpty() && this.writeContexts.isEmpty()) {
+        this.commWorker.removeWriteInterest(this, this.channel);
+      }
+    }
+    return (int) totalBytesWritten;
+  }
+
   private void buildWriteContextsFromMessages() {
     TCNetworkMessage messagesToWrite[];
     synchronized (this.writeMessages) {
@@ -977,6 +1125,30 @@ final class TCConnectionImpl implements TCConnection, TCChannelReader, TCChannel
       this.message.wasSent();
     }
 
+    /**
+     * Appends the unwritten buffers of this message to <code>into</code>, starting at <code>count</code>.
+     *
+     * @return the new count
+     */
+    int gather(ByteBuffer[] into, int count) {
+      for (int i = index, n = entireMessageData.length; i < n && count < into.length; i++) {
+        final ByteBuffer buffer = entireMessageData[i].getNioBuffer();
+        if (buffer.hasRemaining()) {
+          into[count++] = buffer;
+        }
+      }
+      return count;
+    }
+
+    /**
+     * Skips (and recycles) the buffers which have been written out completely.
+     */
+    void retireWritten() {
+      while (index < entireMessageData.length && !entireMessageData[index].hasRemaining()) {
+        incrementIndexAndCleanOld();
+      }
+    }
+
     private static TCByteBuffer[] getClonedMessage(TCByteBuffer[] sourceMessageByteBuffers) {
       final TCByteBuffer[] msgData = sourceMessageByteBuffers;
       TCByteBuffer[] clonedMessageData = new TCByteBuffer[msgData.length];
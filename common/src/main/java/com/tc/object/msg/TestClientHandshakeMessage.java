@@ -172,6 +172,11 @@ public class TestClientHandshakeMessage extends TestTCMessage implements ClientH
     return System.currentTimeMillis();
   }
 
+  @Override
+  public boolean acceptsCoalescedServerMessages() {
+    return false;
+  }
+
   @Override
   public void addReconnectReference(ClientEntityReferenceContext context) {
     boolean isNew = this.reconnectReferenceSet.add(context);
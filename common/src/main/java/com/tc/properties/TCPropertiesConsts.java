@@ -30,6 +30,8 @@ public interface TCPropertiesConsts {
 
   static final String[]      OLD_PROPERTIES                                                 = {
     "l2.lockmanager.greedy.locks.enabled",
+    "tc.bytebuffer.common.pool.maxcount",
+    "tc.bytebuffer.threadlocal.pool.maxcount",
   };
 
   /*********************************************************************************************************************
@@ -45,9 +47,15 @@ public interface TCPropertiesConsts {
    *                                      seda stage
    * stage.sink.capacity                : Capacity of seda stage queue, Integer.MAX_VALUE if not set
    *                                      (experimental, do not change)
+   * server.entity.processor.defer.until.received : If true, replicated requests are only queued for the
+   *                                      entity processor once all passives have received them
+   * server.entity.sync.window          : Number of entity sync payloads which may be sent to a passive ahead
+   *                                      of it receiving them
    * </code>
    ********************************************************************************************************************/
   public static final String ENTITY_PROCESSOR_THREADS                                    = "server.entity.processor.threads";
+  public static final String ENTITY_PROCESSOR_DEFER_UNTIL_RECEIVED                       = "server.entity.processor.defer.until.received";
+  public static final String ENTITY_SYNC_WINDOW                                          = "server.entity.sync.window";
   public static final String L2_SEDA_STAGE_SINK_CAPACITY                                    = "l2.seda.stage.sink.capacity";
   String L2_TCCOM_WORKERTHREADS                                                          = "l2.tccom.workerthreads";
   String L2_SEDA_STAGE_WORKERTHREADS                                                     = "l2.seda.stage.workerthreads";
@@ -77,6 +85,7 @@ public interface TCPropertiesConsts {
    * tcgroupcomm.reconnect.enabled        - Enable L2-L2 reconnect
    * send.timeout.millis                  - Number of milliseconds to retry sending a message
    * dirtydb.backup.enabled               - Creates BackUp of DirtyDB only If it is set to true.
+   * election.quorum                      - Votes which end an election early, 0 to wait for all servers
    * </code>
    ********************************************************************************************************************/
   public static final String L2_NHA_TCGROUPCOMM_HANDSHAKE_TIMEOUT                           = "l2.nha.tcgroupcomm.handshake.timeout";
@@ -91,6 +100,7 @@ public interface TCPropertiesConsts {
   public static final String L2_NHA_DIRTYDB_AUTODELETE                                      = "l2.nha.dirtydb.autoDelete";
   public static final String L2_NHA_DIRTYDB_ROLLING                                         = "l2.nha.dirtydb.rolling";
   public static final String L2_NHA_AUTORESTART                                             = "l2.nha.autoRestart";
+  public static final String L2_NHA_ELECTION_QUORUM                                         = "l2.nha.election.quorum";
 
   /*********************************************************************************************************************
    * <code>
@@ -126,6 +136,10 @@ public interface TCPropertiesConsts {
   
   public static final String CLIENT_MAX_PENDING_REQUESTS                                    = "client.requests.pending.max";
   public static final String CLIENT_MAX_SENT_REQUESTS                                       = "client.requests.sent.max";
+  public static final String CLIENT_REQUEST_WINDOW_MIN                                      = "client.requests.window.min";
+  public static final String CLIENT_REQUEST_WINDOW_MAX                                      = "client.requests.window.max";
+  public static final String CLIENT_REQUEST_BATCH_MAX_BYTES                                 = "client.requests.batch.maxBytes";
+  public static final String CLIENT_REQUEST_BATCH_LINGER                                    = "client.requests.batch.linger";
 
   public static final String TC_TRANSPORT_HANDSHAKE_TIMEOUT                                 = "tc.transport.handshake.timeout";
   public static final String TC_CONFIG_SOURCEGET_TIMEOUT                                    = "tc.config.getFromSource.timeout";
@@ -185,16 +199,20 @@ public interface TCPropertiesConsts {
    * bytebuffer.pooling.enabled           : Enable/disable tc byte buffer pooling
    * bytebuffer.common.pool.maxcount      : Max size of pool for tc byte buffer
    * bytebuffer.threadlocal.pool.maxcount : Thread pool size
+   * messages.gatheringWrite.enabled      : Write a message's buffers to the socket in one gathering write
+   * messages.scatterRead.enabled         : Read large message payloads straight into their buffers
    * </code>
    ********************************************************************************************************************/
   public static final String TC_STAGE_MONITOR_ENABLED                                       = "tc.stage.monitor.enabled";
   public static final String TC_STAGE_MONITOR_DELAY                                         = "tc.stage.monitor.delay";
   public static final String TC_BYTEBUFFER_POOLING_ENABLED                                  = "tc.bytebuffer.pooling.enabled";
-  public static final String TC_BYTEBUFFER_COMMON_POOL_MAXCOUNT                             = "tc.bytebuffer.common.pool.maxcount";
-  public static final String TC_BYTEBUFFER_THREADLOCAL_POOL_MAXCOUNT                        = "tc.bytebuffer.threadlocal.pool.maxcount";
+  public static final String TC_BYTEBUFFER_POOL_MAXBYTES                                    = "tc.bytebuffer.pool.maxBytes";
+  public static final String TC_BYTEBUFFER_POOL_MAGAZINEBYTES                               = "tc.bytebuffer.pool.magazineBytes";
   public static final String TC_MESSAGE_GROUPING_ENABLED                                    = "tc.messages.grouping.enabled";
   public static final String TC_MESSAGE_GROUPING_MAXSIZE_KB                                 = "tc.messages.grouping.maxSizeKiloBytes";
   public static final String TC_MESSAGE_PACKUP_ENABLED                                      = "tc.messages.packup.enabled";
+  public static final String TC_MESSAGE_GATHERING_WRITE_ENABLED                              = "tc.messages.gatheringWrite.enabled";
+  public static final String TC_MESSAGE_SCATTER_READ_ENABLED                                 = "tc.messages.scatterRead.enabled";
 
   /*********************************************************************************************************************
    * <code>
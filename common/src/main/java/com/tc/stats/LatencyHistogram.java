@@ -0,0 +1,148 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.stats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, lock-free histogram of nanosecond latencies.
+ * <p>
+ * Buckets are log-linear, in the style of HdrHistogram:  each power of two is split into 16 linear sub-buckets so any
+ * recorded value is reported to within about 6% however large it is, while recording is a couple of bit operations and
+ * a few uncontended atomic updates.  Readers see a weakly consistent view of concurrent recording.
+ */
+public class LatencyHistogram {
+  private static final int    SUB_BUCKET_BITS = 5;
+  private static final int    SUB_BUCKETS     = 1 << SUB_BUCKET_BITS;
+  private static final int    HALF_BUCKETS    = SUB_BUCKETS >> 1;
+  // enough buckets for any non-negative long
+  private static final int    BUCKET_COUNT    = (64 - SUB_BUCKET_BITS + 1) * HALF_BUCKETS + HALF_BUCKETS;
+
+  private final AtomicLongArray counts        = new AtomicLongArray(BUCKET_COUNT);
+  private final LongAdder       total         = new LongAdder();
+  private final LongAdder       sum           = new LongAdder();
+  private final AtomicLong      max           = new AtomicLong();
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    this.counts.incrementAndGet(indexOf(value));
+    this.total.increment();
+    this.sum.add(value);
+    long currentMax = this.max.get();
+    while (value > currentMax && !this.max.compareAndSet(currentMax, value)) {
+      currentMax = this.max.get();
+    }
+  }
+
+  public long getCount() {
+    return this.total.sum();
+  }
+
+  public long getMax() {
+    return this.max.get();
+  }
+
+  public long getMean() {
+    long count = this.total.sum();
+    return (count > 0) ? this.sum.sum() / count : 0;
+  }
+
+  /**
+   * @param percentile between 0 and 100
+   * @return The highest value (in nanoseconds) in the bucket holding the given percentile, or 0 if nothing was recorded
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = 0;
+    long[] snapshot = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      snapshot[i] = this.counts.get(i);
+      count += snapshot[i];
+    }
+    if (0 == count) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(count * Math.min(100.0, percentile) / 100.0));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(highestValueIn(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; ++i) {
+      this.counts.set(i, 0);
+    }
+    this.total.reset();
+    this.sum.reset();
+    this.max.set(0);
+  }
+
+  /**
+   * @return count, mean, p50, p90, p99, p99.9 and max, all but the count in microseconds
+   */
+  public Map<String, Long> summary() {
+    Map<String, Long> summary = new LinkedHashMap<String, Long>();
+    summary.put("count", getCount());
+    summary.put("mean", micros(getMean()));
+    summary.put("p50", micros(getValueAtPercentile(50)));
+    summary.put("p90", micros(getValueAtPercentile(90)));
+    summary.put("p99", micros(getValueAtPercentile(99)));
+    summary.put("p99.9", micros(getValueAtPercentile(99.9)));
+    summary.put("max", micros(getMax()));
+    return summary;
+  }
+
+  @Override
+  public String toString() {
+    return summary().toString();
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS - 1);
+    return shift * HALF_BUCKETS + (int) (value >>> shift);
+  }
+
+  static long lowestValueIn(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / HALF_BUCKETS - 1;
+    return ((long) (index - shift * HALF_BUCKETS)) << shift;
+  }
+
+  static long highestValueIn(int index) {
+    return (index + 1 < BUCKET_COUNT) ? lowestValueIn(index + 1) - 1 : Long.MAX_VALUE;
+  }
+
+  private static long micros(long nanos) {
+    return TimeUnit.NANOSECONDS.toMicros(nanos);
+  }
+}
@@ -0,0 +1,371 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * A bounded, lock-free array ring implementing {@link BlockingQueue}.
+ * <p>
+ * Each slot carries a sequence number which tells producers and consumers whether it is free to be written or ready
+ * to be read, so an offer or poll is a single CAS on the tail or head counter and nothing is allocated per element.
+ * Any number of producers and consumers may use the queue although it is meant for the SEDA case of many producers
+ * feeding one worker thread.
+ * <p>
+ * The blocking operations wait according to the {@link WaitStrategy} given at construction.  Unlike
+ * {@link java.util.concurrent.LinkedBlockingQueue} the capacity is always bounded (rounded up to a power of two) and
+ * the iterator is a weakly consistent snapshot which does not support removal.
+ */
+public class RingBufferBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+  /**
+   * How a thread waits for the ring to become non-empty (consumers) or non-full (producers).
+   */
+  public enum WaitStrategy {
+    /**
+     * Busy spin:  lowest latency, but a waiting thread burns a whole core.
+     */
+    SPIN,
+    /**
+     * Spin, yielding the processor between attempts.
+     */
+    YIELD,
+    /**
+     * Park.  Producers unpark the waiting consumers so an idle worker costs nothing.
+     */
+    PARK;
+
+    public static WaitStrategy parse(String name, WaitStrategy defaultStrategy) {
+      if (null == name || name.trim().isEmpty()) {
+        return defaultStrategy;
+      }
+      return valueOf(name.trim().toUpperCase());
+    }
+  }
+
+  private static final int  MAX_CAPACITY      = 1 << 30;
+  // How long a producer parks between attempts when the ring is full.
+  private static final long FULL_PARK_NANOS   = TimeUnit.MICROSECONDS.toNanos(50);
+  // How many times a parking consumer spins before it actually parks.
+  private static final int  SPINS_BEFORE_PARK = 64;
+
+  private final Object[]        buffer;
+  private final AtomicLongArray sequences;
+  private final int             mask;
+  private final AtomicLong      tail = new AtomicLong();
+  private final AtomicLong      head = new AtomicLong();
+  private final WaitStrategy    waitStrategy;
+  // Consumers parked on an empty ring.  Usually just the stage's worker but any number of consumers may wait.
+  private final ConcurrentLinkedQueue<Thread> waitingConsumers = new ConcurrentLinkedQueue<Thread>();
+
+  public RingBufferBlockingQueue(int capacity, WaitStrategy waitStrategy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("capacity must be positive: " + capacity);
+    }
+    int size = (capacity >= MAX_CAPACITY) ? MAX_CAPACITY : Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    this.buffer = new Object[size];
+    this.sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; ++i) {
+      this.sequences.set(i, i);
+    }
+    this.mask = size - 1;
+    this.waitStrategy = waitStrategy;
+  }
+
+  public int capacity() {
+    return this.buffer.length;
+  }
+
+  public WaitStrategy getWaitStrategy() {
+    return this.waitStrategy;
+  }
+
+  @Override
+  public boolean offer(E e) {
+    if (null == e) {
+      throw new NullPointerException();
+    }
+    long position = this.tail.get();
+    int index;
+    while (true) {
+      index = (int) (position & this.mask);
+      long difference = this.sequences.get(index) - position;
+      if (0 == difference) {
+        if (this.tail.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = this.tail.get();
+      } else if (difference < 0) {
+        // The slot still holds the element from the previous lap so the ring is full.
+        return false;
+      } else {
+        position = this.tail.get();
+      }
+    }
+    this.buffer[index] = e;
+    this.sequences.set(index, position + 1);
+    if (WaitStrategy.PARK == this.waitStrategy && !this.waitingConsumers.isEmpty()) {
+      // Wake every waiter:  those which lose the race for the element re-check and park again.
+      for (Thread consumer : this.waitingConsumers) {
+        LockSupport.unpark(consumer);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public E poll() {
+    long position = this.head.get();
+    int index;
+    while (true) {
+      index = (int) (position & this.mask);
+      long difference = this.sequences.get(index) - (position + 1);
+      if (0 == difference) {
+        if (this.head.compareAndSet(position, position + 1)) {
+          break;
+        }
+        position = this.head.get();
+      } else if (difference < 0) {
+        return null;
+      } else {
+        position = this.head.get();
+      }
+    }
+    @SuppressWarnings("unchecked")
+    E e = (E) this.buffer[index];
+    this.buffer[index] = null;
+    this.sequences.set(index, position + this.mask + 1);
+    return e;
+  }
+
+  @Override
+  public E peek() {
+    while (true) {
+      long position = this.head.get();
+      int index = (int) (position & this.mask);
+      if (this.sequences.get(index) != position + 1) {
+        return null;
+      }
+      @SuppressWarnings("unchecked")
+      E e = (E) this.buffer[index];
+      // Only trust the element if no consumer took it while we were reading.
+      if (null != e && this.head.get() == position) {
+        return e;
+      }
+    }
+  }
+
+  @Override
+  public void put(E e) throws InterruptedException {
+    while (!offer(e)) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      idleWhileFull();
+    }
+  }
+
+  @Override
+  public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+    if (offer(e)) {
+      return true;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (true) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      if (deadline - System.nanoTime() <= 0) {
+        return false;
+      }
+      idleWhileFull();
+      if (offer(e)) {
+        return true;
+      }
+    }
+  }
+
+  @Override
+  public E take() throws InterruptedException {
+    int attempts = 0;
+    while (true) {
+      E e = poll();
+      if (null != e) {
+        return e;
+      }
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      idleWhileEmpty(attempts, Long.MAX_VALUE);
+      attempts = Math.min(attempts + 1, SPINS_BEFORE_PARK);
+    }
+  }
+
+  @Override
+  public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+    E e = poll();
+    if (null != e) {
+      return e;
+    }
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    int attempts = 0;
+    while (true) {
+      if (Thread.interrupted()) {
+        throw new InterruptedException();
+      }
+      long remaining = deadline - System.nanoTime();
+      if (remaining <= 0) {
+        return null;
+      }
+      idleWhileEmpty(attempts, remaining);
+      attempts = Math.min(attempts + 1, SPINS_BEFORE_PARK);
+      e = poll();
+      if (null != e) {
+        return e;
+      }
+    }
+  }
+
+  private void idleWhileFull() {
+    switch (this.waitStrategy) {
+      case SPIN:
+        break;
+      case YIELD:
+        Thread.yield();
+        break;
+      case PARK:
+        LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        break;
+      default:
+        throw new AssertionError(this.waitStrategy);
+    }
+  }
+
+  private void idleWhileEmpty(int attempts, long remainingNanos) {
+    switch (this.waitStrategy) {
+      case SPIN:
+        break;
+      case YIELD:
+        Thread.yield();
+        break;
+      case PARK:
+        if (attempts < SPINS_BEFORE_PARK) {
+          break;
+        }
+        // Publish ourselves before re-checking so a producer which misses the check is sure to see us and unpark.
+        Thread self = Thread.currentThread();
+        this.waitingConsumers.add(self);
+        try {
+          if (isEmpty()) {
+            if (Long.MAX_VALUE == remainingNanos) {
+              LockSupport.park(this);
+            } else {
+              LockSupport.parkNanos(this, remainingNanos);
+            }
+          }
+        } finally {
+          this.waitingConsumers.remove(self);
+        }
+        break;
+      default:
+        throw new AssertionError(this.waitStrategy);
+    }
+  }
+
+  @Override
+  public int size() {
+    while (true) {
+      long before = this.head.get();
+      long size = this.tail.get() - before;
+      if (this.head.get() == before) {
+        return (int) Math.max(0, Math.min(size, this.buffer.length));
+      }
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return this.tail.get() == this.head.get();
+  }
+
+  @Override
+  public int remainingCapacity() {
+    return this.buffer.length - size();
+  }
+
+  @Override
+  public void clear() {
+    while (null != poll()) {
+      // drop everything
+    }
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c) {
+    return drainTo(c, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int drainTo(Collection<? super E> c, int maxElements) {
+    if (c == this) {
+      throw new IllegalArgumentException();
+    }
+    int count = 0;
+    E e;
+    while (count < maxElements && null != (e = poll())) {
+      c.add(e);
+      count += 1;
+    }
+    return count;
+  }
+
+  @Override
+  public Iterator<E> iterator() {
+    List<E> snapshot = new ArrayList<E>(size());
+    long end = this.tail.get();
+    for (long position = this.head.get(); position < end; ++position) {
+      int index = (int) (position & this.mask);
+      @SuppressWarnings("unchecked")
+      E e = (E) this.buffer[index];
+      if (this.sequences.get(index) == position + 1 && null != e) {
+        snapshot.add(e);
+      }
+    }
+    return Collections.unmodifiableList(snapshot).iterator();
+  }
+
+  @Override
+  public String toString() {
+    return "RingBufferBlockingQueue{capacity=" + this.buffer.length + ", size=" + size() + ", wait=" + this.waitStrategy + '}';
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.util.concurrent;
+
+import com.tc.util.concurrent.RingBufferBlockingQueue.WaitStrategy;
+
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Creates {@link RingBufferBlockingQueue}s.  Since a ring can't be unbounded, requests for more than the configured
+ * capacity (including the unbounded {@link #createInstance()}) are clamped to it.
+ */
+public class RingBufferQueueFactory<E> extends QueueFactory<E> {
+  private final int          maxCapacity;
+  private final WaitStrategy waitStrategy;
+
+  public RingBufferQueueFactory(int maxCapacity, WaitStrategy waitStrategy) {
+    this.maxCapacity = maxCapacity;
+    this.waitStrategy = waitStrategy;
+  }
+
+  @Override
+  public BlockingQueue<E> createInstance() {
+    return new RingBufferBlockingQueue<E>(this.maxCapacity, this.waitStrategy);
+  }
+
+  @Override
+  public BlockingQueue<E> createInstance(int capacity) {
+    return new RingBufferBlockingQueue<E>(Math.min(capacity, this.maxCapacity), this.waitStrategy);
+  }
+}
@@ -18,6 +18,7 @@
  */
 package com.tc.async.impl;
 
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.EventHandlerException;
@@ -31,7 +32,10 @@ import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -130,4 +134,118 @@ public class StageImplTest {
     }
     
   }
+
+  @Test
+  public void testBatchedHandler() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(10);
+    final List<List<Object>> batches = new CopyOnWriteArrayList<List<Object>>();
+    BatchEventHandler<Object> handler = new BatchEventHandler<Object>() {
+      @Override
+      public int getMaxBatchSize() {
+        return 4;
+      }
+      @Override
+      public void handleEvent(Object context) throws EventHandlerException {
+        fail("a batching handler should only see batches");
+      }
+      @Override
+      public void handleEvents(Collection<Object> contexts) throws EventHandlerException {
+        batches.add(new ArrayList<Object>(contexts));
+//  hold the first batch so the rest pile up in the queue
+        try {
+          release.await();
+        } catch (InterruptedException in) {
+        }
+        for (int i = 0; i < contexts.size(); ++i) {
+          done.countDown();
+        }
+      }
+      @Override
+      public void destroy() { }
+      @Override
+      public void initializeContext(ConfigurationContext context) { }
+    };
+
+    StageImpl<Object> instance = new StageImpl<Object>(new DefaultLoggerProvider(), "batch", handler, 1, null, new QueueFactory<ContextWrapper<Object>>(), 16);
+    instance.start(null);
+    for (int i = 0; i < 10; ++i) {
+      instance.getSink().addSingleThreaded(i);
+    }
+    release.countDown();
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+
+    List<Object> handled = new ArrayList<Object>();
+    for (List<Object> batch : batches) {
+      assertTrue(batch.size() <= 4);
+      handled.addAll(batch);
+    }
+    List<Object> expected = new ArrayList<Object>();
+    for (int i = 0; i < 10; ++i) {
+      expected.add(i);
+    }
+    assertEquals(expected, handled);
+    assertTrue(batches.size() < 10);
+    instance.destroy();
+  }
+
+  @Test
+  public void testFlushRunsAfterEverythingQueuedBeforeIt() throws Exception {
+    final int queues = 4;
+    final List<Object> handled = new CopyOnWriteArrayList<Object>();
+    final CountDownLatch flushed = new CountDownLatch(1);
+    EventHandler<Keyed> handler = new EventHandler<Keyed>() {
+      @Override
+      public void handleEvent(Keyed context) throws EventHandlerException {
+        if (context.flush) {
+          handled.add(context);
+          flushed.countDown();
+        } else {
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException in) {
+          }
+          handled.add(context);
+        }
+      }
+      @Override
+      public void handleEvents(Collection<Keyed> context) throws EventHandlerException { }
+      @Override
+      public void destroy() { }
+      @Override
+      public void initializeContext(ConfigurationContext context) { }
+    };
+    StageImpl<Keyed> instance = new StageImpl<Keyed>(new DefaultLoggerProvider(), "flush", handler, queues, null, new QueueFactory<ContextWrapper<Keyed>>(), 256);
+    instance.start(null);
+    for (int x=0;x<queues*5;x++) {
+      instance.getSink().addMultiThreaded(new Keyed(x, false));
+    }
+    Keyed flush = new Keyed(0, true);
+    instance.getSink().addMultiThreaded(flush);
+    assertTrue(flushed.await(10, TimeUnit.SECONDS));
+//  the flush ran exactly once and only after everything ahead of it
+    assertEquals(queues*5 + 1, handled.size());
+    assertEquals(flush, handled.get(handled.size() - 1));
+    instance.destroy();
+  }
+
+  private static class Keyed implements MultiThreadedEventContext {
+    private final Object key;
+    private final boolean flush;
+
+    Keyed(Object key, boolean flush) {
+      this.key = key;
+      this.flush = flush;
+    }
+
+    @Override
+    public Object getSchedulingKey() {
+      return key;
+    }
+
+    @Override
+    public boolean flush() {
+      return flush;
+    }
+  }
 }
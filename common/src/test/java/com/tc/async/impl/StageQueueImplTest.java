@@ -133,4 +133,48 @@ public class StageQueueImplTest {
 //  tests specific implementation.  test expectation
     assertEquals(cxts.get(rand % cxts.size()).poll(), context1);
   }
+
+  @Test
+  public void testUnkeyedContextsAvoidBackedUpQueue() {
+//  few queues are scanned
+    checkUnkeyedContextsAvoidBackedUpQueue(4);
+  }
+
+  @Test
+  public void testUnkeyedContextsAvoidBackedUpQueueWithManyQueues() {
+//  many queues use two choices
+    checkUnkeyedContextsAvoidBackedUpQueue(16);
+  }
+
+  private void checkUnkeyedContextsAvoidBackedUpQueue(int size) {
+    TCLoggerProvider logger = new DefaultLoggerProvider();
+    final List<BlockingQueue<Object>> cxts = new ArrayList<BlockingQueue<Object>>();
+    QueueFactory<ContextWrapper<Object>> context = mock(QueueFactory.class);
+    when(context.createInstance(Matchers.anyInt())).thenAnswer(new Answer<BlockingQueue<Object>>() {
+      @Override
+      public BlockingQueue<Object> answer(InvocationOnMock invocation) throws Throwable {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>((Integer)invocation.getArguments()[0]);
+        cxts.add(queue);
+        return queue;
+      }
+    });
+    StageQueueImpl<Object> instance = new StageQueueImpl<Object>(size, context, logger, "mock", 256);
+//  back up the first worker
+    for (int x=0;x<10;x++) {
+      cxts.get(0).add(new Object());
+    }
+    MultiThreadedEventContext context1 = mock(MultiThreadedEventContext.class);
+    when(context1.getSchedulingKey()).thenReturn(null);
+    int adds = 10 * size;
+    for (int x=0;x<adds;x++) {
+      instance.addMultiThreaded(context1);
+    }
+//  round robin alone would have put 10 more on the backed up queue
+    assertThat(cxts.get(0).size() - 10, org.hamcrest.Matchers.lessThan(10));
+    int total = 0;
+    for (Queue<Object> q : cxts) {
+      total += q.size();
+    }
+    assertEquals(adds + 10, total);
+  }
 }
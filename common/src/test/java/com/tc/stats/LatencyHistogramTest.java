@@ -0,0 +1,57 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.stats;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+  public void testBucketsCoverEveryValue() {
+    long previousHigh = -1;
+    for (int index = 0; index < LatencyHistogram.indexOf(Long.MAX_VALUE); ++index) {
+      long low = LatencyHistogram.lowestValueIn(index);
+      long high = LatencyHistogram.highestValueIn(index);
+      assertEquals(previousHigh + 1, low);
+      assertEquals(index, LatencyHistogram.indexOf(low));
+      assertEquals(index, LatencyHistogram.indexOf(high));
+      previousHigh = high;
+    }
+  }
+
+  public void testPercentilesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 10000; ++i) {
+      histogram.record(i * 1000);
+    }
+    assertEquals(10000, histogram.getCount());
+    assertEquals(10000000, histogram.getMax());
+    assertEquals(5000500, histogram.getMean());
+    assertWithin(5000000, histogram.getValueAtPercentile(50));
+    assertWithin(9900000, histogram.getValueAtPercentile(99));
+    assertEquals(10000000, histogram.getValueAtPercentile(100));
+
+    histogram.reset();
+    assertEquals(0, histogram.getCount());
+    assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  private static void assertWithin(long expected, long actual) {
+    assertTrue(expected + " vs " + actual, Math.abs(actual - expected) <= expected / 16);
+  }
+}
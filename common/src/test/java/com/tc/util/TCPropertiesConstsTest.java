@@ -60,6 +60,10 @@ public class TCPropertiesConstsTest extends TCTestCase {
   
     exemptedProperties.add(TCPropertiesConsts.CLIENT_MAX_PENDING_REQUESTS);
     exemptedProperties.add(TCPropertiesConsts.CLIENT_MAX_SENT_REQUESTS);
+    exemptedProperties.add(TCPropertiesConsts.CLIENT_REQUEST_WINDOW_MIN);
+    exemptedProperties.add(TCPropertiesConsts.CLIENT_REQUEST_WINDOW_MAX);
+    exemptedProperties.add(TCPropertiesConsts.CLIENT_REQUEST_BATCH_MAX_BYTES);
+    exemptedProperties.add(TCPropertiesConsts.CLIENT_REQUEST_BATCH_LINGER);
 
     // exempt all subcategories
     exemptedProperties.add(TCPropertiesConsts.L1_CATEGORY);
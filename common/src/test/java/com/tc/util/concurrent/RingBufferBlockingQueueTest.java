@@ -0,0 +1,165 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.util.concurrent;
+
+import com.tc.util.concurrent.RingBufferBlockingQueue.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class RingBufferBlockingQueueTest extends TestCase {
+
+  public void testCapacityRoundsUpToPowerOfTwo() {
+    assertEquals(1, new RingBufferBlockingQueue<Object>(1, WaitStrategy.PARK).capacity());
+    assertEquals(8, new RingBufferBlockingQueue<Object>(5, WaitStrategy.PARK).capacity());
+    assertEquals(16, new RingBufferBlockingQueue<Object>(16, WaitStrategy.PARK).capacity());
+  }
+
+  public void testFifoAndBounds() throws Exception {
+    RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(4, WaitStrategy.YIELD);
+    assertTrue(queue.isEmpty());
+    assertNull(queue.poll());
+    assertNull(queue.peek());
+    // Go around the ring a few times.
+    for (int lap = 0; lap < 3; ++lap) {
+      for (int i = 0; i < 4; ++i) {
+        assertTrue(queue.offer(i));
+      }
+      assertFalse(queue.offer(4));
+      assertFalse(queue.offer(4, 10, TimeUnit.MILLISECONDS));
+      assertEquals(4, queue.size());
+      assertEquals(0, queue.remainingCapacity());
+      assertEquals(Arrays.asList(0, 1, 2, 3), new ArrayList<Integer>(queue));
+      assertEquals(Integer.valueOf(0), queue.peek());
+      for (int i = 0; i < 4; ++i) {
+        assertEquals(Integer.valueOf(i), queue.poll());
+      }
+      assertTrue(queue.isEmpty());
+    }
+    assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+  }
+
+  public void testDrainAndClear() {
+    RingBufferBlockingQueue<Integer> queue = new RingBufferBlockingQueue<Integer>(8, WaitStrategy.SPIN);
+    for (int i = 0; i < 6; ++i) {
+      queue.add(i);
+    }
+    List<Integer> drained = new ArrayList<Integer>();
+    assertEquals(2, queue.drainTo(drained, 2));
+    assertEquals(Arrays.asList(0, 1), drained);
+    queue.clear();
+    assertTrue(queue.isEmpty());
+    assertEquals(0, queue.size());
+  }
+
+  public void testParkedConsumerIsWoken() throws Exception {
+    final RingBufferBlockingQueue<String> queue = new RingBufferBlockingQueue<String>(2, WaitStrategy.PARK);
+    final AtomicReference<String> taken = new AtomicReference<String>();
+    Thread consumer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          taken.set(queue.poll(30, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          // leave it null
+        }
+      }
+    };
+    consumer.start();
+    Thread.sleep(100);
+    queue.put("hello");
+    consumer.join(10000);
+    assertFalse(consumer.isAlive());
+    assertEquals("hello", taken.get());
+  }
+
+  public void testEveryParkedConsumerIsWoken() throws Exception {
+    final RingBufferBlockingQueue<String> queue = new RingBufferBlockingQueue<String>(2, WaitStrategy.PARK);
+    final List<String> taken = Collections.synchronizedList(new ArrayList<String>());
+    Thread[] consumers = new Thread[2];
+    for (int c = 0; c < consumers.length; ++c) {
+      consumers[c] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            taken.add(queue.poll(30, TimeUnit.SECONDS));
+          } catch (InterruptedException e) {
+            // leave it out
+          }
+        }
+      };
+      consumers[c].start();
+    }
+    // Both consumers park before anything is put, neither may miss its wakeup.
+    Thread.sleep(100);
+    queue.put("first");
+    queue.put("second");
+    for (Thread consumer : consumers) {
+      consumer.join(10000);
+      assertFalse(consumer.isAlive());
+    }
+    assertEquals(2, taken.size());
+    assertTrue(taken.containsAll(Arrays.asList("first", "second")));
+  }
+
+  public void testManyProducersOneConsumer() throws Exception {
+    // SPIN is left out since, on a machine with fewer cores than threads, spinners just starve each other.
+    for (WaitStrategy strategy : new WaitStrategy[] { WaitStrategy.YIELD, WaitStrategy.PARK }) {
+      final RingBufferBlockingQueue<Long> queue = new RingBufferBlockingQueue<Long>(64, strategy);
+      final int producers = 4;
+      final int perProducer = 20000;
+      Thread[] threads = new Thread[producers];
+      for (int p = 0; p < producers; ++p) {
+        final long producer = p;
+        threads[p] = new Thread() {
+          @Override
+          public void run() {
+            try {
+              for (long i = 0; i < perProducer; ++i) {
+                queue.put(producer * perProducer + i);
+              }
+            } catch (InterruptedException e) {
+              throw new AssertionError(e);
+            }
+          }
+        };
+        threads[p].start();
+      }
+      // Each producer's elements must come out in the order it put them.
+      long[] next = new long[producers];
+      for (int i = 0; i < producers * perProducer; ++i) {
+        Long value = queue.poll(30, TimeUnit.SECONDS);
+        assertNotNull(value);
+        int producer = (int) (value / perProducer);
+        assertEquals(next[producer], value % perProducer);
+        next[producer] += 1;
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+      assertTrue(queue.isEmpty());
+    }
+  }
+}
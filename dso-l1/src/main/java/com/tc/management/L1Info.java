@@ -22,6 +22,7 @@ import com.tc.handler.LockInfoDumpHandler;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
 import com.tc.management.beans.l1.L1InfoMBean;
+import com.tc.object.ClientEntityManager;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.runtime.JVMMemoryManager;
 import com.tc.runtime.TCRuntime;
@@ -240,6 +241,12 @@ public class L1Info extends AbstractTerracottaMBean implements L1InfoMBean {
 
     map.put(MEMORY_USED, Long.valueOf(getUsedMemory()));
     map.put(MEMORY_MAX, Long.valueOf(getMaxMemory()));
+    ClientEntityManager entityManager = (null != client) ? client.getEntityManager() : null;
+    if (null != entityManager) {
+      map.put(REQUEST_WINDOW_SIZE, Integer.valueOf(entityManager.getRequestWindowSize()));
+      map.put(REQUEST_WINDOW_STALL_COUNT, Long.valueOf(entityManager.getRequestWindowStallCount()));
+      map.put(REQUEST_WINDOW_STALL_TIME, Long.valueOf(entityManager.getRequestWindowStallTime()));
+    }
 
     return map;
   }
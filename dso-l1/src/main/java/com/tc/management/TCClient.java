@@ -20,10 +20,13 @@ package com.tc.management;
 
 import com.tc.handler.LockInfoDumpHandler;
 import com.tc.management.beans.TCDumper;
+import com.tc.object.ClientEntityManager;
 
 public interface TCClient extends TCDumper {
 
   public String[] processArguments();
 
   public String getUUID();
+
+  public ClientEntityManager getEntityManager();
 }
@@ -0,0 +1,50 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.object;
+
+import org.terracotta.entity.InvokeFuture;
+
+import com.tc.entity.VoltronEntityMessage;
+
+import java.util.concurrent.CompletionStage;
+
+
+/**
+ * An {@link InvokeFuture} which can also be followed without parking a thread on it.
+ * <p>
+ * Callbacks run on the thread which delivered the corresponding ack (normally the client's request receive stage) so
+ * they must be short and must never block.  A callback registered after its ack has already arrived is run
+ * immediately, on the registering thread.
+ */
+public interface AsyncInvokeFuture<T> extends InvokeFuture<T> {
+  /**
+   * Runs the callback once the given ack has arrived.  Any ack can be followed, whether or not the invoke asked to
+   * wait for it.  APPLIED is reported when the result (value or exception) arrives, even when get() is held until
+   * RETIRED.
+   *
+   * @return this future, for chaining
+   */
+  AsyncInvokeFuture<T> whenAcked(VoltronEntityMessage.Acks ack, Runnable callback);
+
+  /**
+   * @return A stage completed when get() would return:  normally with the value or exceptionally with the
+   * EntityException from the server.
+   */
+  CompletionStage<T> toCompletionStage();
+}
@@ -0,0 +1,209 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.object;
+
+import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.VoltronEntityMultiMessage;
+import com.tc.logging.TCLogger;
+import com.tc.net.protocol.tcm.MessageChannel;
+import com.tc.net.protocol.tcm.TCMessageType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Sends client requests to the server, packing invokes which queue up behind each other into one
+ * {@link VoltronEntityMultiMessage}.
+ * <p>
+ * There is no sender thread:  the first caller to find the sender idle becomes the drainer and sends, oldest first,
+ * the batches up to and including the one carrying its own request.  Callers which queued while it was busy wait
+ * until their request has gone out in one of those batches, or until the drainer is done and one of them takes over
+ * for whatever is left.  So an uncontended request goes out immediately, a contended one rides along in the next
+ * batch, and no caller sends more than what was queued ahead of it.  A batch is cut at the byte budget and
+ * lifecycle requests are always sent on their own, in the order they were queued.  If a linger time is configured
+ * the drainer first waits up to that long for the batch to fill.
+ * <p>
+ * A server only understands the multi message if it is at least as new as this client, so batching is off by
+ * default and should only be turned on once every server in the stripe has been upgraded.
+ */
+class BatchingSender {
+  // A rough allowance for the fixed part of each request (IDs, descriptor, flags) when measuring a batch.
+  private static final int REQUEST_OVERHEAD = 64;
+
+  private final MessageChannel channel;
+  private final TCLogger logger;
+  private final int maxBatchBytes;
+  private final long lingerNanos;
+
+  private final Deque<Pending> queue = new ArrayDeque<Pending>();
+  private int queuedBytes;
+  private boolean sending;
+
+  /**
+   * @param maxBatchBytes the most request payload to put in one message, 0 to disable batching
+   * @param lingerMicros how long the draining caller waits for a batch to fill, 0 to never wait
+   */
+  BatchingSender(MessageChannel channel, TCLogger logger, int maxBatchBytes, long lingerMicros) {
+    this.channel = channel;
+    this.logger = logger;
+    this.maxBatchBytes = maxBatchBytes;
+    this.lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+  }
+
+  /**
+   * Sends the request, either on its own or packed with others, and returns once it has gone out.
+   *
+   * @return False if the send failed.
+   */
+  boolean send(InFlightMessage message) {
+    if (this.maxBatchBytes <= 0) {
+      return message.send();
+    }
+    Pending own = new Pending(message);
+    boolean interrupted = false;
+    synchronized (this) {
+      this.queue.addLast(own);
+      this.queuedBytes += own.size;
+      if (this.sending && this.queuedBytes >= this.maxBatchBytes) {
+        notifyAll();
+      }
+      while (!own.done && this.sending) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (!own.done) {
+        this.sending = true;
+        linger();
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+    if (!own.done) {
+      drain(own);
+    }
+    return own.sent;
+  }
+
+  private void linger() {
+    if (this.lingerNanos <= 0) {
+      return;
+    }
+    long end = System.nanoTime() + this.lingerNanos;
+    boolean interrupted = false;
+    long remaining;
+    while (this.queuedBytes < this.maxBatchBytes && (remaining = end - System.nanoTime()) > 0) {
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain(Pending own) {
+    List<Pending> batch = new ArrayList<Pending>();
+    try {
+      while (!own.done) {
+        batch.clear();
+        synchronized (this) {
+          takeBatch(batch);
+        }
+        boolean sent = false;
+        try {
+          sent = (1 == batch.size()) ? batch.get(0).message.send() : sendBatch(batch);
+        } finally {
+          if (!sent) {
+            this.logger.warn("batch of " + batch.size() + " requests not sent.  Make sure resend happens");
+          }
+          synchronized (this) {
+            for (Pending pending : batch) {
+              pending.sent = sent;
+              pending.done = true;
+            }
+          }
+        }
+      }
+    } finally {
+      synchronized (this) {
+        this.sending = false;
+        // Wake the callers whose requests went out, and let one of the rest take over draining.
+        notifyAll();
+      }
+    }
+  }
+
+  private void takeBatch(List<Pending> batch) {
+    int bytes = 0;
+    Pending next;
+    while (null != (next = this.queue.peekFirst())) {
+      boolean isInvoke = isInvoke(next.message);
+      // Lifecycle requests go alone and anything which would overflow the budget waits for the next batch.
+      if (!batch.isEmpty() && (!isInvoke || bytes + next.size > this.maxBatchBytes)) {
+        break;
+      }
+      this.queue.pollFirst();
+      this.queuedBytes -= next.size;
+      bytes += next.size;
+      batch.add(next);
+      if (!isInvoke) {
+        break;
+      }
+    }
+  }
+
+  private boolean sendBatch(List<Pending> batch) {
+    VoltronEntityMultiMessage multi = (VoltronEntityMultiMessage) this.channel.createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_MESSAGE);
+    for (Pending pending : batch) {
+      pending.message.sendIn(multi);
+    }
+    return multi.send();
+  }
+
+  private static boolean isInvoke(InFlightMessage message) {
+    return VoltronEntityMessage.Type.INVOKE_ACTION == message.getMessage().getVoltronType();
+  }
+
+  private static int sizeOf(InFlightMessage message) {
+    return REQUEST_OVERHEAD + message.getMessage().getExtendedData().length;
+  }
+
+  private static class Pending {
+    private final InFlightMessage message;
+    private final int size;
+    // Both guarded by the sender monitor.
+    private boolean done;
+    private boolean sent;
+
+    Pending(InFlightMessage message) {
+      this.message = message;
+      this.size = sizeOf(message);
+    }
+  }
+}
@@ -39,6 +39,10 @@ public class ClientConfigurationContext extends ConfigurationContextImpl {
 
   public static final int                MAX_PENDING_REQUESTS                        = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.CLIENT_MAX_PENDING_REQUESTS, 5000);
   public static final int                MAX_SENT_REQUESTS                        = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.CLIENT_MAX_SENT_REQUESTS, 200);
+  public static final int                MIN_REQUEST_WINDOW                       = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.CLIENT_REQUEST_WINDOW_MIN, 16);
+  public static final int                MAX_REQUEST_WINDOW                       = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.CLIENT_REQUEST_WINDOW_MAX, 4096);
+  public static final int                MAX_REQUEST_BATCH_BYTES                  = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.CLIENT_REQUEST_BATCH_MAX_BYTES, 0);
+  public static final long               REQUEST_BATCH_LINGER                     = TCPropertiesImpl.getProperties().getLong(TCPropertiesConsts.CLIENT_REQUEST_BATCH_LINGER, 0);
   
   private final ClientEntityManager       entityManager;
   private final ClientHandshakeManager    clientHandshakeManager;
@@ -65,4 +65,19 @@ public interface ClientEntityManager extends PrettyPrintable, RequestResponseHan
   boolean destroyEntity(EntityID entityID, long version) throws EntityException;
 
   byte[] reconfigureEntity(EntityID entityID, long version, byte[] config) throws EntityException;
+
+  /**
+   * @return The number of requests currently allowed in flight to the server.
+   */
+  int getRequestWindowSize();
+
+  /**
+   * @return The number of times a sender had to wait for room in the request window.
+   */
+  long getRequestWindowStallCount();
+
+  /**
+   * @return The total time, in milliseconds, senders have waited for room in the request window.
+   */
+  long getRequestWindowStallTime();
 }
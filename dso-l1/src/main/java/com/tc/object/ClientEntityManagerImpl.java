@@ -27,13 +27,13 @@ import com.tc.async.api.Stage;
 import com.tc.async.api.StageManager;
 import com.tc.util.Throwables;
 import org.terracotta.entity.EntityClientEndpoint;
-import org.terracotta.entity.InvokeFuture;
 import org.terracotta.entity.MessageCodec;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodecException;
 import org.terracotta.exception.EntityException;
 
+import com.tc.entity.CoalescedServerEntityMessage;
 import com.tc.entity.NetworkVoltronEntityMessage;
 import com.tc.entity.ResendVoltronEntityMessage;
 import com.tc.entity.VoltronEntityMessage;
@@ -63,11 +63,11 @@ import java.io.IOException;
 import java.util.Collections;
 
 import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import org.terracotta.connection.ConnectionException;
@@ -81,7 +81,8 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   private final ClientMessageChannel channel;
   private final ConcurrentMap<TransactionID, InFlightMessage> inFlightMessages;
   private final Sink<InFlightMessage> outbound;
-  private final Semaphore requestTickets;
+  private final RequestWindow requestWindow;
+  private final BatchingSender sender;
   private final AtomicLong currentTransactionID;
 
   private final ClientEntityStateManager stateManager;
@@ -100,7 +101,10 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     this.channel = channel;
 
     this.inFlightMessages = new ConcurrentHashMap<TransactionID, InFlightMessage>();
-    this.requestTickets = new Semaphore(ClientConfigurationContext.MAX_SENT_REQUESTS);
+    this.requestWindow = new RequestWindow(ClientConfigurationContext.MAX_SENT_REQUESTS,
+        ClientConfigurationContext.MIN_REQUEST_WINDOW, ClientConfigurationContext.MAX_REQUEST_WINDOW);
+    this.sender = new BatchingSender(channel, this.logger, ClientConfigurationContext.MAX_REQUEST_BATCH_BYTES,
+        ClientConfigurationContext.REQUEST_BATCH_LINGER);
     this.currentTransactionID = new AtomicLong();
     this.stateManager = new ClientEntityStateManager();
     this.objectStoreMap = new ConcurrentHashMap<EntityDescriptor, EntityClientEndpoint<?, ?>>(10240, 0.75f, 128);
@@ -122,7 +126,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
       @Override
       public void handleEvent(InFlightMessage first) throws EventHandlerException {
         try {
-          requestTickets.acquire();
+          requestWindow.acquire();
           boolean doSend = false;
           synchronized (ClientEntityManagerImpl.this) {
             if (!isShutdown) {
@@ -132,7 +136,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
             }
           }
           if (doSend) {
-              if (first.send()) {
+              if (sender.send(first)) {
 //  when encountering a send for anything other than an invoke, wait here before sending anything else
 //  this is a bit paranoid but it is to prevent too many resends of lifecycle operations.  Just
 //  make sure those complete before sending any new invokes or lifecycle messages
@@ -143,7 +147,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
                 logger.warn("message not sent.  Make sure resend happens " + first);
               }
           } else {
-            requestTickets.release();
+            requestWindow.release();
             throwClosedExceptionOnMessage(first);
           }
         } catch (InterruptedException ie) {
@@ -283,16 +287,32 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   }
 
   @Override
-  public InvokeFuture<byte[]> invokeAction(EntityDescriptor entityDescriptor, Set<VoltronEntityMessage.Acks> requestedAcks, boolean requiresReplication, boolean shouldBlockGetOnRetire, byte[] payload) {
+  public AsyncInvokeFuture<byte[]> invokeAction(EntityDescriptor entityDescriptor, Set<VoltronEntityMessage.Acks> requestedAcks, boolean requiresReplication, boolean shouldBlockGetOnRetire, byte[] payload) {
     NetworkVoltronEntityMessage message = createMessageWithDescriptor(entityDescriptor, requiresReplication, payload, VoltronEntityMessage.Type.INVOKE_ACTION);
     return createInFlightMessageAfterAcks(message, requestedAcks, shouldBlockGetOnRetire);
   }
 
+  @Override
+  public int getRequestWindowSize() {
+    return this.requestWindow.windowSize();
+  }
+
+  @Override
+  public long getRequestWindowStallCount() {
+    return this.requestWindow.getStallCount();
+  }
+
+  @Override
+  public long getRequestWindowStallTime() {
+    return this.requestWindow.getStallTime();
+  }
+
   @Override
   public synchronized PrettyPrinter prettyPrint(PrettyPrinter out) {
     out.print(this.getClass().getName()).flush();
     out.duplicateAndIndent().indent().print(this.stateManager.getCurrentState()).flush();
     out.duplicateAndIndent().indent().print("inFlightMessages size: ").print(Integer.valueOf(this.inFlightMessages.size())).flush();
+    out.duplicateAndIndent().indent().print("request window: ").print(this.requestWindow).flush();
     out.duplicateAndIndent().indent().print("outbound size: ").print(Integer.valueOf(outbound.size())).flush();
     out.duplicateAndIndent().indent().print("objectStoreMap size: ").print(Integer.valueOf(this.objectStoreMap.size())).flush();
     return out;
@@ -303,6 +323,10 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     // Note that this call comes the platform, potentially concurrently with complete()/failure().
     InFlightMessage inFlight = inFlightMessages.get(id);
     if (inFlight != null) {
+      // A resent request was sent before the reconnect, so its time in flight says nothing about the server now.
+      if (!inFlight.isResent()) {
+        this.requestWindow.latency(System.nanoTime() - inFlight.getSentTime());
+      }
       inFlight.received();
     } else {
    // resend result
@@ -330,6 +354,10 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
   public void failed(TransactionID id, EntityException error) {
     // Note that this call comes the platform, potentially concurrently with received().
     InFlightMessage inFlight = inFlightMessages.get(id);
+    if (error instanceof EntityBusyException) {
+      // The server turned the request away (today only while the entity is being synced to a passive) so send less at once.
+      this.requestWindow.busy();
+    }
     if (inFlight != null) {
       inFlight.setResult(null, error);
     } else {
@@ -339,14 +367,14 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
 
   @Override
   public void retired(TransactionID id) {
-    // We only retire the InFlightMessage from our mapping and release the request ticket once we get the retired ACK.
+    // We only retire the InFlightMessage from our mapping and release its slot in the request window once we get the retired ACK.
     InFlightMessage inFlight = inFlightMessages.remove(id);
     if (inFlight != null) {
       inFlight.retired();
     } else {
    // resend result
     }
-    requestTickets.release();
+    requestWindow.release();
   }
 
   @Override
@@ -384,6 +412,7 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     for (InFlightMessage inFlight : this.inFlightMessages.values()) {
       NetworkVoltronEntityMessage message = inFlight.getMessage();
 //  validate the locking on release and destroy on resends
+      inFlight.resent();
 
       ResendVoltronEntityMessage packaged = new ResendVoltronEntityMessage(message.getSource(), message.getTransactionID(), 
           message.getEntityDescriptor(), message.getVoltronType(), message.doesRequireReplication(), message.getExtendedData(), 
@@ -650,6 +679,11 @@ public class ClientEntityManagerImpl implements ClientEntityManager {
     public boolean addResult(TransactionID tid, byte[] result) {
       throw new UnsupportedOperationException("Not supported yet."); //To change body of generated methods, choose Tools | Templates.
     }
+
+    @Override
+    public List<CoalescedServerEntityMessage> getServerEntityMessages() {
+      return Collections.emptyList();
+    }
     
     public synchronized void waitForAccess() {
       boolean interrupted = false;
@@ -22,7 +22,6 @@ package com.tc.object;
 import org.terracotta.entity.EndpointDelegate;
 import org.terracotta.entity.EntityClientEndpoint;
 import org.terracotta.entity.InvocationBuilder;
-import org.terracotta.entity.InvokeFuture;
 import org.terracotta.entity.MessageCodec;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
@@ -34,6 +33,7 @@ import org.terracotta.exception.EntityException;
 
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -148,12 +148,16 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
       return this;
     }
 
+    /**
+     * The returned future is an {@link AsyncInvokeFuture} so callers pipelining many invokes can follow them without
+     * parking a thread on each one.
+     */
     @Override
-    public synchronized InvokeFuture<R> invoke() throws MessageCodecException {
+    public synchronized AsyncInvokeFuture<R> invoke() throws MessageCodecException {
       checkInvoked();
       invoked = true;
-      final InvokeFuture<byte[]> invokeFuture = invocationHandler.invokeAction(entityDescriptor, this.acks, this.requiresReplication, this.shouldBlockGetOnRetire, codec.encodeMessage(request));
-      return new InvokeFuture<R>() {
+      final AsyncInvokeFuture<byte[]> invokeFuture = invocationHandler.invokeAction(entityDescriptor, this.acks, this.requiresReplication, this.shouldBlockGetOnRetire, codec.encodeMessage(request));
+      return new AsyncInvokeFuture<R>() {
         @Override
         public boolean isDone() {
           return invokeFuture.isDone();
@@ -181,6 +185,23 @@ public class EntityClientEndpointImpl<M extends EntityMessage, R extends EntityR
         public void interrupt() {
           invokeFuture.interrupt();
         }
+
+        @Override
+        public AsyncInvokeFuture<R> whenAcked(VoltronEntityMessage.Acks ack, Runnable callback) {
+          invokeFuture.whenAcked(ack, callback);
+          return this;
+        }
+
+        @Override
+        public CompletionStage<R> toCompletionStage() {
+          return invokeFuture.toCompletionStage().thenApply(raw -> {
+            try {
+              return codec.decodeResponse(raw);
+            } catch (MessageCodecException e) {
+              throw new RuntimeException(e);
+            }
+          });
+        }
       };
     }
 
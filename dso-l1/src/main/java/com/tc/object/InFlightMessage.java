@@ -18,17 +18,25 @@
  */
 package com.tc.object;
 
-import org.terracotta.entity.InvokeFuture;
 import org.terracotta.exception.EntityException;
 
 import com.tc.entity.NetworkVoltronEntityMessage;
 import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.VoltronEntityMultiMessage;
+import com.tc.logging.TCLogger;
+import com.tc.logging.TCLogging;
 import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -39,7 +47,8 @@ import java.util.concurrent.TimeoutException;
  * Note that this is only used from within ClietEntityManagerImpl, and was originally embedded there, but was extracted to
  * make unit testing more direct.
  */
-public class InFlightMessage implements InvokeFuture<byte[]> {
+public class InFlightMessage implements AsyncInvokeFuture<byte[]> {
+  private static final TCLogger LOGGER = TCLogging.getLogger(InFlightMessage.class);
   private final NetworkVoltronEntityMessage message;
   /**
    * The set of pending ACKs determines when the caller returns from the send, in order to preserve ordering in the
@@ -51,8 +60,15 @@ public class InFlightMessage implements InvokeFuture<byte[]> {
   // Note that the point where we wait for acks isn't exposed outside the InvokeFuture interface so this set of waiting
   // threads only applies to those threads waiting to get a response.
   private final Set<Thread> waitingThreads;
+  // Every ack which has arrived so far (requested or not) and the callbacks still waiting on the others.  Callbacks are
+  // always run outside of our monitor.
+  private final Set<VoltronEntityMessage.Acks> arrivedAcks;
+  private final Map<VoltronEntityMessage.Acks, List<Runnable>> ackCallbacks;
+  private CompletableFuture<byte[]> completion;
 
   private boolean isSent;
+  private long sentTime;
+  private boolean isResent;
   private EntityException exception;
   private byte[] value;
   private boolean canSetResult;
@@ -64,6 +80,8 @@ public class InFlightMessage implements InvokeFuture<byte[]> {
     this.pendingAcks = EnumSet.noneOf(VoltronEntityMessage.Acks.class);
     this.pendingAcks.addAll(acks);
     this.waitingThreads = new HashSet<Thread>();
+    this.arrivedAcks = EnumSet.noneOf(VoltronEntityMessage.Acks.class);
+    this.ackCallbacks = new EnumMap<VoltronEntityMessage.Acks, List<Runnable>>(VoltronEntityMessage.Acks.class);
     this.blockGetOnRetired = shouldBlockGetOnRetire;
     
     // We always assume that we can set the result, the first time.
@@ -81,11 +99,38 @@ public class InFlightMessage implements InvokeFuture<byte[]> {
     return this.message.getTransactionID();
   }
 
+  /**
+   * @return The {@link System#nanoTime()} at which the message was handed to the send path, or 0 if it hasn't been.
+   */
+  public synchronized long getSentTime() {
+    return this.sentTime;
+  }
+
+  /**
+   * Marks the message as replayed to a new server in the reconnect handshake.
+   */
+  public synchronized void resent() {
+    this.isResent = true;
+  }
+
+  public synchronized boolean isResent() {
+    return this.isResent;
+  }
+
   public boolean send() {
     Assert.assertFalse(this.isSent);
     this.isSent = true;
     return this.message.send();
   }
+
+  /**
+   * Adds the message to the given multi-message instead of sending it on its own.
+   */
+  void sendIn(VoltronEntityMultiMessage multi) {
+    Assert.assertFalse(this.isSent);
+    this.isSent = true;
+    Assert.assertTrue(multi.addMessage(this.message));
+  }
   
   public synchronized void waitForAcks() {
     boolean interrupted = false;
@@ -101,20 +146,70 @@ public class InFlightMessage implements InvokeFuture<byte[]> {
     }
   }
 
-  public synchronized void sent() {
-    if (this.pendingAcks.remove(VoltronEntityMessage.Acks.SENT)) {
-      if (this.pendingAcks.isEmpty()) {
-        notifyAll();
+  public void sent() {
+    List<Runnable> callbacks;
+    synchronized (this) {
+      this.sentTime = System.nanoTime();
+      if (this.pendingAcks.remove(VoltronEntityMessage.Acks.SENT)) {
+        if (this.pendingAcks.isEmpty()) {
+          notifyAll();
+        }
+      }
+      callbacks = ackArrived(VoltronEntityMessage.Acks.SENT);
+    }
+    runCallbacks(callbacks);
+  }
+
+  public void received() {
+    List<Runnable> callbacks;
+    synchronized (this) {
+      if (this.pendingAcks.remove(VoltronEntityMessage.Acks.RECEIVED)) {
+        if (this.pendingAcks.isEmpty()) {
+          notifyAll();
+        }
       }
+      callbacks = ackArrived(VoltronEntityMessage.Acks.RECEIVED);
     }
+    runCallbacks(callbacks);
   }
 
-  public synchronized void received() {
-    if (this.pendingAcks.remove(VoltronEntityMessage.Acks.RECEIVED)) {
-      if (this.pendingAcks.isEmpty()) {
-        notifyAll();
+  @Override
+  public AsyncInvokeFuture<byte[]> whenAcked(VoltronEntityMessage.Acks ack, Runnable callback) {
+    boolean runNow;
+    synchronized (this) {
+      runNow = this.arrivedAcks.contains(ack);
+      if (!runNow) {
+        List<Runnable> callbacks = this.ackCallbacks.get(ack);
+        if (null == callbacks) {
+          callbacks = new ArrayList<Runnable>(1);
+          this.ackCallbacks.put(ack, callbacks);
+        }
+        callbacks.add(callback);
       }
     }
+    if (runNow) {
+      callback.run();
+    }
+    return this;
+  }
+
+  @Override
+  public CompletionStage<byte[]> toCompletionStage() {
+    CompletableFuture<byte[]> stage;
+    boolean completeNow;
+    synchronized (this) {
+      if (null == this.completion) {
+        this.completion = new CompletableFuture<byte[]>();
+        completeNow = this.getCanComplete;
+      } else {
+        completeNow = false;
+      }
+      stage = this.completion;
+    }
+    if (completeNow) {
+      complete(stage);
+    }
+    return stage;
   }
 
   @Override
@@ -180,25 +275,84 @@ public class InFlightMessage implements InvokeFuture<byte[]> {
     }
   }
 
-  synchronized void setResult(byte[] value, EntityException error) {
-    this.pendingAcks.remove(VoltronEntityMessage.Acks.APPLIED);
-    if (this.canSetResult) {
-      this.exception = error;
-      this.value = value;
-      if (!this.blockGetOnRetired) {
+  void setResult(byte[] value, EntityException error) {
+    List<Runnable> callbacks;
+    CompletableFuture<byte[]> toComplete = null;
+    synchronized (this) {
+      this.pendingAcks.remove(VoltronEntityMessage.Acks.APPLIED);
+      if (this.canSetResult) {
+        this.exception = error;
+        this.value = value;
+        if (!this.blockGetOnRetired) {
+          this.getCanComplete = true;
+          toComplete = this.completion;
+          notifyAll();
+        }
+        // Determine if this can be over-written - only if we are waiting for the retired.
+        this.canSetResult = this.blockGetOnRetired;
+      }
+      callbacks = ackArrived(VoltronEntityMessage.Acks.APPLIED);
+    }
+    // Complete the stage first so a misbehaving callback can't leave its waiters hanging.
+    complete(toComplete);
+    runCallbacks(callbacks);
+  }
+
+  public void retired() {
+    List<Runnable> callbacks;
+    CompletableFuture<byte[]> toComplete = null;
+    synchronized (this) {
+      this.pendingAcks.remove(VoltronEntityMessage.Acks.RETIRED);
+      if (this.blockGetOnRetired) {
         this.getCanComplete = true;
-        notifyAll();
+        toComplete = this.completion;
+      }
+      notifyAll();
+      callbacks = ackArrived(VoltronEntityMessage.Acks.RETIRED);
+    }
+    // Complete the stage first so a misbehaving callback can't leave its waiters hanging.
+    complete(toComplete);
+    runCallbacks(callbacks);
+  }
+
+  /**
+   * Must be called under our monitor.
+   * 
+   * @return The callbacks to run once the monitor is released, null if there are none or this ack was already seen.
+   */
+  private List<Runnable> ackArrived(VoltronEntityMessage.Acks ack) {
+    return this.arrivedAcks.add(ack) ? this.ackCallbacks.remove(ack) : null;
+  }
+
+  /**
+   * Callbacks are user code, run on the thread delivering the ack, so one which throws must not stop the others or
+   * escape into the stage which delivered the ack.
+   */
+  private static void runCallbacks(List<Runnable> callbacks) {
+    if (null != callbacks) {
+      for (Runnable callback : callbacks) {
+        try {
+          callback.run();
+        } catch (Throwable t) {
+          LOGGER.error("Exception running ack callback", t);
+        }
       }
-      // Determine if this can be over-written - only if we are waiting for the retired.
-      this.canSetResult = this.blockGetOnRetired;
     }
   }
 
-  public synchronized void retired() {
-    this.pendingAcks.remove(VoltronEntityMessage.Acks.RETIRED);
-    if (this.blockGetOnRetired) {
-      this.getCanComplete = true;
+  private void complete(CompletableFuture<byte[]> stage) {
+    if (null != stage) {
+      byte[] result;
+      EntityException error;
+      synchronized (this) {
+        result = this.value;
+        error = this.exception;
+      }
+      if (null != error) {
+        stage.completeExceptionally(error);
+      } else {
+        stage.complete(result);
+      }
     }
-    notifyAll();
   }
 }
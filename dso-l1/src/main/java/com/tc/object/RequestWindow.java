@@ -0,0 +1,165 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.object;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bounds the number of requests a client has in flight to the server, replacing a fixed ticket semaphore.
+ * <p>
+ * The window adapts with additive increase, multiplicative decrease:  every window's worth of requests which come back
+ * at close to the best latency seen grows it by one and a latency sample well above that baseline, or a request the
+ * server turned away as busy ({@link com.tc.exception.EntityBusyException}), cuts it.  The server sends no other
+ * backlog signal, so a server which is slow but still accepting requests is only seen through the latency.  At most one cut is taken per round trip so a burst of slow responses to requests which
+ * were all sent before the first cut only counts once.  The window never leaves the configured [minimum, maximum].
+ */
+public class RequestWindow {
+  // Smoothing of the latency samples, as a shift:  each sample moves the average by 1/8 of the difference.
+  private static final int    SMOOTHING_SHIFT     = 3;
+  // The baseline drifts up by 1/1024 of the difference on each sample so a permanent route change is eventually learned.
+  private static final int    BASELINE_DRIFT_SHIFT = 10;
+  // The smoothed latency is congested once it is this many times the baseline.
+  private static final int    CONGESTION_FACTOR   = 2;
+  private static final double LATENCY_DECREASE    = 0.75;
+  private static final double BUSY_DECREASE       = 0.5;
+
+  private final int minimum;
+  private final int maximum;
+
+  private double window;
+  private int inFlight;
+  private long baselineLatency = Long.MAX_VALUE;
+  private long smoothedLatency;
+  // Responses seen so far and the count at the last decrease:  another decrease needs a full window of responses.
+  private long samples;
+  private long lastDecrease = Long.MIN_VALUE / 2;
+
+  private long stallCount;
+  private long stallTime;
+
+  public RequestWindow(int initial, int minimum, int maximum) {
+    if (minimum <= 0 || maximum < minimum) {
+      throw new IllegalArgumentException("invalid window bounds [" + minimum + ", " + maximum + "]");
+    }
+    this.minimum = minimum;
+    this.maximum = maximum;
+    this.window = Math.max(minimum, Math.min(maximum, initial));
+  }
+
+  /**
+   * Takes a slot in the window, waiting for one to be released if it is full.
+   */
+  public synchronized void acquire() throws InterruptedException {
+    if (this.inFlight >= windowSize()) {
+      long start = System.nanoTime();
+      try {
+        while (this.inFlight >= windowSize()) {
+          wait();
+        }
+      } finally {
+        this.stallCount += 1;
+        this.stallTime += System.nanoTime() - start;
+      }
+    }
+    this.inFlight += 1;
+  }
+
+  /**
+   * Gives back a slot taken by {@link #acquire()}.
+   */
+  public synchronized void release() {
+    this.inFlight -= 1;
+    notify();
+  }
+
+  /**
+   * Feeds the time between sending a request and the server acknowledging it.
+   */
+  public synchronized void latency(long nanos) {
+    if (nanos < 0) {
+      return;
+    }
+    if (nanos < this.baselineLatency) {
+      this.baselineLatency = nanos;
+    } else {
+      this.baselineLatency += (nanos - this.baselineLatency) >> BASELINE_DRIFT_SHIFT;
+    }
+    this.smoothedLatency = (0 == this.smoothedLatency) ? nanos : this.smoothedLatency + ((nanos - this.smoothedLatency) >> SMOOTHING_SHIFT);
+    this.samples += 1;
+
+    if (this.smoothedLatency > this.baselineLatency * CONGESTION_FACTOR) {
+      decrease(LATENCY_DECREASE);
+    } else if (this.inFlight * 2 >= windowSize()) {
+      // Only grow while the window is actually in use, otherwise a quiet client would grow it without bound.
+      int before = windowSize();
+      this.window = Math.min(this.maximum, this.window + 1.0 / this.window);
+      if (windowSize() > before) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * The server turned a request away as busy.
+   */
+  public synchronized void busy() {
+    this.samples += 1;
+    decrease(BUSY_DECREASE);
+  }
+
+  private void decrease(double factor) {
+    if (this.samples - this.lastDecrease >= windowSize()) {
+      this.window = Math.max(this.minimum, this.window * factor);
+      this.lastDecrease = this.samples;
+    }
+  }
+
+  public synchronized int windowSize() {
+    return (int) this.window;
+  }
+
+  public synchronized int inFlight() {
+    return this.inFlight;
+  }
+
+  /**
+   * @return The number of times a sender had to wait for room in the window.
+   */
+  public synchronized long getStallCount() {
+    return this.stallCount;
+  }
+
+  /**
+   * @return The total time senders have spent waiting for room in the window, in milliseconds.
+   */
+  public synchronized long getStallTime() {
+    return TimeUnit.NANOSECONDS.toMillis(this.stallTime);
+  }
+
+  public synchronized long getSmoothedLatency() {
+    return TimeUnit.NANOSECONDS.toMicros(this.smoothedLatency);
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "RequestWindow{window=" + windowSize() + " [" + this.minimum + ", " + this.maximum + "], inFlight=" + this.inFlight
+        + ", latency=" + getSmoothedLatency() + "us, stalls=" + this.stallCount + ", stallTime=" + getStallTime() + "ms}";
+  }
+}
@@ -21,6 +21,8 @@ package com.tc.object.request;
 
 import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.EventHandlerException;
+import com.tc.async.api.Sink;
+import com.tc.entity.CoalescedServerEntityMessage;
 import com.tc.entity.VoltronEntityMultiResponse;
 import com.tc.object.tx.TransactionID;
 import java.util.Map;
@@ -28,9 +30,15 @@ import java.util.Map;
 
 public class MultiRequestReceiveHandler extends AbstractEventHandler<VoltronEntityMultiResponse> {
   private final RequestResponseHandler handler;
+  private final Sink<Object> serverMessageSink;
 
-  public MultiRequestReceiveHandler(RequestResponseHandler handler) {
+  /**
+   * @param serverMessageSink Where server-initiated entity messages packed into a response are forwarded, so that an
+   * entity handling one can still wait on its own requests, which are completed here.
+   */
+  public MultiRequestReceiveHandler(RequestResponseHandler handler, Sink<Object> serverMessageSink) {
     this.handler = handler;
+    this.serverMessageSink = serverMessageSink;
   }
 
   @Override
@@ -50,5 +58,8 @@ public class MultiRequestReceiveHandler extends AbstractEventHandler<VoltronEnti
     for (TransactionID retires : response.getRetiredTransactions()) {
       handler.retired(retires);
     }
+    for (CoalescedServerEntityMessage message : response.getServerEntityMessages()) {
+      serverMessageSink.addSingleThreaded(message);
+    }
   }
 }
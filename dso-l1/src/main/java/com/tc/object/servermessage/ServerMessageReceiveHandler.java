@@ -22,6 +22,7 @@ package com.tc.object.servermessage;
 import com.tc.async.api.AbstractEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandlerException;
+import com.tc.entity.CoalescedServerEntityMessage;
 import com.tc.entity.ServerEntityMessage;
 import com.tc.entity.ServerEntityResponseMessage;
 import com.tc.net.protocol.tcm.ClientMessageChannel;
@@ -42,10 +43,18 @@ public class ServerMessageReceiveHandler<EC> extends AbstractEventHandler<EC> {
 
   @Override
   public void handleEvent(EC context) throws EventHandlerException {
-    ServerEntityMessage message = (ServerEntityMessage) context;
-    EntityDescriptor entityDescriptor = message.getEntityDescriptor();
-    clientEntityManager.handleMessage(entityDescriptor, message.getMessage());
-    Long responseId = message.getResponseId();
+    // Messages arrive either on their own or unpacked from a multi-response by the MultiRequestReceiveHandler.
+    if (context instanceof CoalescedServerEntityMessage) {
+      CoalescedServerEntityMessage message = (CoalescedServerEntityMessage) context;
+      deliver(message.getEntityDescriptor(), message.getMessage(), message.getResponseId());
+    } else {
+      ServerEntityMessage message = (ServerEntityMessage) context;
+      deliver(message.getEntityDescriptor(), message.getMessage(), message.getResponseId());
+    }
+  }
+
+  private void deliver(EntityDescriptor entityDescriptor, byte[] payload, Long responseId) {
+    clientEntityManager.handleMessage(entityDescriptor, payload);
     if (responseId != null) {
       ServerEntityResponseMessage response = (ServerEntityResponseMessage) clientMessageChannel.createMessage(TCMessageType.SERVER_ENTITY_RESPONSE_MESSAGE);
       response.setResponseId(responseId);
@@ -0,0 +1,133 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.object;
+
+import com.tc.entity.NetworkVoltronEntityMessage;
+import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.VoltronEntityMultiMessage;
+import com.tc.logging.TCLogger;
+import com.tc.net.protocol.tcm.MessageChannel;
+import com.tc.net.protocol.tcm.TCMessageType;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class BatchingSenderTest extends TestCase {
+  private static final int PAYLOAD = 10;
+
+  private MessageChannel channel;
+  private VoltronEntityMultiMessage multi;
+
+  @Override
+  public void setUp() throws Exception {
+    this.channel = mock(MessageChannel.class);
+    this.multi = mock(VoltronEntityMultiMessage.class);
+    when(this.multi.addMessage(any(VoltronEntityMessage.class))).thenReturn(true);
+    when(this.multi.send()).thenReturn(true);
+    when(this.channel.createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_MESSAGE)).thenReturn(this.multi);
+  }
+
+  public void testUncontendedInvokeIsSentAlone() {
+    BatchingSender sender = new BatchingSender(this.channel, mock(TCLogger.class), 64 * 1024, 0);
+    InFlightMessage invoke = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    assertTrue(sender.send(invoke));
+    verify(invoke.getMessage()).send();
+    verify(this.channel, never()).createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_MESSAGE);
+  }
+
+  public void testDisabledSendsDirectly() {
+    BatchingSender sender = new BatchingSender(this.channel, mock(TCLogger.class), 0, TimeUnit.SECONDS.toMicros(10));
+    InFlightMessage invoke = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    assertTrue(sender.send(invoke));
+    verify(invoke.getMessage()).send();
+  }
+
+  public void testConcurrentInvokesShareOneMessage() throws Exception {
+    // Linger for much longer than the test so only filling the byte budget can release the batch.
+    final BatchingSender sender = new BatchingSender(this.channel, mock(TCLogger.class), 2 * (64 + PAYLOAD), TimeUnit.SECONDS.toMicros(60));
+    final InFlightMessage first = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    final InFlightMessage second = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    Thread one = new Thread() {
+      @Override
+      public void run() {
+        sender.send(first);
+      }
+    };
+    Thread two = new Thread() {
+      @Override
+      public void run() {
+        sender.send(second);
+      }
+    };
+    one.start();
+    two.start();
+    one.join();
+    two.join();
+
+    verify(this.multi).addMessage(first.getMessage());
+    verify(this.multi).addMessage(second.getMessage());
+    verify(this.multi).send();
+    verify(first.getMessage(), never()).send();
+    verify(second.getMessage(), never()).send();
+  }
+
+  public void testEveryPackedCallerSeesAFailedSend() throws Exception {
+    when(this.multi.send()).thenReturn(false);
+    final BatchingSender sender = new BatchingSender(this.channel, mock(TCLogger.class), 2 * (64 + PAYLOAD), TimeUnit.SECONDS.toMicros(60));
+    final InFlightMessage first = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    final InFlightMessage second = message(VoltronEntityMessage.Type.INVOKE_ACTION);
+    final boolean[] results = new boolean[] {true, true};
+    Thread one = new Thread() {
+      @Override
+      public void run() {
+        results[0] = sender.send(first);
+      }
+    };
+    Thread two = new Thread() {
+      @Override
+      public void run() {
+        results[1] = sender.send(second);
+      }
+    };
+    one.start();
+    two.start();
+    one.join();
+    two.join();
+
+    verify(this.multi).send();
+    assertFalse(results[0]);
+    assertFalse(results[1]);
+  }
+
+  private static InFlightMessage message(VoltronEntityMessage.Type type) {
+    NetworkVoltronEntityMessage message = mock(NetworkVoltronEntityMessage.class);
+    when(message.getVoltronType()).thenReturn(type);
+    when(message.getExtendedData()).thenReturn(new byte[PAYLOAD]);
+    when(message.send()).thenReturn(true);
+    return new InFlightMessage(message, Collections.<VoltronEntityMessage.Acks>emptySet(), false);
+  }
+}
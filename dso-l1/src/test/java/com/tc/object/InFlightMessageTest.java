@@ -23,8 +23,14 @@ import org.terracotta.exception.EntityException;
 import com.tc.entity.NetworkVoltronEntityMessage;
 import com.tc.entity.VoltronEntityMessage.Acks;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import junit.framework.TestCase;
 import static org.mockito.Mockito.mock;
@@ -59,6 +65,63 @@ public class InFlightMessageTest extends TestCase {
     assertTrue(thread.didInterrupt);
   }
 
+  public void testAckCallbacks() throws Exception {
+    NetworkVoltronEntityMessage mockedEntityMessage = mock(NetworkVoltronEntityMessage.class);
+    InFlightMessage message = new InFlightMessage(mockedEntityMessage, EnumSet.of(Acks.RECEIVED), false);
+    List<Acks> fired = new ArrayList<Acks>();
+    message.whenAcked(Acks.RECEIVED, () -> fired.add(Acks.RECEIVED));
+    message.whenAcked(Acks.APPLIED, () -> fired.add(Acks.APPLIED));
+    message.sent();
+    message.received();
+    // A duplicate ack mustn't fire the callback again.
+    message.received();
+    assertEquals(Collections.singletonList(Acks.RECEIVED), fired);
+    message.setResult(new byte[] { 1 }, null);
+    assertEquals(Arrays.asList(Acks.RECEIVED, Acks.APPLIED), fired);
+    // Acks which already arrived run the callback immediately.
+    message.whenAcked(Acks.SENT, () -> fired.add(Acks.SENT));
+    assertEquals(Arrays.asList(Acks.RECEIVED, Acks.APPLIED, Acks.SENT), fired);
+  }
+
+  public void testCompletionStageWaitsForRetire() throws Exception {
+    NetworkVoltronEntityMessage mockedEntityMessage = mock(NetworkVoltronEntityMessage.class);
+    boolean shouldBlockGetOnRetire = true;
+    InFlightMessage message = new InFlightMessage(mockedEntityMessage, Collections.<Acks>emptySet(), shouldBlockGetOnRetire);
+    CompletableFuture<byte[]> stage = message.toCompletionStage().toCompletableFuture();
+    message.setResult(new byte[] { 1 }, null);
+    assertFalse(stage.isDone());
+    message.retired();
+    assertTrue(Arrays.equals(new byte[] { 1 }, stage.get()));
+  }
+
+  public void testCompletionStageFailure() throws Exception {
+    NetworkVoltronEntityMessage mockedEntityMessage = mock(NetworkVoltronEntityMessage.class);
+    InFlightMessage message = new InFlightMessage(mockedEntityMessage, Collections.<Acks>emptySet(), false);
+    EntityException error = new EntityException("class", "name", "failed", null) {};
+    message.setResult(null, error);
+    // The stage is created after the result arrived so it must be completed right away.
+    CompletableFuture<byte[]> stage = message.toCompletionStage().toCompletableFuture();
+    try {
+      stage.get();
+      fail();
+    } catch (ExecutionException e) {
+      assertSame(error, e.getCause());
+    }
+  }
+
+  public void testThrowingCallbackStillCompletesStage() throws Exception {
+    NetworkVoltronEntityMessage mockedEntityMessage = mock(NetworkVoltronEntityMessage.class);
+    InFlightMessage message = new InFlightMessage(mockedEntityMessage, Collections.<Acks>emptySet(), false);
+    CompletableFuture<byte[]> stage = message.toCompletionStage().toCompletableFuture();
+    List<Acks> fired = new ArrayList<Acks>();
+    message.whenAcked(Acks.APPLIED, () -> { throw new IllegalStateException("bad callback"); });
+    message.whenAcked(Acks.APPLIED, () -> fired.add(Acks.APPLIED));
+    // The failing callback mustn't escape into the caller, stop the next callback or leave the stage incomplete.
+    message.setResult(new byte[] { 1 }, null);
+    assertEquals(Collections.singletonList(Acks.APPLIED), fired);
+    assertTrue(Arrays.equals(new byte[] { 1 }, stage.get()));
+  }
+
   /**
    * This thread just calls get() on the given message and records whether or not it was interrupted.
    */
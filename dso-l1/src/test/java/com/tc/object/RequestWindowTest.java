@@ -0,0 +1,122 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.object;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+
+public class RequestWindowTest extends TestCase {
+  private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+
+  public void testInitialSizeIsClampedToBounds() {
+    assertEquals(16, new RequestWindow(4, 16, 64).windowSize());
+    assertEquals(64, new RequestWindow(200, 16, 64).windowSize());
+    assertEquals(32, new RequestWindow(32, 16, 64).windowSize());
+  }
+
+  public void testGrowsWhileLatencyIsSteadyAndFull() throws Exception {
+    RequestWindow window = new RequestWindow(16, 4, 64);
+    fill(window);
+    // About one window's worth of steady responses grows the window by one.
+    for (int i = 0; i < 17; ++i) {
+      window.latency(FAST);
+    }
+    assertEquals(17, window.windowSize());
+    for (int i = 0; i < 10000; ++i) {
+      fill(window);
+      window.latency(FAST);
+    }
+    assertEquals(64, window.windowSize());
+  }
+
+  public void testDoesNotGrowWhenIdle() {
+    RequestWindow window = new RequestWindow(16, 4, 64);
+    for (int i = 0; i < 1000; ++i) {
+      window.latency(FAST);
+    }
+    assertEquals(16, window.windowSize());
+  }
+
+  public void testShrinksOncePerWindowOnInflatedLatency() throws Exception {
+    RequestWindow window = new RequestWindow(64, 4, 64);
+    fill(window);
+    window.latency(FAST);
+    // A burst of slow responses only costs one cut until a window's worth of responses has come back.
+    for (int i = 0; i < 10; ++i) {
+      window.latency(SLOW);
+    }
+    assertEquals(48, window.windowSize());
+    for (int i = 0; i < 100; ++i) {
+      window.latency(SLOW);
+    }
+    assertTrue(window.windowSize() < 48);
+  }
+
+  public void testNeverShrinksBelowMinimum() {
+    RequestWindow window = new RequestWindow(64, 4, 64);
+    for (int i = 0; i < 1000; ++i) {
+      window.busy();
+    }
+    assertEquals(4, window.windowSize());
+  }
+
+  public void testBusyHalvesTheWindow() {
+    RequestWindow window = new RequestWindow(64, 4, 64);
+    window.busy();
+    assertEquals(32, window.windowSize());
+    // The next busy response within the same round trip doesn't cut again.
+    window.busy();
+    assertEquals(32, window.windowSize());
+  }
+
+  public void testAcquireStallsUntilRelease() throws Exception {
+    final RequestWindow window = new RequestWindow(4, 4, 4);
+    fill(window);
+    final CountDownLatch acquired = new CountDownLatch(1);
+    Thread sender = new Thread() {
+      @Override
+      public void run() {
+        try {
+          window.acquire();
+          acquired.countDown();
+        } catch (InterruptedException e) {
+          // the test will fail on the latch
+        }
+      }
+    };
+    sender.start();
+    assertFalse(acquired.await(100, TimeUnit.MILLISECONDS));
+    window.release();
+    assertTrue(acquired.await(10, TimeUnit.SECONDS));
+    sender.join();
+    assertEquals(4, window.inFlight());
+    assertEquals(1, window.getStallCount());
+    assertTrue(window.getStallTime() > 0);
+  }
+
+  private static void fill(RequestWindow window) throws InterruptedException {
+    while (window.inFlight() < window.windowSize()) {
+      window.acquire();
+    }
+  }
+}
@@ -25,27 +25,42 @@ import java.net.URLClassLoader;
  * @author vmad
  */
 public class ApiClassLoader extends URLClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final PluginIndex pluginIndex = new PluginIndex();
+
     public ApiClassLoader(URL[] urls, ClassLoader parent) {
         super(urls, parent);
     }
 
+    /**
+     * @return The implementations already discovered through this loader.
+     */
+    PluginIndex getPluginIndex() {
+        return pluginIndex;
+    }
+
     @Override
     protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-      Class<?> clazz = findLoadedClass(name);
-      if(clazz == null) {
-          // try to find the class using given jars first,
-          // if not found, try loading using parent classloader.
-          try {
-              clazz = findClass(name);
-          } catch (ClassNotFoundException ignore) {
-              clazz = super.loadClass(name, resolve);
-          }
-      }
+      synchronized (getClassLoadingLock(name)) {
+        Class<?> clazz = findLoadedClass(name);
+        if(clazz == null) {
+            // try to find the class using given jars first,
+            // if not found, try loading using parent classloader.
+            try {
+                clazz = findClass(name);
+            } catch (ClassNotFoundException ignore) {
+                clazz = super.loadClass(name, resolve);
+            }
+        }
 
-      if(clazz != null && resolve) {
-          resolveClass(clazz);
-      }
+        if(clazz != null && resolve) {
+            resolveClass(clazz);
+        }
 
-      return clazz;
+        return clazz;
+      }
     }
 }
@@ -25,6 +25,9 @@ import java.net.URLClassLoader;
  *
  */
 public class ComponentURLClassLoader extends URLClassLoader {
+  static {
+    registerAsParallelCapable();
+  }
 
   private final CommonComponentChecker commonComponentChecker;
 
@@ -34,29 +37,32 @@ public class ComponentURLClassLoader extends URLClassLoader {
   }
 
   @Override
-  protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
-    Class<?> target = findLoadedClass(name);
+  protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+    // Parallel capable so only loads of the same class name contend.
+    synchronized (getClassLoadingLock(name)) {
+      Class<?> target = findLoadedClass(name);
 //  if it's already loaded in this loader, return it, decision has already been made about where 
 //  to load in previous iteration
-    if (target == null) {
-      target = super.loadClass(name, resolve);
+      if (target == null) {
+        target = super.loadClass(name, resolve);
 // if the class is not found, ClassNotFoundException will be thrown and that is fine, class is nowhere
-      if (!commonComponentChecker.check(target)) {
+        if (target.getClassLoader() != this && !commonComponentChecker.check(target)) {
 //  not a common class as designated by annotation, see if the class is in this specific class loader for preference if it is
-        try {
-          target = findClass(name);
-        } catch (ClassNotFoundException notfound) {
+          try {
+            target = findClass(name);
+          } catch (ClassNotFoundException notfound) {
 //  it's not here in this loader, revert back to the common (already set)
+          }
+        } else {
+    //  this is a designated common component, return it no matter where it came from 
+    //  (default implementation always uses the parent classloader if the class is available there)
         }
-      } else {
-  //  this is a designated common component, return it no matter where it came from 
-  //  (default implementation always uses the parent classloader if the class is available there)
       }
-    }
     
-    if (resolve) {
-      this.resolveClass(target);
+      if (resolve) {
+        this.resolveClass(target);
+      }
+      return target;
     }
-    return target;
   }
 }
@@ -0,0 +1,134 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.classloader;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * The service implementations discovered through one {@link ApiClassLoader}, indexed by service interface name.
+ * <p>
+ * Discovery scans the META-INF/services entries of every plugin jar and defines each implementation in its own
+ * {@link ComponentURLClassLoader} so doing it on every lookup is expensive.  The result is kept along with the size and
+ * modification time of each jar (or services file, for a plugin directory) it came from and reused for as long as none
+ * of those change.
+ */
+class PluginIndex {
+  private final Map<String, Entry> services = new ConcurrentHashMap<>();
+
+  /**
+   * @param interfaceName The service interface.
+   * @param discovery Discovers the implementations, as implementation name to location, if they are not indexed.
+   * @param definer Defines the classes for the discovered implementations.
+   * @return The implementation classes for the service.
+   */
+  List<Class<?>> getImplementations(String interfaceName, Supplier<Map<String, String>> discovery,
+                                    ImplementationDefiner definer) {
+    Entry entry = this.services.get(interfaceName);
+    if (null != entry && entry.isCurrent()) {
+      return entry.implementations;
+    }
+    Map<String, String> locations = discovery.get();
+    if (null == locations || locations.isEmpty()) {
+      // Nothing to remember:  a plugin could still provide it later.
+      this.services.remove(interfaceName);
+      return new ArrayList<>();
+    }
+    List<Class<?>> implementations = Collections.unmodifiableList(definer.define(locations));
+    List<Fingerprint> sources = new ArrayList<>();
+    for (String location : locations.values()) {
+      Fingerprint source = Fingerprint.of(location, interfaceName);
+      if (null == source) {
+        // Not something we can check for changes so don't index it.
+        return implementations;
+      }
+      sources.add(source);
+    }
+    this.services.put(interfaceName, new Entry(implementations, sources));
+    return implementations;
+  }
+
+  interface ImplementationDefiner {
+    List<Class<?>> define(Map<String, String> locations);
+  }
+
+  private static class Entry {
+    private final List<Class<?>> implementations;
+    private final List<Fingerprint> sources;
+
+    Entry(List<Class<?>> implementations, List<Fingerprint> sources) {
+      this.implementations = implementations;
+      this.sources = sources;
+    }
+
+    boolean isCurrent() {
+      for (Fingerprint source : this.sources) {
+        if (!source.isCurrent()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class Fingerprint {
+    private final File file;
+    private final long lastModified;
+    private final long length;
+
+    private Fingerprint(File file) {
+      this.file = file;
+      this.lastModified = file.lastModified();
+      this.length = file.length();
+    }
+
+    boolean isCurrent() {
+      return this.file.lastModified() == this.lastModified && this.file.length() == this.length;
+    }
+
+    /**
+     * @param location The jar or directory an implementation was discovered in, as given by
+     * {@link ServiceLocator#discoverImplementations(ClassLoader, String)}.
+     * @return The fingerprint of the jar, or of the services file within the directory, or null if it isn't a file.
+     */
+    static Fingerprint of(String location, String interfaceName) {
+      try {
+        URL url = new URL(location);
+        if (!"file".equals(url.getProtocol())) {
+          return null;
+        }
+        File file = new File(url.toURI());
+        if (file.isDirectory()) {
+          file = new File(file, "META-INF/services/" + interfaceName);
+        }
+        return file.exists() ? new Fingerprint(file) : null;
+      } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+        return null;
+      }
+    }
+  }
+}
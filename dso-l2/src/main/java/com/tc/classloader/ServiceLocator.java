@@ -28,6 +28,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 /**
@@ -136,27 +137,32 @@ public class ServiceLocator {
     if(LOG.isDebugEnabled()) {
       LOG.debug("Discovering " + interfaceName + " with parent classloader " + parent.getClass().getName());
     }
-    ClassLoader apiLoader = getApiClassLoader(parent);
-    Map<String, String> urls = discoverImplementations(apiLoader, interfaceName);
-    ArrayList<Class<?>> implementations = new ArrayList<Class<?>>();
-    if (null == urls || urls.isEmpty()) {
-      if(LOG.isDebugEnabled()) {
-        LOG.debug("No implementations found for " + interfaceName);
-      }
-      return implementations;
+    ApiClassLoader apiLoader = getApiClassLoader(parent);
+    List<Class<?>> implementations = apiLoader.getPluginIndex().getImplementations(interfaceName,
+        () -> discoverImplementations(apiLoader, interfaceName),
+        urls -> defineImplementations(urls, apiLoader));
+    if (implementations.isEmpty() && LOG.isDebugEnabled()) {
+      LOG.debug("No implementations found for " + interfaceName);
     }
-    for (Map.Entry<String, String> entry : urls.entrySet()) {
+    return implementations;
+  }
+
+  /**
+   * Defines each implementation in its own isolated classloader.  The loaders are parallel capable and independent of
+   * each other so the implementations are defined concurrently.
+   */
+  private static List<Class<?>> defineImplementations(Map<String, String> urls, ApiClassLoader apiLoader) {
+    return urls.entrySet().parallelStream().map(entry -> {
       try {
-        ComponentURLClassLoader loader = new ComponentURLClassLoader(new URL[] {new URL(entry.getValue())}, getApiClassLoader(parent), new AnnotationOrDirectoryStrategyChecker());
-        implementations.add(Class.forName(entry.getKey(), false, loader));
+        ComponentURLClassLoader loader = new ComponentURLClassLoader(new URL[] {new URL(entry.getValue())}, apiLoader, new AnnotationOrDirectoryStrategyChecker());
+        return Class.forName(entry.getKey(), false, loader);
       } catch (MalformedURLException e) {
         throw new RuntimeException(e);
       } catch (ClassNotFoundException e) {
 // this should not happen.  discoverImplementations says it should be there
         throw new RuntimeException(e);
       }
-    }
-    return implementations;
+    }).collect(Collectors.toCollection(ArrayList<Class<?>>::new));
   }
   
   private static final Map<ClassLoader, ApiClassLoader> API_LOADERS = new HashMap<ClassLoader, ApiClassLoader>();
@@ -35,4 +35,9 @@ public interface ElectionManager {
   public void reset(Enrollment winner);
 
   public long getElectionTime();
+
+  /**
+   * @return How long, in milliseconds, the most recent election spent waiting for votes or -1 if none has run.
+   */
+  public long getLastElectionDuration();
 }
@@ -31,6 +31,8 @@ import com.tc.net.groups.GroupEventsListener;
 import com.tc.net.groups.GroupException;
 import com.tc.net.groups.GroupManager;
 import com.tc.net.groups.GroupResponse;
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.Assert;
 import com.tc.util.State;
 
@@ -38,6 +40,13 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Runs the election between the servers of a stripe.
+ * <p>
+ * The election is over once the votes are in, rather than always waiting out the whole election time:  when every
+ * expected server has voted or when an explicitly configured quorum of votes is reached.  Otherwise the whole election
+ * time is waited out so that a peer which is still connecting gets its vote in.
+ */
 public class ElectionManagerImpl implements ElectionManager {
 
   private static final TCLogger logger               = TCLogging.getLogger(ElectionManagerImpl.class);
@@ -59,11 +68,22 @@ public class ElectionManagerImpl implements ElectionManager {
 
   private final long            electionTime;
   private final int             expectedServers;
+  private final int             quorum;
+  private long                  lastElectionDuration = -1;
 
   public ElectionManagerImpl(GroupManager groupManager, int expectedServers, int electionTimeInSec) {
+    this(groupManager, expectedServers, electionTimeInSec,
+         TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.L2_NHA_ELECTION_QUORUM, 0));
+  }
+
+  /**
+   * @param quorum The number of votes, including our own, which ends the election.  0 or less means all expected servers.
+   */
+  ElectionManagerImpl(GroupManager groupManager, int expectedServers, int electionTimeInSec, int quorum) {
     this.groupManager = groupManager;
     this.electionTime = electionTimeInSec * 1000;
     this.expectedServers = expectedServers;
+    this.quorum = (quorum > 0) ? Math.min(quorum, expectedServers) : expectedServers;
     this.groupManager.registerForGroupEvents(new GroupEventsListener() {
       @Override
       public void nodeJoined(NodeID nodeID) {
@@ -92,10 +112,7 @@ public class ElectionManagerImpl implements ElectionManager {
     if (state == ELECTION_IN_PROGRESS) {
       Enrollment vote = msg.getEnrollment();
       Enrollment old = votes.put(vote.getNodeID(), vote);
-      if (votes.size() == expectedServers) {
-        this.state = ELECTION_VOTED;
-        notify();
-      }
+      checkVotesAreIn();
       if (myVote.isANewCandidate() || !msg.getEnrollment().isANewCandidate()) {
         // Another node is also joining in the election process, Cast its vote and notify my vote
         // Note : WE dont want to do this for new candidates when we are not new.
@@ -213,6 +230,17 @@ public class ElectionManagerImpl implements ElectionManager {
     return winnerID;
   }
   
+  private void checkVotesAreIn() {
+    if (state == ELECTION_IN_PROGRESS && votesAreIn()) {
+      this.state = ELECTION_VOTED;
+      notifyAll();
+    }
+  }
+
+  private boolean votesAreIn() {
+    return votes.size() >= quorum;
+  }
+
   private synchronized void sendToNewMember(NodeID node) {
     if (state == ELECTION_IN_PROGRESS) {
       L2StateMessage msg = L2StateMessage.createElectionStartedMessage(this.myVote, this.serverState);
@@ -236,6 +264,7 @@ public class ElectionManagerImpl implements ElectionManager {
     this.votes.clear();
     this.votes.put(e.getNodeID(), e); // Cast my vote
     logger.info("Election Started : " + e);
+    checkVotesAreIn();
   }
 
   private NodeID doElection(NodeID myNodeId, boolean isNew, WeightGeneratorFactory weightsFactory, State currentState)
@@ -250,9 +279,15 @@ public class ElectionManagerImpl implements ElectionManager {
     groupManager.sendAll(msg);
 
     // Step 2: Wait for election completion
+    long start = System.nanoTime();
     long waited = waitTillElectionComplete();
-    Assert.assertTrue(waited <= 0 || this.state == ELECTION_VOTED || this.state == INIT);
-    logger.info("Election took " + TimeUnit.MILLISECONDS.toSeconds(electionTime - waited) + " sec. ending in " + this.state);
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    synchronized (this) {
+      Assert.assertTrue(waited <= 0 || this.state == ELECTION_VOTED || this.state == INIT);
+      this.lastElectionDuration = elapsed;
+      logger.info("Election took " + elapsed + " ms of " + electionTime + " ms with " + votes.size() + " of "
+                  + expectedServers + " votes, ending in " + this.state);
+    }
     // Step 3: Compute Winner
     Enrollment lWinner = computeResult();
     if (lWinner != e) {
@@ -320,6 +355,11 @@ public class ElectionManagerImpl implements ElectionManager {
     return electionTime;
   }
 
+  @Override
+  public synchronized long getLastElectionDuration() {
+    return lastElectionDuration;
+  }
+
   private static void debugInfo(String message) {
     logger.debug(message);
   }
@@ -58,6 +58,8 @@ public interface GroupManager<M extends GroupMessage> extends PrettyPrintable {
 
   public boolean isNodeConnected(NodeID sid);
 
+  public boolean isBatchedReplicationSupported(NodeID sid);
+
   public boolean isServerConnected(String nodeName);
 
   public void closeMember(ServerID serverID);
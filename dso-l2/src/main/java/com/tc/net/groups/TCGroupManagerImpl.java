@@ -209,6 +209,12 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
     return (m != null) && m.getChannel().isOpen();
   }
 
+  @Override
+  public boolean isBatchedReplicationSupported(NodeID sid) {
+    TCGroupMember m = members.get(sid);
+    return (m != null) && m.isBatchedReplicationSupported();
+  }
+
   /*
    * for testing purpose only. Tester needs to do setDiscover().
    */
@@ -1037,6 +1043,8 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
 
     private HandshakeState           current;
     private ServerID                 peerNodeID;
+    private int                      peerMessageTypesVersion = GroupMessageRegistry.UNREGISTERED;
+    private boolean                  peerBatchesReplication;
     private TimerTask                timerTask;
     private TCGroupMember            member;
     private boolean                  stateTransitionInProgress;
@@ -1237,6 +1245,8 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
 
       void setPeerNodeID(TCGroupHandshakeMessage msg) {
         peerNodeID = msg.getNodeID();
+        peerMessageTypesVersion = msg.getMessageTypesVersion();
+        peerBatchesReplication = msg.isBatchedReplicationSupported();
         manager.receivedNodeID(channel, peerNodeID);
       }
 
@@ -1318,7 +1328,7 @@ public class TCGroupManagerImpl implements GroupManager<AbstractGroupMessage>, C
       private void createMember() {
         Assert.assertNotNull(localNodeID);
         Assert.assertNotNull(peerNodeID);
-        member = new TCGroupMemberImpl(localNodeID, peerNodeID, channel);
+        member = new TCGroupMemberImpl(localNodeID, peerNodeID, channel, peerMessageTypesVersion, peerBatchesReplication);
       }
 
       private void signalToJoin(boolean ok) {
@@ -29,6 +29,8 @@ public interface TCGroupMember {
 
   public MessageChannel getChannel();
 
+  public boolean isBatchedReplicationSupported();
+
   public void send(AbstractGroupMessage msg, Runnable sentCallback) throws GroupException;
   
   public void sendIgnoreNotReady(AbstractGroupMessage msg);
@@ -44,8 +44,15 @@ public class TCGroupMemberImpl implements TCGroupMember, ChannelEventListener {
   private final AtomicBoolean   ready        = new AtomicBoolean(false);
   private final AtomicBoolean   joined       = new AtomicBoolean(false);
   private volatile boolean      memberAdding = false;
-
-  public TCGroupMemberImpl(ServerID localNodeID, ServerID peerNodeID, MessageChannel channel) {
+  // the peer shares our group message type table
+  private final boolean         sendTypeIDs;
+  // the peer unpacks BATCH replication messages
+  private final boolean         batchedReplication;
+
+  public TCGroupMemberImpl(ServerID localNodeID, ServerID peerNodeID, MessageChannel channel, int peerMessageTypesVersion,
+                           boolean peerBatchesReplication) {
+    this.sendTypeIDs = GroupMessageRegistry.isCompatible(peerMessageTypesVersion);
+    this.batchedReplication = peerBatchesReplication;
     this.channel = channel;
     this.localNodeID = localNodeID;
     this.peerNodeID = peerNodeID;
@@ -57,6 +64,11 @@ public class TCGroupMemberImpl implements TCGroupMember, ChannelEventListener {
     return channel;
   }
 
+  @Override
+  public boolean isBatchedReplicationSupported() {
+    return batchedReplication;
+  }
+
   /*
    * Use a wrapper to send old tribes GroupMessage out through channel's TCMessage
    */
@@ -80,7 +92,7 @@ public class TCGroupMemberImpl implements TCGroupMember, ChannelEventListener {
 
   private void sendMessage(AbstractGroupMessage msg, Runnable sentCallback) {
     TCGroupMessageWrapper wrapper = (TCGroupMessageWrapper) channel.createMessage(TCMessageType.GROUP_WRAPPER_MESSAGE);
-    wrapper.setGroupMessage(msg);
+    wrapper.setGroupMessage(msg, sendTypeIDs);
     if (null != sentCallback) {
       wrapper.setSentCallback(sentCallback);
     }
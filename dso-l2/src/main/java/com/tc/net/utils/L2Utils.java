@@ -18,7 +18,6 @@
  */
 package com.tc.net.utils;
 
-import com.tc.bytes.TCByteBufferFactory;
 import com.tc.properties.TCPropertiesConsts;
 import com.tc.properties.TCPropertiesImpl;
 import com.tc.util.Assert;
@@ -111,15 +110,13 @@ public class L2Utils {
     final int totalCommsThreads = getOptimalCommWorkerThreads() * 2;
     final boolean poolingEnabled = TCPropertiesImpl.getProperties()
         .getBoolean(TCPropertiesConsts.TC_BYTEBUFFER_POOLING_ENABLED);
-    final int directMemoryCommonPool = (TCPropertiesImpl.getProperties()
-        .getInt(TCPropertiesConsts.TC_BYTEBUFFER_COMMON_POOL_MAXCOUNT, 3000));
-    final int directMemoryThreadLocalPool = TCPropertiesImpl.getProperties()
-        .getInt(TCPropertiesConsts.TC_BYTEBUFFER_THREADLOCAL_POOL_MAXCOUNT, 2000);
+    final long directMemoryPool = TCPropertiesImpl.getProperties()
+        .getLong(TCPropertiesConsts.TC_BYTEBUFFER_POOL_MAXBYTES, 64L * 1024 * 1024);
 
     long totalDirectMemeoryNeeded;
     if (poolingEnabled) {
-      totalDirectMemeoryNeeded = (totalCommsThreads * directMemoryThreadLocalPool * TCByteBufferFactory.FIXED_BUFFER_SIZE)
-                                 + (directMemoryCommonPool * TCByteBufferFactory.FIXED_BUFFER_SIZE);
+      // the pool bound covers every thread's magazines as well as the depot
+      totalDirectMemeoryNeeded = directMemoryPool;
     } else {
       int maxPossbileMessageBytesSend = (TCPropertiesImpl.getProperties()
           .getBoolean(TCPropertiesConsts.TC_MESSAGE_GROUPING_ENABLED) ? TCPropertiesImpl.getProperties()
@@ -0,0 +1,37 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.objectserver.api;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.net.ClientID;
+import com.tc.object.EntityDescriptor;
+
+/**
+ * Packs server-initiated entity messages for a client into the same multi-message frame as that client's acks and
+ * responses, instead of sending each one as its own message.
+ */
+public interface ServerEntityMessageCoalescer {
+  /**
+   * @param responseId The ID the client must acknowledge receipt with, or null if no acknowledgement is wanted
+   * @return Null if the message could not be queued, in which case the caller must send it on its own.  Otherwise the
+   * flush which hands the frame carrying the message on to be sent.  It can block, so run it outside any lock, and run
+   * the flushes for a client in the order they were returned.
+   */
+  Runnable addServerEntityMessage(ClientID target, EntityDescriptor descriptor, TCByteBuffer[] payload, Long responseId);
+}
@@ -22,10 +22,12 @@ import com.tc.exception.TCServerRestartException;
 import com.tc.l2.msg.ReplicationResultCode;
 import com.tc.net.NodeID;
 import com.tc.util.Assert;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -41,6 +43,7 @@ public class ActivePassiveAckWaiter {
   private final Set<NodeID> completedPending;
   private final Map<NodeID, ReplicationResultCode> results;
   private final PassiveReplicationBroker parent;
+  private List<Runnable> receivedListeners;
 
   public ActivePassiveAckWaiter(Set<NodeID> allPassiveNodes, PassiveReplicationBroker parent) {
     this.start =  Collections.unmodifiableSet(allPassiveNodes);
@@ -61,6 +64,28 @@ public class ActivePassiveAckWaiter {
     }
   }
 
+  /**
+   * Runs the given callback once every passive has either RECEIVED or COMPLETED the message.  If that is already the case,
+   * the callback is run immediately on the calling thread.  Otherwise, it is run on the thread delivering the final ack,
+   * outside of this waiter's monitor.
+   */
+  public void runWhenReceived(Runnable listener) {
+    synchronized (this) {
+      if (!this.receivedPending.isEmpty()) {
+        if (this.receivedListeners == null) {
+          this.receivedListeners = new ArrayList<>();
+        }
+        this.receivedListeners.add(listener);
+        return;
+      }
+    }
+    listener.run();
+  }
+
+  public synchronized boolean isReceived() {
+    return this.receivedPending.isEmpty();
+  }
+
   public synchronized void waitForCompleted() {
     try {
       while (!this.completedPending.isEmpty()) {
@@ -92,16 +117,21 @@ public class ActivePassiveAckWaiter {
     return this.completedPending.isEmpty();
   }
 
-  public synchronized void didReceiveOnPassive(NodeID onePassive) {
-    boolean didContain = this.receivedPending.remove(onePassive);
-    // We must have contained this passive in order to receive.
-    if (!didContain) {
-      Assert.assertTrue(onePassive + " " + toString(), this.receivedByComplete.contains(onePassive));
-    }    
-    // Wake everyone up if this changed something.
-    if (this.receivedPending.isEmpty()) {
-      notifyAll();
+  public void didReceiveOnPassive(NodeID onePassive) {
+    List<Runnable> listeners = null;
+    synchronized (this) {
+      boolean didContain = this.receivedPending.remove(onePassive);
+      // We must have contained this passive in order to receive.
+      if (!didContain) {
+        Assert.assertTrue(onePassive + " " + toString(), this.receivedByComplete.contains(onePassive));
+      }    
+      // Wake everyone up if this changed something.
+      if (this.receivedPending.isEmpty()) {
+        notifyAll();
+        listeners = takeReceivedListeners();
+      }
     }
+    runListeners(listeners);
   }
 
   /**
@@ -112,29 +142,51 @@ public class ActivePassiveAckWaiter {
    * @param payload
    * @return True if this was the last outstanding completion required and the waiter is now done.
    */
-  public synchronized boolean didCompleteOnPassive(NodeID onePassive, boolean isNormalComplete, ReplicationResultCode payload) {
-    // Note that we will try to remove from the received set, but usually it will already have been removed.
-    boolean didContainInReceived = this.receivedPending.remove(onePassive);
-    if (didContainInReceived) {
-      this.receivedByComplete.add(onePassive);
-    }
-    // We know that it must still be in the completed set, though.
-    boolean didContainInCompleted = this.completedPending.remove(onePassive);
-    // We must have contained this passive in order to complete.
-    if (isNormalComplete) {
-      // In the unexpected case, we are just making sure this node is removed from all waiters, even though it might have
-      // already completed on some of them.
-      Assert.assertTrue(onePassive + " " + toString(), didContainInCompleted);
-      this.results.put(onePassive, payload);
-    }
-    boolean isDoneWaiting = this.completedPending.isEmpty();
-    // Wake everyone up if this changed something.
-    if ((didContainInReceived && this.receivedPending.isEmpty()) || isDoneWaiting) {
-      notifyAll();
+  public boolean didCompleteOnPassive(NodeID onePassive, boolean isNormalComplete, ReplicationResultCode payload) {
+    List<Runnable> listeners = null;
+    boolean isDoneWaiting = false;
+    synchronized (this) {
+      // Note that we will try to remove from the received set, but usually it will already have been removed.
+      boolean didContainInReceived = this.receivedPending.remove(onePassive);
+      if (didContainInReceived) {
+        this.receivedByComplete.add(onePassive);
+      }
+      // We know that it must still be in the completed set, though.
+      boolean didContainInCompleted = this.completedPending.remove(onePassive);
+      // We must have contained this passive in order to complete.
+      if (isNormalComplete) {
+        // In the unexpected case, we are just making sure this node is removed from all waiters, even though it might have
+        // already completed on some of them.
+        Assert.assertTrue(onePassive + " " + toString(), didContainInCompleted);
+        this.results.put(onePassive, payload);
+      }
+      isDoneWaiting = this.completedPending.isEmpty();
+      // Wake everyone up if this changed something.
+      if ((didContainInReceived && this.receivedPending.isEmpty()) || isDoneWaiting) {
+        notifyAll();
+      }
+      if (this.receivedPending.isEmpty()) {
+        listeners = takeReceivedListeners();
+      }
     }
+    runListeners(listeners);
     return isDoneWaiting;
   }
 
+  private List<Runnable> takeReceivedListeners() {
+    List<Runnable> listeners = this.receivedListeners;
+    this.receivedListeners = null;
+    return listeners;
+  }
+
+  private static void runListeners(List<Runnable> listeners) {
+    if (listeners != null) {
+      for (Runnable r : listeners) {
+        r.run();
+      }
+    }
+  }
+
   @Override
   public String toString() {
     return "ActivePassiveAckWaiter{" + "start=" + start + ", receivedPending=" + receivedPending + ", receivedByComplete=" + receivedByComplete + ", completedPending=" + completedPending + ", results=" + results + '}';
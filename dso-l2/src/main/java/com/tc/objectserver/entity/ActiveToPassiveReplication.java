@@ -19,6 +19,8 @@
 package com.tc.objectserver.entity;
 
 import com.tc.async.api.Sink;
+import com.tc.bytes.TCByteBuffer;
+import com.tc.io.TCByteBufferOutputStream;
 import com.tc.l2.ha.L2HAZapNodeRequestProcessor;
 import com.tc.l2.msg.ReplicationEnvelope;
 import com.tc.l2.msg.ReplicationMessage;
@@ -35,9 +37,7 @@ import com.tc.objectserver.handler.ProcessTransactionHandler;
 import com.tc.objectserver.handler.ReplicationSender;
 import com.tc.objectserver.persistence.EntityPersistor;
 import com.tc.util.Assert;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.Collections;
 
 import java.util.HashSet;
@@ -162,16 +162,23 @@ public class ActiveToPassiveReplication implements PassiveReplicationBroker, Gro
   }
   
   private byte[] replicateEntityPersistor() {
-    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream(4096, 64 * 1024, false);
     try {
-      ObjectOutputStream data = new ObjectOutputStream(out);
-      persistor.serialize(data);
-      data.close();
-      return out.toByteArray();
+      persistor.serialize(out);
     } catch (IOException ioe) {
-      
+      throw new RuntimeException(ioe);
+    } finally {
+      out.close();
     }
-    return null;
+    // The stream is a chain of bounded blocks so copy them out once rather than growing a single array.
+    byte[] data = new byte[out.getBytesWritten()];
+    int offset = 0;
+    for (TCByteBuffer buffer : out.toArray()) {
+      int length = buffer.limit();
+      buffer.get(data, offset, length);
+      offset += length;
+    }
+    return data;
   }
 
   public void batchAckReceived(ReplicationMessageAck context) {
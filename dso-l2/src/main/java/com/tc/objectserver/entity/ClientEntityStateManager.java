@@ -23,6 +23,7 @@ import com.tc.net.ClientID;
 import com.tc.object.EntityDescriptor;
 import com.tc.object.EntityID;
 import java.util.List;
+import java.util.Set;
 
 
 /**
@@ -56,6 +57,18 @@ public interface ClientEntityStateManager {
    * @return true if there are no references
    */
   public boolean verifyNoReferences(EntityID entityDescriptor);
+
+  /**
+   * @param eid The entity.
+   * @return The number of references held on the entity, across all clients.
+   */
+  public int getReferenceCount(EntityID eid);
+
+  /**
+   * @param eid The entity.
+   * @return A snapshot of the clients which hold at least one reference to the entity.
+   */
+  public Set<ClientID> getReferencingClients(EntityID eid);
   
   public List<VoltronEntityMessage> clientDisconnected(ClientID clientID);
 }
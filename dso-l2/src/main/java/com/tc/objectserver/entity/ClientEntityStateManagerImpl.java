@@ -25,21 +25,25 @@ import com.tc.logging.TCLogging;
 import com.tc.net.ClientID;
 import com.tc.object.EntityDescriptor;
 import com.tc.object.EntityID;
-import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
-import org.terracotta.entity.EntityMessage;
 
 
+/**
+ * Keeps the references in two concurrent indices:  the descriptors held by each client and, for each entity, the
+ * number of references held by each client.  Adding or removing a reference touches one entry in each so it is O(1)
+ * regardless of how many references a client holds, and asking whether an entity is still referenced is a single
+ * lookup rather than a scan over every client.
+ */
 public class ClientEntityStateManagerImpl implements ClientEntityStateManager {
-  private final Map<ClientID, Set<EntityDescriptor>> clientStates = new ConcurrentHashMap<>();
-  private final Set<ClientID> clientGC = new CopyOnWriteArraySet<>();
+  private final Map<ClientID, ClientReferences> clientStates = new ConcurrentHashMap<>();
+  private final Map<EntityID, EntityReferences> entityStates = new ConcurrentHashMap<>();
   private static final TCLogger logger    = TCLogging.getLogger(ClientEntityStateManagerImpl.class);
 
   public ClientEntityStateManagerImpl() {
@@ -47,34 +51,32 @@ public class ClientEntityStateManagerImpl implements ClientEntityStateManager {
 
   @Override
   public boolean addReference(ClientID clientID, EntityDescriptor entityDescriptor) {
-    Set<EntityDescriptor> led = clientStates.get(clientID);
-    if (led == null) {
-      led = new CopyOnWriteArraySet<>();
-      Set<EntityDescriptor> check = clientStates.putIfAbsent(clientID, led);
-      if (check != null) {
-        led = check;
-      }
-    }
+    ClientReferences led = clientStates.computeIfAbsent(clientID, c -> new ClientReferences());
     Assert.assertNotNull(led);
-    boolean didAdd = led.add(entityDescriptor);
+    boolean didAdd = led.descriptors.add(entityDescriptor);
     logger.debug("Adding reference:" + clientID + " " + entityDescriptor.getEntityID());
     // We currently assume that we are being used precisely:  all add/remove calls are expected to have a specific meaning.
     Assert.assertTrue(didAdd);
+    entityStates.compute(entityDescriptor.getEntityID(), (eid, refs) -> {
+      EntityReferences updated = (null != refs) ? refs : new EntityReferences();
+      updated.add(clientID);
+      return updated;
+    });
     return didAdd;
   }
 
   @Override
   public boolean removeReference(ClientID clientID, EntityDescriptor entityDescriptor) {
-    Set<EntityDescriptor> refs = clientStates.get(clientID);
+    ClientReferences refs = clientStates.get(clientID);
     logger.debug("Removing reference:" + clientID + " " + entityDescriptor.getEntityID());
     boolean didRemove = false;
     if (refs != null) {
-      didRemove = refs.remove(entityDescriptor);
+      didRemove = refs.descriptors.remove(entityDescriptor);
       // We currently assume that we are being used precisely:  all add/remove calls are expected to have a specific meaning.
       Assert.assertTrue(didRemove);
-      if (refs.isEmpty() && this.clientGC.contains(clientID)) {
-        this.clientGC.remove(clientID);
-        this.clientStates.remove(clientID);
+      entityStates.computeIfPresent(entityDescriptor.getEntityID(), (eid, entityRefs) -> entityRefs.remove(clientID) ? entityRefs : null);
+      if (refs.disconnected && refs.descriptors.isEmpty()) {
+        this.clientStates.remove(clientID, refs);
       }
     }
     return didRemove;
@@ -82,19 +84,33 @@ public class ClientEntityStateManagerImpl implements ClientEntityStateManager {
 
   @Override
   public boolean verifyNoReferences(EntityID eid) {
-    return !clientStates.values().stream().anyMatch((led)->led.stream().anyMatch(ed->ed.getEntityID().equals(eid)));
+    return 0 == getReferenceCount(eid);
+  }
+
+  @Override
+  public int getReferenceCount(EntityID eid) {
+    EntityReferences refs = entityStates.get(eid);
+    return (null != refs) ? refs.count : 0;
+  }
+
+  @Override
+  public Set<ClientID> getReferencingClients(EntityID eid) {
+    EntityReferences refs = entityStates.get(eid);
+    return (null != refs) ? Collections.unmodifiableSet(new HashSet<>(refs.clients.keySet())) : Collections.emptySet();
   }
 
   @Override
   public List<VoltronEntityMessage> clientDisconnected(ClientID client) {
-    Set<EntityDescriptor> list = this.clientStates.get(client);
-    if (list != null) {
+    ClientReferences refs = this.clientStates.get(client);
+    if (refs != null) {
+      // The release messages built here remove the references as they are processed, the last of which drops the client.
+      refs.disconnected = true;
+      List<EntityDescriptor> list = new ArrayList<>(refs.descriptors);
       ArrayList<VoltronEntityMessage> msgs = new ArrayList<>(list.size());
       if (!list.isEmpty()) {
-        this.clientGC.add(client);
-        logger.debug("list has: " + client + " " + list);
+        logger.debug("list has: " + client + " " + refs.descriptors);
       } else {
-        this.clientStates.remove(client);
+        this.clientStates.remove(client, refs);
         logger.debug("list empty: removing " + client);
       }
 
@@ -105,4 +121,31 @@ public class ClientEntityStateManagerImpl implements ClientEntityStateManager {
     }
     return Collections.emptyList();
   }
+
+  private static class ClientReferences {
+    private final Set<EntityDescriptor> descriptors = ConcurrentHashMap.newKeySet();
+    private volatile boolean disconnected;
+  }
+
+  /**
+   * Only mutated inside a compute on the entity's index entry so the count needs no further synchronization.
+   */
+  private static class EntityReferences {
+    private final Map<ClientID, Integer> clients = new ConcurrentHashMap<>();
+    private volatile int count;
+
+    void add(ClientID clientID) {
+      this.clients.merge(clientID, 1, Integer::sum);
+      this.count += 1;
+    }
+
+    /**
+     * @return true if the entity is still referenced after removing this one.
+     */
+    boolean remove(ClientID clientID) {
+      this.clients.computeIfPresent(clientID, (c, held) -> (held > 1) ? held - 1 : null);
+      this.count -= 1;
+      return this.count > 0;
+    }
+  }
 }
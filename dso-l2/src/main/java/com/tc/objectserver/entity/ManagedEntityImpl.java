@@ -436,7 +436,7 @@ public class ManagedEntityImpl implements ManagedEntity {
             performAction(request, response, message);
             break;
           case REQUEST_SYNC_ENTITY:
-            performSync(response, request.replicateTo(executor.passives()), concurrencyKey);
+            performSync(response, request.replicateTo(executor.passives()), ((PassiveSyncServerEntityRequest) request).window, concurrencyKey);
             break;
           case RECEIVE_SYNC_ENTITY_KEY_START:
             receiveSyncEntityKeyStart(response, concurrencyKey);
@@ -629,7 +629,7 @@ public class ManagedEntityImpl implements ManagedEntity {
     entityToCreate.createNew();
   }
 
-  private void performSync(ResultCapture response, Set<NodeID> passives, int concurrencyKey) {
+  private void performSync(ResultCapture response, Set<NodeID> passives, PassiveSyncWindow window, int concurrencyKey) {
     if (!this.isDestroyed) {
       if (this.isInActiveState) {
         if (null == this.activeServerEntity) {
@@ -643,7 +643,7 @@ public class ManagedEntityImpl implements ManagedEntity {
               for (NodeID passive : passives) {
                 try {
                   byte[] message = runWithHelper(()->syncCodec.encode(concurrencyKey, payload));
-                  executor.scheduleSync(ReplicationMessage.createPayloadMessage(id, version, concurrencyKey, message, ""), passive).waitForReceived();
+                  window.payloadSent(executor.scheduleSync(ReplicationMessage.createPayloadMessage(id, version, concurrencyKey, message, ""), passive));
                 } catch (EntityUserException eu) {
                 // TODO: do something reasoned here
                   throw new RuntimeException(eu);
@@ -810,7 +810,7 @@ public class ManagedEntityImpl implements ManagedEntity {
 // iterate through all the concurrency keys of an entity
     EntityDescriptor entityDescriptor = new EntityDescriptor(this.id, ClientInstanceID.NULL_ID, this.version);
 //  this is simply a barrier to make sure all actions are flushed before sync is started (hence, it has a null passive).
-    PassiveSyncServerEntityRequest req = new PassiveSyncServerEntityRequest(passive);
+    PassiveSyncServerEntityRequest req = new PassiveSyncServerEntityRequest(passive, new PassiveSyncWindow());
 // wait for future is ok, occuring on sync executor thread
     BarrierCompletion opComplete = new BarrierCompletion();
     this.executor.scheduleRequest(entityDescriptor, new ServerEntityRequestImpl(entityDescriptor, ServerEntityAction.NOOP, ClientID.NULL_ID, TransactionID.NULL_ID, TransactionID.NULL_ID, Collections.emptySet()), MessagePayload.EMPTY, ()-> { 
@@ -835,12 +835,14 @@ public class ManagedEntityImpl implements ManagedEntity {
           //  don't care about the result
                                               
           BarrierCompletion sectionComplete = new BarrierCompletion();
-          this.executor.scheduleRequest(entityDescriptor, req, MessagePayload.EMPTY,  ()->invoke(req, new ResultCapture(result->sectionComplete.complete(), null, null, false), MessagePayload.EMPTY, concurrency), true, concurrency).waitForCompleted();
-        //  wait for completed above waits for acknowledgment from the passive
-        //  waitForCompletion below waits for completion of the local request processor
+          req.window.sectionSent(this.executor.scheduleRequest(entityDescriptor, req, MessagePayload.EMPTY,  ()->invoke(req, new ResultCapture(result->sectionComplete.complete(), null, null, false), MessagePayload.EMPTY, concurrency), true, concurrency));
+        //  only wait for completion of the local request processor here.  the replication stream to the passive is
+        //  ordered so the next key can start before the passive acknowledges this one, see PassiveSyncWindow
           sectionComplete.waitForCompletion();
-          executor.scheduleSync(ReplicationMessage.createEndEntityKeyMessage(id, version, concurrency), passive).waitForCompleted();
+          req.window.sectionSent(executor.scheduleSync(ReplicationMessage.createEndEntityKeyMessage(id, version, concurrency), passive));
         }
+  //  every key section has to be complete on the passive before the entity ends
+        req.window.waitForSections();
   //  end passive sync for an entity
   // wait for future is ok, occuring on sync executor thread
         executor.scheduleSync(ReplicationMessage.createEndEntityMessage(id, version), passive).waitForCompleted();
@@ -884,10 +886,12 @@ public class ManagedEntityImpl implements ManagedEntity {
   private static class PassiveSyncServerEntityRequest implements ServerEntityRequest {
     private final NodeID passive;
     private final ServerEntityAction action;
+    private final PassiveSyncWindow window;
     
-    public PassiveSyncServerEntityRequest(NodeID passive) {
+    public PassiveSyncServerEntityRequest(NodeID passive, PassiveSyncWindow window) {
       action = ServerEntityAction.REQUEST_SYNC_ENTITY;
       this.passive = passive;
+      this.window = window;
     }
 
     @Override
@@ -0,0 +1,101 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.objectserver.entity;
+
+import com.tc.properties.TCPropertiesConsts;
+import com.tc.properties.TCPropertiesImpl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+
+/**
+ * Flow control for syncing one entity to a passive.
+ * <p>
+ * The sync messages for an entity used to go out one round trip at a time:  each payload waited for the passive to
+ * receive it and each concurrency key waited for the passive to complete its start and end.  The replication stream to
+ * a passive is already ordered so none of those waits are needed for correctness, only to bound how much is queued.
+ * Instead, payloads are allowed to run ahead of the passive by a window of unreceived messages and the key sections
+ * are only waited for, all at once, before the entity's end is sent.
+ */
+class PassiveSyncWindow {
+  static final int DEFAULT_WINDOW = TCPropertiesImpl.getProperties().getInt(TCPropertiesConsts.ENTITY_SYNC_WINDOW, 64);
+
+  private final int maxUnreceived;
+  private final Deque<ActivePassiveAckWaiter> unreceived = new ArrayDeque<>();
+  private final List<ActivePassiveAckWaiter> uncompleted = new ArrayList<>();
+
+  PassiveSyncWindow() {
+    this(DEFAULT_WINDOW);
+  }
+
+  PassiveSyncWindow(int maxUnreceived) {
+    this.maxUnreceived = Math.max(1, maxUnreceived);
+  }
+
+  /**
+   * Records a payload sent to the passive, first waiting for the oldest one to be received if the window is full.
+   */
+  void payloadSent(ActivePassiveAckWaiter waiter) {
+    ActivePassiveAckWaiter oldest = null;
+    synchronized (this) {
+      this.unreceived.addLast(waiter);
+      if (this.unreceived.size() > this.maxUnreceived) {
+        oldest = this.unreceived.pollFirst();
+      }
+    }
+    if (null != oldest) {
+      oldest.waitForReceived();
+    }
+    synchronized (this) {
+      // Drop whatever else has been received in the meantime so the window really tracks what is outstanding.
+      while (!this.unreceived.isEmpty() && this.unreceived.peekFirst().isReceived()) {
+        this.unreceived.pollFirst();
+      }
+    }
+  }
+
+  /**
+   * Records the start or end of a concurrency key section, which must complete on the passive before the entity ends.
+   */
+  synchronized void sectionSent(ActivePassiveAckWaiter waiter) {
+    this.uncompleted.add(waiter);
+  }
+
+  /**
+   * Waits for every section recorded so far to complete on the passive.
+   */
+  void waitForSections() {
+    List<ActivePassiveAckWaiter> waiters;
+    synchronized (this) {
+      waiters = new ArrayList<>(this.uncompleted);
+      this.uncompleted.clear();
+      this.unreceived.clear();
+    }
+    for (ActivePassiveAckWaiter waiter : waiters) {
+      waiter.waitForCompleted();
+    }
+  }
+
+  synchronized int outstanding() {
+    return this.unreceived.size() + this.uncompleted.size();
+  }
+}
@@ -27,11 +27,16 @@ import com.tc.logging.TCLogging;
 import com.tc.net.ClientID;
 import com.tc.net.NodeID;
 import com.tc.object.EntityDescriptor;
+import com.tc.object.EntityID;
 import com.tc.object.tx.TransactionID;
 import com.tc.objectserver.api.ServerEntityAction;
 import com.tc.objectserver.api.ServerEntityRequest;
 import com.tc.util.Assert;
+import java.util.ArrayDeque;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 import org.terracotta.entity.ConcurrencyStrategy;
 
@@ -39,12 +44,28 @@ import org.terracotta.entity.ConcurrencyStrategy;
 public class RequestProcessor {
   private PassiveReplicationBroker passives;
   private final Sink<Runnable> requestExecution;
+  private final boolean deferUntilReceived;
+//  requests waiting for passives to ack RECEIVED, in scheduling order per entity.  only used when deferUntilReceived is set
+  private final Map<EntityID, Deque<EntityRequest>> awaitingReceived = new HashMap<>();
+//  requests released from awaitingReceived, in release order, which have not yet been handed to the executor
+  private final Deque<EntityRequest> readyToDispatch = new ArrayDeque<>();
+  private boolean dispatching = false;
   private boolean isActive = false;
   private static final TCLogger PLOGGER = TCLogging.getLogger(MessagePayload.class);
 //  TODO: do some accounting for transaction de-dupping on failover
 
   public RequestProcessor(Sink<Runnable> requestExecution) {
+    this(requestExecution, false);
+  }
+
+  /**
+   * @param requestExecution the sink feeding the request processor stage
+   * @param deferUntilReceived if true, a replicated request is only handed to the request processor stage once all passives
+   *        have acknowledged receipt, so apply threads never block waiting on the network
+   */
+  public RequestProcessor(Sink<Runnable> requestExecution, boolean deferUntilReceived) {
     this.requestExecution = requestExecution;
+    this.deferUntilReceived = deferUntilReceived;
   }
 
   public void enterActiveState() {
@@ -65,9 +86,18 @@ public class RequestProcessor {
     this.passives = passives;
   }
 
+  public ActivePassiveAckWaiter scheduleRequest(EntityDescriptor entity, ServerEntityRequest request, MessagePayload payload, Runnable call, boolean replicate, int concurrencyKey) {
+    ActivePassiveAckWaiter token = replicateAndSchedule(entity, request, payload, call, replicate, concurrencyKey);
+    if (deferUntilReceived) {
+//  hand anything already received to the executor outside of the processor lock
+      dispatchReady();
+    }
+    return token;
+  }
+
 //  this is synchronized because both PTH and Request Processor thread has access to this method.  the replication and schduling on the executor needs
 //  to happen in the same order.  synchronizing this method enforces that
-  public synchronized ActivePassiveAckWaiter scheduleRequest(EntityDescriptor entity, ServerEntityRequest request, MessagePayload payload, Runnable call, boolean replicate, int concurrencyKey) {
+  private synchronized ActivePassiveAckWaiter replicateAndSchedule(EntityDescriptor entity, ServerEntityRequest request, MessagePayload payload, Runnable call, boolean replicate, int concurrencyKey) {
     // Unless this is a message type we allow to choose its own concurrency key, we will use management (default for all internal operations).
     Set<NodeID> replicateTo = (isActive && passives != null) ? request.replicateTo(passives.passives()) : Collections.emptySet();
     ActivePassiveAckWaiter token = (!replicateTo.isEmpty())
@@ -78,9 +108,72 @@ public class RequestProcessor {
     if (PLOGGER.isDebugEnabled()) {
       PLOGGER.debug("SCHEDULING:" + payload.getDebugId() + " on " + entity + ":" + concurrencyKey);
     }
-    requestExecution.addMultiThreaded(entityRequest);
+    if (deferUntilReceived) {
+//  everything scheduled for an entity goes through the same ordered list, even requests which were not replicated, so 
+//  that nothing overtakes a request for the same entity still waiting on a passive
+      EntityID id = entity.getEntityID();
+      awaitingReceived.computeIfAbsent(id, k->new ArrayDeque<>()).add(entityRequest);
+      if (token.isReceived()) {
+        releaseReceived(id);
+      } else {
+        token.runWhenReceived(()->{
+          synchronized (this) {
+            releaseReceived(id);
+          }
+          dispatchReady();
+        });
+      }
+    } else {
+      requestExecution.addMultiThreaded(entityRequest);
+    }
     return token;
   }
+
+//  moves, in order, every request at the head of the entity's list which has been received to the dispatch list
+  private void releaseReceived(EntityID id) {
+    Assert.assertTrue(Thread.holdsLock(this));
+    Deque<EntityRequest> waiting = awaitingReceived.get(id);
+    if (waiting != null) {
+      EntityRequest next = waiting.peek();
+      while (next != null && next.isReceived()) {
+        readyToDispatch.add(waiting.poll());
+        next = waiting.peek();
+      }
+      if (waiting.isEmpty()) {
+        awaitingReceived.remove(id);
+      }
+    }
+  }
+
+//  called by the scheduling thread or by the thread delivering the final RECEIVED ack from the passives.  
+//  Only one thread hands requests to the executor at a time so release order is kept, and it does so without 
+//  holding the processor lock so a full executor queue never blocks scheduling or ack processing
+  private void dispatchReady() {
+    synchronized (this) {
+      if (dispatching) {
+        return;
+      }
+      dispatching = true;
+    }
+    while (true) {
+      EntityRequest next;
+      synchronized (this) {
+        next = readyToDispatch.poll();
+        if (next == null) {
+          dispatching = false;
+          return;
+        }
+      }
+      try {
+        requestExecution.addMultiThreaded(next);
+      } catch (RuntimeException e) {
+        synchronized (this) {
+          dispatching = false;
+        }
+        throw e;
+      }
+    }
+  }
   
   private static byte[] NO_BYTES = new byte[0];
   
@@ -154,6 +247,10 @@ public class RequestProcessor {
       invoke();
     }
     
+    boolean isReceived() {
+      return this.replicationWaiter.isReceived();
+    }
+    
     void invoke()  {
         // NOTE:  We want to wait to hear that the passive has received the replicated invoke.
         this.replicationWaiter.waitForReceived();
@@ -20,33 +20,110 @@ package com.tc.objectserver.entity;
 
 import com.tc.entity.MessageCodecSupplier;
 import com.tc.async.api.Sink;
+import com.tc.async.api.SpecializedEventContext;
 import com.tc.entity.NetworkVoltronEntityMessage;
 import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.VoltronEntityMultiMessage;
 import com.tc.net.protocol.tcm.HydrateContext;
 import com.tc.net.protocol.tcm.TCMessage;
 import com.tc.net.protocol.tcm.TCMessageSink;
+import com.tc.stats.Stats;
 
 public class VoltronMessageSink implements TCMessageSink {
   private final Sink<VoltronEntityMessage> destSink;
   private final Sink<HydrateContext> hydrateSink;
   private final MessageCodecSupplier codecSupplier;
+  private final Sink<VoltronEntityMultiMessage> unpackingSink;
   
 
   public VoltronMessageSink(Sink<VoltronEntityMessage> destSink, Sink<HydrateContext> hydrateSink, MessageCodecSupplier codecSupplier) {
     this.destSink = destSink;
     this.hydrateSink = hydrateSink;
     this.codecSupplier = codecSupplier;
+    this.unpackingSink = new UnpackingSink(destSink);
   }
 
   @Override
   public void putMessage(TCMessage message) { 
     if (message instanceof NetworkVoltronEntityMessage) {
       ((NetworkVoltronEntityMessage)message).setMessageCodecSupplier(codecSupplier);
+    } else if (message instanceof VoltronEntityMultiMessage) {
+      ((VoltronEntityMultiMessage)message).setMessageCodecSupplier(codecSupplier);
+      // Hydrated like any other message, on the thread for this client, and then split up in order.
+      hydrateSink.addMultiThreaded(new HydrateContext<>(message, unpackingSink));
+      return;
     }
     HydrateContext<VoltronEntityMessage> context = new HydrateContext<>(message, destSink);
     hydrateSink.addMultiThreaded(context);
   }
-  
-    
-  
+
+  /**
+   * Feeds each request in a multi-message to the request processing sink, in the order the client packed them.
+   */
+  private static class UnpackingSink implements Sink<VoltronEntityMultiMessage> {
+    private final Sink<VoltronEntityMessage> destSink;
+
+    UnpackingSink(Sink<VoltronEntityMessage> destSink) {
+      this.destSink = destSink;
+    }
+
+    @Override
+    public void addSingleThreaded(VoltronEntityMultiMessage context) {
+      for (VoltronEntityMessage message : context.getMessages()) {
+        this.destSink.addSingleThreaded(message);
+      }
+    }
+
+    @Override
+    public void addMultiThreaded(VoltronEntityMultiMessage context) {
+      for (VoltronEntityMessage message : context.getMessages()) {
+        this.destSink.addMultiThreaded(message);
+      }
+    }
+
+    @Override
+    public void addSpecialized(SpecializedEventContext specialized) {
+      this.destSink.addSpecialized(specialized);
+    }
+
+    @Override
+    public int size() {
+      return this.destSink.size();
+    }
+
+    @Override
+    public void clear() {
+      this.destSink.clear();
+    }
+
+    @Override
+    public void setClosed(boolean closed) {
+      this.destSink.setClosed(closed);
+    }
+
+    @Override
+    public void enableStatsCollection(boolean enable) {
+      this.destSink.enableStatsCollection(enable);
+    }
+
+    @Override
+    public boolean isStatsCollectionEnabled() {
+      return this.destSink.isStatsCollectionEnabled();
+    }
+
+    @Override
+    public Stats getStats(long frequency) {
+      return this.destSink.getStats(frequency);
+    }
+
+    @Override
+    public Stats getStatsAndReset(long frequency) {
+      return this.destSink.getStatsAndReset(frequency);
+    }
+
+    @Override
+    public void resetStats() {
+      this.destSink.resetStats();
+    }
+  }
 }
@@ -19,13 +19,16 @@
 package com.tc.objectserver.handler;
 
 import com.tc.async.api.AbstractEventHandler;
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandlerException;
 import com.tc.async.api.Sink;
 import com.tc.async.api.Stage;
+import com.tc.bytes.TCByteBuffer;
 import com.tc.entity.ResendVoltronEntityMessage;
 import com.tc.entity.VoltronEntityAppliedResponse;
 import com.tc.entity.VoltronEntityMessage;
+import com.tc.entity.ServerEntityMessageCarrier;
 import com.tc.entity.VoltronEntityMultiResponse;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
@@ -43,6 +46,7 @@ import com.tc.object.tx.TransactionID;
 import com.tc.objectserver.api.EntityManager;
 import com.tc.objectserver.api.ManagedEntity;
 import com.tc.objectserver.api.ServerEntityAction;
+import com.tc.objectserver.api.ServerEntityMessageCoalescer;
 import com.tc.objectserver.core.api.ServerConfigurationContext;
 import com.tc.objectserver.entity.MessagePayload;
 import com.tc.objectserver.api.Retiree;
@@ -56,11 +60,14 @@ import com.tc.util.Assert;
 import com.tc.util.SparseList;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedList;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.MessageCodecException;
@@ -69,8 +76,10 @@ import org.terracotta.exception.EntityNotFoundException;
 import org.terracotta.exception.EntityUserException;
 
 
-public class ProcessTransactionHandler implements ReconnectListener {
+public class ProcessTransactionHandler implements ReconnectListener, ServerEntityMessageCoalescer {
   private static final TCLogger LOGGER = TCLogging.getLogger(ProcessTransactionHandler.class);
+  // responses drained from the respond stage at once, sharing one transaction order flush
+  private static final int MAX_RESPONSE_BATCH = 64;
   
   private final EntityPersistor entityPersistor;
   private final TransactionOrderPersistor transactionOrderPersistor;
@@ -85,7 +94,8 @@ public class ProcessTransactionHandler implements ReconnectListener {
   private List<ResendVoltronEntityMessage> resendNewList;
   private boolean reconnecting = true;
   
-  private Sink<TCMessage> multiSend;
+  private volatile Sink<TCMessage> multiSend;
+  private static final Runnable NOTHING_TO_FLUSH = ()->{};
   private ConcurrentHashMap<ClientID, TCMessage> invokeReturn = new ConcurrentHashMap<>();
   
   private void sendMultiResponse(VoltronEntityMultiResponse response) {
@@ -98,20 +108,40 @@ public class ProcessTransactionHandler implements ReconnectListener {
     notify();
   }
   
-  private final AbstractEventHandler<TCMessage> multiSender = new AbstractEventHandler<TCMessage>() {
+  private final AbstractEventHandler<TCMessage> multiSender = new MultiResponseSender();
+
+  private class MultiResponseSender extends AbstractEventHandler<TCMessage> implements BatchEventHandler<TCMessage> {
+    @Override
+    public int getMaxBatchSize() {
+      return MAX_RESPONSE_BATCH;
+    }
+
     @Override
     public void handleEvent(TCMessage context) throws EventHandlerException {
-      NodeID destinationID = context.getDestinationNodeID();
-      invokeReturn.remove((ClientID)destinationID, context);
-      boolean didSend = context.send();
-      if (!didSend) {
-        // It is possible for this send to fail.  Typically, it means that the client has disconnected.
-        LOGGER.warn("Failed to send message to: " + destinationID);
-      } else if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("sent " + context);
+      handleEvents(Collections.singletonList(context));
+    }
+
+    @Override
+    public void handleEvents(Collection<TCMessage> contexts) throws EventHandlerException {
+      for (TCMessage context : contexts) {
+        invokeReturn.remove((ClientID)context.getDestinationNodeID(), context);
+      }
+//  the transaction order for any RECEIVED acks in these responses must be durable before they are sent.  all transactions
+//  persisted since the last send are committed as one group
+      transactionOrderPersistor.flush();
+      for (TCMessage context : contexts) {
+        NodeID destinationID = context.getDestinationNodeID();
+        boolean didSend = context.send();
+        if (!didSend) {
+          // It is possible for this send to fail.  Typically, it means that the client has disconnected.
+          LOGGER.warn("Failed to send message to: " + destinationID);
+        } else if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug("sent " + context);
+        }
       }
     }
-  };
+  }
+
   public AbstractEventHandler<TCMessage> getMultiResponseSender() {
     return multiSender;
   }
@@ -181,7 +211,33 @@ public class ProcessTransactionHandler implements ReconnectListener {
     return entityManager.snapshot(r, m->m.startSync(), null);
   }
   
-  private void addSequentially(ClientID target, Predicate<VoltronEntityMultiResponse> adder) {
+  @Override
+  public Runnable addServerEntityMessage(ClientID target, EntityDescriptor descriptor, TCByteBuffer[] payload, Long responseId) {
+    if (null == multiSend) {
+//  not active yet so there is nothing to coalesce with
+      return null;
+    }
+//  a new frame is handed back to be queued by the caller since the respond sink can block
+    AtomicReference<VoltronEntityMultiResponse> created = new AtomicReference<>();
+    boolean added = addSequentially(target, 
+        addTo->addTo instanceof ServerEntityMessageCarrier && ((ServerEntityMessageCarrier)addTo).addServerEntityMessage(descriptor, payload, responseId), 
+        created::set);
+    if (!added) {
+      return null;
+    }
+    VoltronEntityMultiResponse toSend = created.get();
+    return (null != toSend) ? ()->sendMultiResponse(toSend) : NOTHING_TO_FLUSH;
+  }
+
+  private boolean addSequentially(ClientID target, Predicate<VoltronEntityMultiResponse> adder) {
+    return addSequentially(target, adder, this::sendMultiResponse);
+  }
+
+  /**
+   * @param sender Queues a newly created frame to be sent.
+   * @return False if the client is no longer connected.
+   */
+  private boolean addSequentially(ClientID target, Predicate<VoltronEntityMultiResponse> adder, Consumer<VoltronEntityMultiResponse> sender) {
     boolean handled = false;
     while (!handled) {
       TCMessage old = invokeReturn.get(target);
@@ -192,20 +248,21 @@ public class ProcessTransactionHandler implements ReconnectListener {
         Optional<MessageChannel> channel = safeGetChannel(target);
         if (channel.isPresent()) {
           VoltronEntityMultiResponse vmr = (VoltronEntityMultiResponse)channel.get().createMessage(TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
-          old = invokeReturn.putIfAbsent(target, vmr);
-          if (old instanceof VoltronEntityMultiResponse) {
-            handled = adder.test((VoltronEntityMultiResponse)old);
-          } else {
+//  the old message is either sealed or out of room for server messages.  either way it is already queued to send
+          boolean installed = (null == old) ? (null == invokeReturn.putIfAbsent(target, vmr)) : invokeReturn.replace(target, old, vmr);
+          if (installed) {
             handled = adder.test(vmr);
             Assert.assertTrue(handled);
-            sendMultiResponse(vmr);
+            sender.accept(vmr);
           }
+//  otherwise another thread got there first so try again with its message
         } else {
-          handled = true;
 //  no more client.  ignore
+          return false;
         }
       }
     }
+    return true;
   }
   
   private static void retireMessagesForEntity(ManagedEntity entity, EntityMessage message) {
@@ -241,6 +298,8 @@ public class ProcessTransactionHandler implements ReconnectListener {
       }
     }
     if (ServerEntityAction.INVOKE_ACTION != action) {
+//  lifecycle acks are sent directly so the transaction order has to be made durable here
+      this.transactionOrderPersistor.flush();
       serverEntityRequest.received();
     }
     if (ServerEntityAction.CREATE_ENTITY == action) {
@@ -19,9 +19,12 @@
 package com.tc.objectserver.handler;
 
 import com.tc.async.api.AbstractEventHandler;
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.EventHandlerException;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.io.TCByteBufferInputStream;
 import com.tc.objectserver.entity.MessagePayload;
 import com.tc.l2.msg.ReplicationMessage;
 import com.tc.l2.msg.ReplicationMessageAck;
@@ -53,9 +56,8 @@ import com.tc.objectserver.entity.ServerEntityRequestResponse;
 import com.tc.objectserver.persistence.EntityPersistor;
 import com.tc.objectserver.persistence.TransactionOrderPersistor;
 import com.tc.util.Assert;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
@@ -72,6 +74,8 @@ import org.terracotta.exception.EntityException;
 public class ReplicatedTransactionHandler {
   private static final TCLogger PLOGGER = TCLogging.getLogger(MessagePayload.class);
   private static final TCLogger LOGGER = TCLogging.getLogger(ReplicatedTransactionHandler.class);
+  // replicated messages drained at once, sharing one transaction order flush and one ack batch
+  private static final int MAX_REPLICATION_BATCH = 64;
   private final EntityManager entityManager;
   private final EntityPersistor entityPersistor;
   private final GroupManager<AbstractGroupMessage> groupManager;
@@ -85,6 +89,11 @@ public class ReplicatedTransactionHandler {
   private boolean isWaitingForNetwork;
   private NodeID cachedMessageAckFrom;
   private ReplicationMessageAck cachedBatchAck;
+  // While a batch is being handled, completion acks are held here until the transaction order they describe is durable.
+  // RECEIVED acks are never held, so nothing the batch waits on can delay them.
+  private boolean isHoldingAcks;
+  private NodeID heldMessageAckFrom;
+  private ReplicationMessageAck heldBatchAck;
   private final Runnable handleMessageSend = new Runnable() {
     @Override
     public void run() {
@@ -106,7 +115,45 @@ public class ReplicatedTransactionHandler {
     }
   }
 
-  private final EventHandler<ReplicationMessage> eventHorizon = new AbstractEventHandler<ReplicationMessage>() {
+  private final EventHandler<ReplicationMessage> eventHorizon = new ReplicationEventHandler();
+
+  private class ReplicationEventHandler extends AbstractEventHandler<ReplicationMessage> implements BatchEventHandler<ReplicationMessage> {
+    @Override
+    public int getMaxBatchSize() {
+      return MAX_REPLICATION_BATCH;
+    }
+
+    @Override
+    public void handleEvents(Collection<ReplicationMessage> messages) throws EventHandlerException {
+//  completion acks go out together, once the transaction order they describe is durable.
+//  RECEIVED acks still go out as each message is handled
+      holdAcks();
+      try {
+        for (ReplicationMessage message : messages) {
+          if (message.getType() == ReplicationMessage.BATCH) {
+            for (ReplicationMessage batched : message.getBatch()) {
+              handleHeldEvent(batched);
+            }
+          } else {
+            handleHeldEvent(message);
+          }
+        }
+        orderedTransactions.flush();
+      } finally {
+        releaseAcks();
+      }
+    }
+
+    private void handleHeldEvent(ReplicationMessage message) throws EventHandlerException {
+      if (message.getType() != ReplicationMessage.REPLICATE) {
+//  sync and start can block this stage, the acks of everything before them must not wait on it
+        orderedTransactions.flush();
+        releaseAcks();
+        holdAcks();
+      }
+      handleEvent(message);
+    }
+
     @Override
     public void handleEvent(ReplicationMessage message) throws EventHandlerException {
       try {
@@ -174,7 +221,7 @@ public class ReplicatedTransactionHandler {
       platform.addRequestMessage(req, new MessagePayload(new byte[0], null, ConcurrencyStrategy.MANAGEMENT_KEY), (result)->latch.complete(), null);
       latch.waitForCompletion();
     }    
-  };
+  }
   
   public EventHandler<ReplicationMessage> getEventHandler() {
     return eventHorizon;
@@ -208,6 +255,12 @@ public class ReplicatedTransactionHandler {
       case ReplicationMessage.START:
         establishNewPassive(rep);
         break;
+      case ReplicationMessage.BATCH:
+//  the frame is ordered as a whole, its contents are applied in the order the active queued them
+        for (ReplicationMessage batched : rep.getBatch()) {
+          processMessage(batched);
+        }
+        break;
       default:
         // This is an unexpected replicated message type.
         throw new RuntimeException();
@@ -385,7 +438,7 @@ public class ReplicatedTransactionHandler {
           platform.addRequestMessage(make(sync), payload, (result)-> {
             if (sync.getReplicationType() == SyncReplicationActivity.ActivityType.SYNC_END) {
               try {
-                entityPersistor.layer(new ObjectInputStream(new ByteArrayInputStream(payload.getRawPayload())));
+                entityPersistor.layer(new TCByteBufferInputStream(TCByteBufferFactory.wrap(payload.getRawPayload())));
               } catch (IOException ioe) {
                 throw new RuntimeException(ioe);
               }
@@ -501,6 +554,24 @@ public class ReplicatedTransactionHandler {
   }
 
   private synchronized void prepareAckForSend(NodeID sender, MessageID respondTo, ReplicationResultCode code) {
+    if (isHoldingAcks && code != ReplicationResultCode.RECEIVED) {
+      if (null == this.heldBatchAck) {
+        this.heldBatchAck = ReplicationMessageAck.createBatchAck();
+        this.heldMessageAckFrom = sender;
+      } else {
+        Assert.assertTrue(this.heldMessageAckFrom.equals(sender));
+      }
+      this.heldBatchAck.addAck(respondTo, code);
+      return;
+    }
+    cacheAck(sender, respondTo, code);
+    
+    if (!isWaitingForNetwork) {
+      synchronizedSendAckBatch();
+    }
+  }
+
+  private void cacheAck(NodeID sender, MessageID respondTo, ReplicationResultCode code) {
     if (null == this.cachedBatchAck) {
       this.cachedBatchAck = ReplicationMessageAck.createBatchAck();
       this.cachedMessageAckFrom = sender;
@@ -509,10 +580,6 @@ public class ReplicatedTransactionHandler {
     }
 
     this.cachedBatchAck.addAck(respondTo, code);
-    
-    if (!isWaitingForNetwork) {
-      synchronizedSendAckBatch();
-    }
   }
 
   private synchronized void handleNetworkDone() {
@@ -522,6 +589,24 @@ public class ReplicatedTransactionHandler {
     }
   }
 
+  private synchronized void holdAcks() {
+    this.isHoldingAcks = true;
+  }
+
+  private synchronized void releaseAcks() {
+    this.isHoldingAcks = false;
+    if (null != this.heldBatchAck) {
+      for (ReplicationMessageAck.Tuple ack : this.heldBatchAck.getBatch()) {
+        cacheAck(this.heldMessageAckFrom, ack.respondTo, ack.result);
+      }
+      this.heldBatchAck = null;
+      this.heldMessageAckFrom = null;
+    }
+    if (null != this.cachedBatchAck && !isWaitingForNetwork) {
+      synchronizedSendAckBatch();
+    }
+  }
+
   private void synchronizedSendAckBatch() {
     // Note that we want to set the flags _before_ making the calls since the unit test mock calls back, immediate.
     //  (it shouldn't make a different to any other call since this is already synchronized)
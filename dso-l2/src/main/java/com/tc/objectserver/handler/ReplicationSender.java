@@ -19,6 +19,7 @@
 package com.tc.objectserver.handler;
 
 import com.tc.async.api.AbstractEventHandler;
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.ConfigurationContext;
 import com.tc.async.api.EventHandlerException;
 import com.tc.l2.msg.ReplicationEnvelope;
@@ -32,19 +33,29 @@ import com.tc.net.groups.GroupManager;
 import com.tc.object.EntityID;
 import com.tc.objectserver.entity.MessagePayload;
 import com.tc.util.Assert;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.terracotta.entity.ConcurrencyStrategy;
 
 
-public class ReplicationSender extends AbstractEventHandler<ReplicationEnvelope> {
+public class ReplicationSender extends AbstractEventHandler<ReplicationEnvelope> implements BatchEventHandler<ReplicationEnvelope> {
   //  this is all single threaded.  If there is any attempt to make this multi-threaded,
   //  control structures must be fixed
+  // envelopes drained at once;  those bound for the same passive share a frame
+  private static final int MAX_REPLICATION_BATCH = 256;
+  // a frame is cut once the payloads it carries reach this size
+  private static final int MAX_BATCH_BYTES = 256 * 1024;
   private final GroupManager group;
   private final Map<NodeID, SyncState> filtering = new HashMap<>();
+  private final Map<NodeID, List<ReplicationEnvelope>> pending = new LinkedHashMap<>();
   private static final TCLogger logger           = TCLogging.getLogger(ReplicationSender.class);
   private static final TCLogger PLOGGER = TCLogging.getLogger(MessagePayload.class);
   private static final boolean debugLogging = logger.isDebugEnabled();
@@ -54,59 +65,132 @@ public class ReplicationSender extends AbstractEventHandler<ReplicationEnvelope>
     this.group = group;
   }
 
+  @Override
+  public int getMaxBatchSize() {
+    return MAX_REPLICATION_BATCH;
+  }
+
   @Override
   public void handleEvent(ReplicationEnvelope context) throws EventHandlerException {
-    NodeID nodeid = context.getDestination();
-    ReplicationMessage msg = context.getMessage();
-    if (msg == null) {
-// this is a flush of the replication channel.  shut it down and return;
-      filtering.remove(nodeid);
-      context.droppedWithoutSend();
-    } else {
-      SyncState syncing = getSyncState(nodeid, msg);
-      boolean shouldSend = true;
-      if (!shouldReplicate(msg)) {
+    handleEvents(Collections.singletonList(context));
+  }
+
+  @Override
+  public void handleEvents(Collection<ReplicationEnvelope> contexts) throws EventHandlerException {
+//  everything drained for a passive goes out as one frame so the frame count no longer tracks the transaction count.
+//  messages are filtered in arrival order and only the send is deferred to the end of the drain.
+    for (ReplicationEnvelope context : contexts) {
+      NodeID nodeid = context.getDestination();
+      ReplicationMessage msg = context.getMessage();
+      if (msg == null) {
+// this is a flush of the replication channel.  send what is queued, shut it down and return;
+        sendPending(nodeid);
+        filtering.remove(nodeid);
+        context.droppedWithoutSend();
+      } else {
+        SyncState syncing = getSyncState(nodeid, msg);
+        boolean shouldSend = true;
+        if (!shouldReplicate(msg)) {
 // check to make sure that this message is a type that is relevant to a passive
-        shouldSend = false;
-      } else if (filterMessage(syncing, msg)) {
+          shouldSend = false;
+        } else if (filterMessage(syncing, msg)) {
 // filter out messages based on sync state.
 //  if a message is filtered, it is turned to a NOOP so ordering can be preserved 
 //  on the passive for possible resends
-        if (debugLogging) {
-          logger.debug("FILTERING:" + msg);
-        }
+          if (debugLogging) {
+            logger.debug("FILTERING:" + msg);
+          }
 //  these will never be relevant on the passive because a failover to 
 //  a partially sync'd passive is not possible
-        shouldSend = false;
-      }
+          shouldSend = false;
+        }
 //  sending message on to passive, additional filtering may happen on the other side.
 //  the only messages that are relevant before passive sync starts are create messages
-      try {
         if (shouldSend) {
-          msg.setReplicationID(syncing.nextMessageID());
-          if (debugLogging) {
-            logger.debug("WIRE:" + msg);
-          }
-          if (debugMessaging) {
-            PLOGGER.debug("SENDING:" + msg.getDebugId());
+          if (msg.getType() == ReplicationMessage.START) {
+//  the start message resets ordering on the passive so it always travels alone
+            sendPending(nodeid);
+            send(nodeid, syncing, Collections.singletonList(context));
+          } else {
+            pending.computeIfAbsent(nodeid, n->new ArrayList<>()).add(context);
           }
-          group.sendTo(nodeid, msg);
-          context.sent();
         } else {
           context.droppedWithoutSend();
         }
-      }  catch (GroupException ge) {
-        logger.info(msg, ge);
+      }
+    }
+    for (NodeID nodeid : new ArrayList<>(pending.keySet())) {
+      sendPending(nodeid);
+    }
+    for (ReplicationEnvelope context : contexts) {
+      Assert.assertTrue(context.wasSentOrDropped());
+    }
+  }
+
+  private void sendPending(NodeID nodeid) {
+    List<ReplicationEnvelope> queued = pending.remove(nodeid);
+    if (queued != null) {
+      SyncState syncing = filtering.get(nodeid);
+      if (!syncing.batching) {
+//  this passive predates BATCH frames, keep sending it one message at a time
+        for (ReplicationEnvelope context : queued) {
+          send(nodeid, syncing, Collections.singletonList(context));
+        }
+        return;
+      }
+      int start = 0;
+      int bytes = 0;
+      for (int i = 0; i < queued.size(); ++i) {
+        bytes += queued.get(i).getMessage().getPayloadSize();
+        if (bytes >= MAX_BATCH_BYTES) {
+          send(nodeid, syncing, queued.subList(start, i + 1));
+          start = i + 1;
+          bytes = 0;
+        }
+      }
+      if (start < queued.size()) {
+        send(nodeid, syncing, queued.subList(start, queued.size()));
+      }
+    }
+  }
+
+  private void send(NodeID nodeid, SyncState syncing, List<ReplicationEnvelope> frame) {
+    ReplicationMessage msg;
+    if (frame.size() == 1) {
+      msg = frame.get(0).getMessage();
+    } else {
+      List<ReplicationMessage> batch = new ArrayList<>(frame.size());
+      for (ReplicationEnvelope context : frame) {
+        batch.add(context.getMessage());
+      }
+      msg = ReplicationMessage.createBatchMessage(batch);
+    }
+    try {
+      msg.setReplicationID(syncing.nextMessageID());
+      if (debugLogging) {
+        logger.debug("WIRE:" + msg);
+      }
+      if (debugMessaging) {
+        for (ReplicationEnvelope context : frame) {
+          PLOGGER.debug("SENDING:" + context.getMessage().getDebugId());
+        }
+      }
+      group.sendTo(nodeid, msg);
+      for (ReplicationEnvelope context : frame) {
+        context.sent();
+      }
+    } catch (GroupException ge) {
+      logger.info(msg, ge);
+      for (ReplicationEnvelope context : frame) {
         context.droppedWithoutSend();
       }
     }
-    Assert.assertTrue(context.wasSentOrDropped());
   }
-  
+
   private SyncState getSyncState(NodeID nodeid, ReplicationMessage msg) {
     if (!filtering.containsKey(nodeid)) {
       if (msg.getType() == ReplicationMessage.START) {
-        SyncState state = new SyncState();
+        SyncState state = new SyncState(group.isBatchedReplicationSupported(nodeid));
         filtering.put(nodeid, state);
 //  release the message so sync can continue
 //  this is a priming event.  passive resets client state
@@ -163,6 +247,7 @@ public class ReplicationSender extends AbstractEventHandler<ReplicationEnvelope>
   }
   
   private static class SyncState {
+    private final boolean batching;
     private final Set<EntityID> liveSet = new HashSet<>();
     private final Set<Integer> syncdID = new HashSet<>();
     private EntityID syncingID = EntityID.NULL_ID;
@@ -171,6 +256,10 @@ public class ReplicationSender extends AbstractEventHandler<ReplicationEnvelope>
     private SyncReplicationActivity.ActivityType lastSeen;
     private SyncReplicationActivity.ActivityType lastSent;
     private long messageId;
+
+    SyncState(boolean batching) {
+      this.batching = batching;
+    }
     
     public boolean shouldMessageBeReplicated(ReplicationMessage msg) {
       final EntityID eid = msg.getEntityDescriptor().getEntityID();
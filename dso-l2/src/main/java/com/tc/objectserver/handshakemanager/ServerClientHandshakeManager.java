@@ -62,6 +62,8 @@ public class ServerClientHandshakeManager {
     STARTED,
   }
   static final int                       RECONNECT_WARN_INTERVAL           = 15000;
+  // Boolean.TRUE on the channels of clients which unpack server entity messages coalesced into their multi-responses
+  public static final String             COALESCED_SERVER_MESSAGES_ATTACHMENT = "coalesced_server_messages_attachment";
 
   private State                          state                             = State.INIT;
   private List<ReconnectListener>     waitingForReconnect = new ArrayList<>();
@@ -104,6 +106,7 @@ public class ServerClientHandshakeManager {
       this.logger.info("Handling client handshake for " + clientID);
       handshake.getChannel().addAttachment(ClientHandshakeMonitoringInfo.MONITORING_INFO_ATTACHMENT, 
           new ClientHandshakeMonitoringInfo(handshake.getClientPID(), handshake.getUUID(), handshake.getName()), false);
+      handshake.getChannel().addAttachment(COALESCED_SERVER_MESSAGES_ATTACHMENT, handshake.acceptsCoalescedServerMessages(), false);
 
       Collection<ClientServerExchangeLockContext> lockContexts = handshake.getLockContexts();
       if (this.state == State.STARTED) {
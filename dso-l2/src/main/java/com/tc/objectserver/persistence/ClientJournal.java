@@ -0,0 +1,293 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.io.TCByteBufferInput;
+import com.tc.io.TCByteBufferOutput;
+import com.tc.objectserver.persistence.EntityData.JournalEntry;
+import com.tc.objectserver.persistence.EntityData.Operation;
+
+import org.terracotta.exception.EntityException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * The lifecycle journal of a single client, ordered by transaction ID.
+ * <p>
+ * Clients almost always add transactions in increasing order and retire them from the oldest end so the entries are
+ * kept in a pair of parallel arrays with a moving head:  appending and trimming are amortized O(1) and lookup is a
+ * binary search.  Out-of-order adds fall back to an insertion.  A journal received from the active during passive sync
+ * is folded in with {@link #merge(ClientJournal)}, a single linear pass over both journals.
+ */
+public class ClientJournal implements Serializable {
+  private static final long serialVersionUID = 1L;
+  private static final int INITIAL_CAPACITY = 4;
+
+  private transient long[] transactionIDs;
+  private transient JournalEntry[] entries;
+  private transient int head;
+  private transient int size;
+
+  public ClientJournal() {
+    init(INITIAL_CAPACITY);
+  }
+
+  private void init(int capacity) {
+    this.transactionIDs = new long[capacity];
+    this.entries = new JournalEntry[capacity];
+    this.head = 0;
+    this.size = 0;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public boolean isEmpty() {
+    return 0 == this.size;
+  }
+
+  /**
+   * @return The entry for the given transaction or null if it isn't in the journal.
+   */
+  public JournalEntry get(long transactionID) {
+    int index = Arrays.binarySearch(this.transactionIDs, this.head, this.head + this.size, transactionID);
+    return (index >= 0) ? this.entries[index] : null;
+  }
+
+  /**
+   * Adds the entry to the journal, keeping it in transaction order.
+   *
+   * @return False if there was already an entry for this transaction, in which case the journal is unchanged.
+   */
+  public boolean add(JournalEntry entry) {
+    long transactionID = entry.transactionID;
+    int tail = this.head + this.size;
+    if (0 == this.size || this.transactionIDs[tail - 1] < transactionID) {
+      ensureRoomAtTail();
+      tail = this.head + this.size;
+      this.transactionIDs[tail] = transactionID;
+      this.entries[tail] = entry;
+      this.size += 1;
+      return true;
+    }
+    int index = Arrays.binarySearch(this.transactionIDs, this.head, tail, transactionID);
+    if (index >= 0) {
+      return false;
+    }
+    int insertAt = -(index + 1) - this.head;
+    ensureRoomAtTail();
+    int from = this.head + insertAt;
+    int moved = this.size - insertAt;
+    System.arraycopy(this.transactionIDs, from, this.transactionIDs, from + 1, moved);
+    System.arraycopy(this.entries, from, this.entries, from + 1, moved);
+    this.transactionIDs[from] = transactionID;
+    this.entries[from] = entry;
+    this.size += 1;
+    return true;
+  }
+
+  /**
+   * Removes every entry older than the given transaction.
+   */
+  public void trim(long oldestTransactionOnClient) {
+    while (this.size > 0 && this.transactionIDs[this.head] < oldestTransactionOnClient) {
+      this.entries[this.head] = null;
+      this.head += 1;
+      this.size -= 1;
+    }
+    if (0 == this.size) {
+      this.head = 0;
+    }
+  }
+
+  /**
+   * @return A copy of the entries, in transaction order.
+   */
+  public List<JournalEntry> entries() {
+    List<JournalEntry> list = new ArrayList<>(this.size);
+    for (int i = this.head; i < this.head + this.size; ++i) {
+      list.add(this.entries[i]);
+    }
+    return list;
+  }
+
+  /**
+   * Merges the other journal into this one.  Both are already in transaction order so this is a single pass over the
+   * two.  Entries we already have for a transaction are kept in preference to those in the other journal.
+   */
+  public void merge(ClientJournal other) {
+    if (other.isEmpty()) {
+      return;
+    }
+    if (isEmpty() || this.transactionIDs[this.head + this.size - 1] < other.transactionIDs[other.head]) {
+      // The common case:  everything in the other journal is newer so just append it.
+      for (int i = other.head; i < other.head + other.size; ++i) {
+        add(other.entries[i]);
+      }
+      return;
+    }
+    int capacity = Math.max(INITIAL_CAPACITY, this.size + other.size);
+    long[] mergedTransactionIDs = new long[capacity];
+    JournalEntry[] mergedEntries = new JournalEntry[capacity];
+    int mine = this.head;
+    int mineEnd = this.head + this.size;
+    int theirs = other.head;
+    int theirsEnd = other.head + other.size;
+    int count = 0;
+    while (mine < mineEnd || theirs < theirsEnd) {
+      if (theirs == theirsEnd || (mine < mineEnd && this.transactionIDs[mine] <= other.transactionIDs[theirs])) {
+        if (theirs < theirsEnd && this.transactionIDs[mine] == other.transactionIDs[theirs]) {
+          theirs += 1;
+        }
+        mergedTransactionIDs[count] = this.transactionIDs[mine];
+        mergedEntries[count] = this.entries[mine];
+        mine += 1;
+      } else {
+        mergedTransactionIDs[count] = other.transactionIDs[theirs];
+        mergedEntries[count] = other.entries[theirs];
+        theirs += 1;
+      }
+      count += 1;
+    }
+    this.transactionIDs = mergedTransactionIDs;
+    this.entries = mergedEntries;
+    this.head = 0;
+    this.size = count;
+  }
+
+  /**
+   * Writes the entries in a compact binary form:  the entry count followed by the primitive fields of each entry.  Only
+   * a failure, which is rare, falls back to Java serialization.
+   */
+  public void encode(TCByteBufferOutput out) throws IOException {
+    out.writeInt(this.size);
+    for (int i = this.head; i < this.head + this.size; ++i) {
+      JournalEntry entry = this.entries[i];
+      out.writeLong(entry.transactionID);
+      out.writeByte(entry.operation.ordinal());
+      writeBytes(out, entry.reconfigureResponse);
+      writeBytes(out, (null != entry.failure) ? serializeFailure(entry.failure) : null);
+    }
+  }
+
+  /**
+   * Reads a journal written by {@link #encode(TCByteBufferOutput)}.
+   */
+  public static ClientJournal decode(TCByteBufferInput in) throws IOException {
+    int count = in.readInt();
+    ClientJournal journal = new ClientJournal();
+    journal.init(Math.max(INITIAL_CAPACITY, count));
+    Operation[] operations = Operation.values();
+    for (int i = 0; i < count; ++i) {
+      JournalEntry entry = new JournalEntry();
+      entry.transactionID = in.readLong();
+      entry.operation = operations[in.readByte()];
+      entry.reconfigureResponse = readBytes(in);
+      byte[] failure = readBytes(in);
+      entry.failure = (null != failure) ? deserializeFailure(failure) : null;
+      journal.add(entry);
+    }
+    return journal;
+  }
+
+  private static void writeBytes(TCByteBufferOutput out, byte[] bytes) {
+    if (null == bytes) {
+      out.writeInt(-1);
+    } else {
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  private static byte[] readBytes(TCByteBufferInput in) throws IOException {
+    int length = in.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return bytes;
+  }
+
+  private static byte[] serializeFailure(EntityException failure) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(failure);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static EntityException deserializeFailure(byte[] raw) throws IOException {
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(raw))) {
+      return (EntityException) in.readObject();
+    } catch (ClassNotFoundException cnf) {
+      throw new IOException(cnf);
+    }
+  }
+
+  private void ensureRoomAtTail() {
+    if (this.head + this.size < this.transactionIDs.length) {
+      return;
+    }
+    // Either slide the live entries back to the start or, if the arrays are more than half full, grow them.
+    int capacity = (this.size * 2 > this.transactionIDs.length) ? this.transactionIDs.length * 2 : this.transactionIDs.length;
+    long[] newTransactionIDs = (capacity == this.transactionIDs.length) ? this.transactionIDs : new long[capacity];
+    JournalEntry[] newEntries = (capacity == this.entries.length) ? this.entries : new JournalEntry[capacity];
+    System.arraycopy(this.transactionIDs, this.head, newTransactionIDs, 0, this.size);
+    System.arraycopy(this.entries, this.head, newEntries, 0, this.size);
+    if (newEntries == this.entries) {
+      Arrays.fill(this.entries, this.size, this.entries.length, null);
+    }
+    this.transactionIDs = newTransactionIDs;
+    this.entries = newEntries;
+    this.head = 0;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    out.writeInt(this.size);
+    for (int i = this.head; i < this.head + this.size; ++i) {
+      out.writeObject(this.entries[i]);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    int count = in.readInt();
+    init(Math.max(INITIAL_CAPACITY, count));
+    for (int i = 0; i < count; ++i) {
+      add((JournalEntry) in.readObject());
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "ClientJournal{" + entries() + '}';
+  }
+}
@@ -18,7 +18,10 @@
  */
 package com.tc.objectserver.persistence;
 
+import com.tc.net.ClientID;
+
 import java.io.Serializable;
+import java.util.HashMap;
 
 import org.terracotta.exception.EntityException;
 
@@ -88,4 +91,46 @@ public class EntityData {
       return "JournalEntry{" + "operation=" + operation + ", transactionID=" + transactionID + '}';
     }
   }
+
+  public static enum LogOperation implements Serializable {
+    ENTITY_PUT,
+    ENTITY_REMOVE,
+    JOURNAL_ADD,
+    JOURNAL_REMOVE,
+    COUNTER,
+  }
+
+  /**
+   * A single change to the persisted entity state, as appended to the entity log.  Only the fields relevant to the
+   * operation are set.
+   */
+  public static class LogRecord implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public LogOperation operation;
+    // ENTITY_PUT and ENTITY_REMOVE.
+    public Key key;
+    // ENTITY_PUT only.
+    public Value value;
+    // JOURNAL_ADD and JOURNAL_REMOVE.
+    public ClientID clientID;
+    // JOURNAL_ADD only.
+    public long oldestTransactionOnClient;
+    public JournalEntry journalEntry;
+    // COUNTER only.
+    public String counterName;
+    public long counterValue;
+  }
+
+  /**
+   * The full maps as written by a log compaction.  They are stored as one element, under their generation, so a
+   * snapshot is either entirely there or not there at all.
+   */
+  public static class Snapshot implements Serializable {
+    private static final long serialVersionUID = 1L;
+    
+    public HashMap<Key, Value> entities;
+    public HashMap<ClientID, ClientJournal> entityLifeJournal;
+    public HashMap<String, Long> counters;
+  }
 }
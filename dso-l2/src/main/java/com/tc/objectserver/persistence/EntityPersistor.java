@@ -18,6 +18,8 @@
  */
 package com.tc.objectserver.persistence;
 
+import com.tc.io.TCByteBufferInput;
+import com.tc.io.TCByteBufferOutput;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
 import com.tc.net.ClientID;
@@ -28,16 +30,21 @@ import com.tc.objectserver.persistence.EntityData.Key;
 import com.tc.objectserver.persistence.EntityData.Value;
 import com.tc.util.Assert;
 import com.tc.util.State;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.ObjectInput;
-import java.io.ObjectOutput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.Vector;
+import java.util.zip.CRC32;
 
 import org.terracotta.exception.EntityException;
 import org.terracotta.persistence.IPlatformPersistence;
@@ -45,6 +52,16 @@ import org.terracotta.persistence.IPlatformPersistence;
 
 /**
  * Stores the information relating to the entities currently alive on the platform into persistent storage.
+ * <p>
+ * Each change is written as a single checksummed record appended to the entity log, so its cost is proportional to the
+ * change rather than to the total number of entities and journal entries.  The full maps are only written when the log
+ * is compacted, at which point the log records they cover are discarded.  On load, the maps are read and any log
+ * records written since the last compaction are replayed on top of them.
+ * <p>
+ * Each compaction writes the maps as a new snapshot generation and only then switches to it, with a single write of the
+ * generation number.  Until that write, a restart loads the previous generation and replays the full log; after it, the
+ * new generation and only the records appended since.  The superseded snapshot and log records are deleted last, so a
+ * crash part way through that cleanup just leaves garbage which the next load removes.
  */
 public class EntityPersistor {
   private static final TCLogger LOGGER = TCLogging.getLogger(EntityPersistor.class);
@@ -52,56 +69,95 @@ public class EntityPersistor {
   private static final String ENTITIES_ALIVE_FILE_NAME = "entities_alive.map";
   private static final String JOURNAL_CONTAINER_FILE_NAME = "journal_container.map";
   private static final String COUNTERS_FILE_NAME = "counters.map";
+  // The generation of the current snapshot, absent if the maps are still stored in the files above.
+  private static final String SNAPSHOT_GENERATION_FILE_NAME = "entity_snapshot.generation";
+  private static final String SNAPSHOT_PREFIX = "entity_snapshot.";
   private static final String COUNTERS_CONSUMER_ID = "counters:consumerID";
+  // The index of the first log record not already covered by the maps.
+  private static final String COUNTERS_LOG_START = "counters:logStart";
+  private static final String LOG_RECORD_PREFIX = "entity_log.";
+  private static final int LOG_COMPACTION_THRESHOLD = 1024;
 
   private final IPlatformPersistence storageManager;
   private final HashMap<EntityData.Key, EntityData.Value> entities;
-  private final HashMap<ClientID, List<EntityData.JournalEntry>> entityLifeJournal;
+  private final HashMap<ClientID, ClientJournal> entityLifeJournal;
   private final HashMap<String, Long> counters;
+  private long generation;
+  private long logStart;
+  private long logNext;
 
   @SuppressWarnings({ "unchecked" })
   public EntityPersistor(IPlatformPersistence storageManager) {
     this.storageManager = storageManager;
     try {
-      HashMap<EntityData.Key, EntityData.Value> entities = (HashMap<Key, Value>) this.storageManager.loadDataElement(ENTITIES_ALIVE_FILE_NAME);
+      HashMap<EntityData.Key, EntityData.Value> entities;
+      HashMap<ClientID, ?> entityLifeJournal;
+      HashMap<String, Long> counters;
+      Long generation = (Long) this.storageManager.loadDataElement(SNAPSHOT_GENERATION_FILE_NAME);
+      if (null != generation) {
+        EntityData.Snapshot snapshot = (EntityData.Snapshot) this.storageManager.loadDataElement(SNAPSHOT_PREFIX + generation);
+        Assert.assertNotNull(snapshot);
+        entities = snapshot.entities;
+        entityLifeJournal = snapshot.entityLifeJournal;
+        counters = snapshot.counters;
+        this.generation = generation;
+      } else {
+        // Older versions, and a store which was never compacted, keep the maps in their own files.
+        entities = (HashMap<Key, Value>) this.storageManager.loadDataElement(ENTITIES_ALIVE_FILE_NAME);
+        entityLifeJournal = (HashMap<ClientID, ?>) this.storageManager.loadDataElement(JOURNAL_CONTAINER_FILE_NAME);
+        counters = (HashMap<String, Long>) this.storageManager.loadDataElement(COUNTERS_FILE_NAME);
+        this.generation = 0;
+      }
       this.entities = (null != entities) ? entities : new HashMap<>();
-      HashMap<ClientID, List<EntityData.JournalEntry>> entityLifeJournal = (HashMap<ClientID, List<JournalEntry>>) this.storageManager.loadDataElement(JOURNAL_CONTAINER_FILE_NAME);
-      this.entityLifeJournal = (null != entityLifeJournal) ? entityLifeJournal : new HashMap<>();
-      HashMap<String, Long> counters = (HashMap<String, Long>) this.storageManager.loadDataElement(COUNTERS_FILE_NAME);
+      this.entityLifeJournal = new HashMap<>();
+      if (null != entityLifeJournal) {
+        for (Map.Entry<ClientID, ?> entry : entityLifeJournal.entrySet()) {
+          // Older versions stored each client journal as a List of entries.
+          if (entry.getValue() instanceof List) {
+            ClientJournal journal = new ClientJournal();
+            for (JournalEntry je : (List<JournalEntry>) entry.getValue()) {
+              journal.add(je);
+            }
+            this.entityLifeJournal.put(entry.getKey(), journal);
+          } else {
+            this.entityLifeJournal.put(entry.getKey(), (ClientJournal) entry.getValue());
+          }
+        }
+      }
       this.counters = (null != counters) ? counters : new HashMap<>();
       // Make sure that the consumerID is initialized to 1 (0 reserved for platform).
       if (!this.counters.containsKey(COUNTERS_CONSUMER_ID)) {
         this.counters.put(COUNTERS_CONSUMER_ID, new Long(1));
       }
+      Long logStart = this.counters.get(COUNTERS_LOG_START);
+      this.logStart = (null != logStart) ? logStart : 0L;
+      this.logNext = replayLog(this.logStart);
+      deleteStaleRecords();
     } catch (IOException e) {
       // We don't expect this during startup so just throw it as runtime.
       throw new RuntimeException("Failure reading EntityPersistor map files", e);
     }
+    // Fold anything we replayed into the maps so the log starts out empty.
+    if (this.logNext > this.logStart) {
+      compact();
+    }
   }
 
   public synchronized void clear() {
     this.entities.clear();
     this.entityLifeJournal.clear();
     this.counters.clear();
-    if (!this.counters.containsKey(COUNTERS_CONSUMER_ID)) {
-      this.counters.put(COUNTERS_CONSUMER_ID, new Long(1));
-    }
-    // We can destroy the backing for these objects.
-    try {
-      this.storageManager.storeDataElement(ENTITIES_ALIVE_FILE_NAME, null);
-      this.storageManager.storeDataElement(JOURNAL_CONTAINER_FILE_NAME, null);
-      this.storageManager.storeDataElement(COUNTERS_FILE_NAME, null);
-    } catch (IOException e) {
-      // In general, we have no way of solving this problem so throw it.
-      throw new RuntimeException("Failure storing EntityPersistor map files", e);
-    }
+    this.counters.put(COUNTERS_CONSUMER_ID, new Long(1));
+    // The empty maps become the next generation so the clear is as crash-safe as any other compaction.  The log index
+    // keeps counting up so a record left over from before can never be mistaken for a new one.
+    compact();
   }
 
-  public Collection<EntityData.Value> loadEntityData() {
-    return this.entities.values();
+  public synchronized Collection<EntityData.Value> loadEntityData() {
+    return new ArrayList<>(this.entities.values());
   }
 
-  public boolean containsEntity(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
+  public synchronized boolean containsEntity(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
     LOGGER.debug("containsEntity " + clientID + " " + transactionID + " " + id);
     // This is new so look up the answer and store it in the journal.
     EntityData.Key key = new EntityData.Key();
@@ -175,14 +231,16 @@ public class EntityPersistor {
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.DESTROY, null, error);
   }
 
-  public void entityDestroyed(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
+  public synchronized void entityDestroyed(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id) {
     LOGGER.debug("entityDestroyed " + clientID + " " + transactionID + " " + id);
     EntityData.Key key = new EntityData.Key();
     key.className = id.getClassName();
     key.entityName = id.getEntityName();
     Assert.assertTrue(this.entities.containsKey(key));
-    this.entities.remove(key);
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
+    EntityData.LogRecord record = new EntityData.LogRecord();
+    record.operation = EntityData.LogOperation.ENTITY_REMOVE;
+    record.key = key;
+    applyAndLog(record);
     
     // Record this in the journal - null error on success.
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.DESTROY, null, null);
@@ -211,7 +269,7 @@ public class EntityPersistor {
   /**
    * @return The over-written configuration value.
    */
-  public byte[] entityReconfigureSucceeded(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, byte[] configuration) {
+  public synchronized byte[] entityReconfigureSucceeded(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityID id, long version, byte[] configuration) {
     LOGGER.debug("entityReconfigureSucceeded " + clientID + " " + transactionID);
     String className = id.getClassName();
     String entityName = id.getEntityName();
@@ -226,8 +284,11 @@ public class EntityPersistor {
     val.configuration = configuration;
     Assert.assertEquals(version, val.version);
     
-    this.entities.put(key, val);
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
+    EntityData.LogRecord record = new EntityData.LogRecord();
+    record.operation = EntityData.LogOperation.ENTITY_PUT;
+    record.key = key;
+    record.value = val;
+    applyAndLog(record);
     
     // Record this in the journal.
     addToJournal(clientID, transactionID, oldestTransactionOnClient, EntityData.Operation.RECONFIGURE, previousConfiguration, null);
@@ -236,63 +297,50 @@ public class EntityPersistor {
     return previousConfiguration;
   }
 
-  public long getNextConsumerID() {
+  public synchronized long getNextConsumerID() {
     long consumerID = this.counters.get(COUNTERS_CONSUMER_ID);
-    this.counters.put(COUNTERS_CONSUMER_ID, new Long(consumerID + 1));
-    storeToDisk(COUNTERS_FILE_NAME, this.counters);
+    EntityData.LogRecord record = new EntityData.LogRecord();
+    record.operation = EntityData.LogOperation.COUNTER;
+    record.counterName = COUNTERS_CONSUMER_ID;
+    record.counterValue = consumerID + 1;
+    applyAndLog(record);
     return consumerID;
   }
 
   public synchronized void removeTrackingForClient(ClientID sourceNodeID) {
-    this.entityLifeJournal.remove(sourceNodeID);
-  }
-
-
-  private List<JournalEntry> filterJournal(List<JournalEntry> list, long oldestTransactionOnClient) {
-    Assert.assertNotNull(list);
-    List<JournalEntry> newList = new Vector<>();
-    for (JournalEntry entry : list) {
-      if (entry.transactionID >= oldestTransactionOnClient) {
-        newList.add(entry);
-      }
+    if (this.entityLifeJournal.containsKey(sourceNodeID)) {
+      EntityData.LogRecord record = new EntityData.LogRecord();
+      record.operation = EntityData.LogOperation.JOURNAL_REMOVE;
+      record.clientID = sourceNodeID;
+      applyAndLog(record);
     }
-    return newList;
   }
 
+
   private synchronized void addToJournal(ClientID clientID, long transactionID, long oldestTransactionOnClient, EntityData.Operation operation, byte[] reconfigureResult, EntityException error) {
-    List<EntityData.JournalEntry> rawJournal = this.entityLifeJournal.get(clientID);
-    // Note that this may be the first time we encountered this client.
-    if (null == rawJournal) {
-      rawJournal = new Vector<>();
-    }
-    List<EntityData.JournalEntry> clientJournal = filterJournal(rawJournal, oldestTransactionOnClient);
     JournalEntry newEntry = new JournalEntry();
     newEntry.operation = operation;
     newEntry.transactionID = transactionID;
     newEntry.failure = error;
     newEntry.reconfigureResponse = reconfigureResult;
-    clientJournal.add(newEntry);
-    this.entityLifeJournal.put(clientID, clientJournal);
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+    EntityData.LogRecord record = new EntityData.LogRecord();
+    record.operation = EntityData.LogOperation.JOURNAL_ADD;
+    record.clientID = clientID;
+    record.oldestTransactionOnClient = oldestTransactionOnClient;
+    record.journalEntry = newEntry;
+    applyAndLog(record);
   }
 
   private synchronized JournalEntry getEntryForTransaction(ClientID clientID, long transactionID) {
-    JournalEntry foundEntry = null;
-    List<EntityData.JournalEntry> clientJournal =  this.entityLifeJournal.get(clientID);
+    ClientJournal clientJournal = this.entityLifeJournal.get(clientID);
     // Note that we may not know anything about this client.
-    LOGGER.debug("checking " + clientID + " " + clientJournal);
-    if (null != clientJournal) {
-      for (JournalEntry entry : clientJournal) {
-        if (entry.transactionID == transactionID) {
-          foundEntry = entry;
-          break;
-        }
-      }
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("checking " + clientID + " " + clientJournal);
     }
-    return foundEntry;
+    return (null != clientJournal) ? clientJournal.get(transactionID) : null;
   }
 
-  private void addNewEntityToMap(EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
+  private synchronized void addNewEntityToMap(EntityID id, long version, long consumerID, boolean canDelete, byte[] configuration) {
     String className = id.getClassName();
     String entityName = id.getEntityName();
     
@@ -306,8 +354,11 @@ public class EntityPersistor {
     value.canDelete = canDelete;
     value.entityName = entityName;
     value.configuration = configuration;
-    this.entities.put(key, value);
-    storeToDisk(ENTITIES_ALIVE_FILE_NAME, this.entities);
+    EntityData.LogRecord record = new EntityData.LogRecord();
+    record.operation = EntityData.LogOperation.ENTITY_PUT;
+    record.key = key;
+    record.value = value;
+    applyAndLog(record);
   }
   
   public synchronized void setState(State state, Set<ConnectionID> connectedClients) {
@@ -319,49 +370,207 @@ public class EntityPersistor {
     for (ClientID client : clients) {
       this.entityLifeJournal.remove(client);
     }
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
+    compact();
   }
   
-  public synchronized void serialize(ObjectOutput bucket) throws IOException {
-    Set<ClientID> locals = this.entityLifeJournal.keySet();
-    int size = locals.size();
-    bucket.writeInt(size);
-    for (ClientID local : locals) {
-      bucket.writeObject(local);
-      bucket.writeObject(this.entityLifeJournal.get(local));
+  /**
+   * Writes the client journals for passive sync.  Each client is written as its own self-contained chunk (the client ID
+   * followed by its encoded journal) so the passive can fold them in one at a time.
+   */
+  public synchronized void serialize(TCByteBufferOutput bucket) throws IOException {
+    bucket.writeInt(this.entityLifeJournal.size());
+    for (Map.Entry<ClientID, ClientJournal> entry : this.entityLifeJournal.entrySet()) {
+      bucket.writeLong(entry.getKey().toLong());
+      entry.getValue().encode(bucket);
     }
   }  
   
-  public synchronized void layer(ObjectInput bucket) throws IOException {
-    try {
-      int size = bucket.readInt();
-      LOGGER.debug("log size " + size);
-      for (int x=0;x<size;x++) {
-        ClientID key = (ClientID)bucket.readObject();
-        @SuppressWarnings("unchecked")
-        List<EntityData.JournalEntry> journal = (List<EntityData.JournalEntry>)bucket.readObject();
-        List<EntityData.JournalEntry> check = (List<EntityData.JournalEntry>)this.entityLifeJournal.get(key);
-        if (check == null) {
-          this.entityLifeJournal.put(key, journal);
-          LOGGER.debug(key + " putting " + journal);
-        } else {
-          int pos = 0;
-          for (JournalEntry je : journal) {
-            while (pos < check.size() && check.get(pos).transactionID < je.transactionID) {
-              pos += 1;
-            }
-            if (pos == check.size() || check.get(pos).transactionID != je.transactionID) {
-              check.add(pos, je);
-            }
-          }
-          LOGGER.debug(key + " layering " + journal + " " + check);
-          this.entityLifeJournal.put(key, check);
+  /**
+   * Merges the client journals written by {@link #serialize(TCByteBufferOutput)} on the active into ours.  Entries we
+   * already have are left alone.
+   */
+  public synchronized void layer(TCByteBufferInput bucket) throws IOException {
+    int size = bucket.readInt();
+    LOGGER.debug("log size " + size);
+    for (int x=0;x<size;x++) {
+      ClientID key = new ClientID(bucket.readLong());
+      ClientJournal journal = ClientJournal.decode(bucket);
+      ClientJournal check = this.entityLifeJournal.get(key);
+      if (check == null) {
+        this.entityLifeJournal.put(key, journal);
+      } else {
+        check.merge(journal);
+      }
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug(key + " layering " + journal.size() + " entries");
+      }
+    }
+    compact();
+  }
+
+  /**
+   * Applies the change to the in-memory maps and appends it to the log, compacting the log if it has grown too long.
+   */
+  private synchronized void applyAndLog(EntityData.LogRecord record) {
+    applyRecord(record);
+    storeToDisk(LOG_RECORD_PREFIX + this.logNext, encodeRecord(record));
+    this.logNext += 1;
+    if (this.logNext - this.logStart >= LOG_COMPACTION_THRESHOLD) {
+      compact();
+    }
+  }
+
+  /**
+   * Note that on load a record is only ever replayed over the snapshot it was written after.
+   */
+  private void applyRecord(EntityData.LogRecord record) {
+    switch (record.operation) {
+      case ENTITY_PUT:
+        this.entities.put(record.key, record.value);
+        break;
+      case ENTITY_REMOVE:
+        this.entities.remove(record.key);
+        break;
+      case JOURNAL_ADD: {
+        ClientJournal clientJournal = this.entityLifeJournal.get(record.clientID);
+        // Note that this may be the first time we encountered this client.
+        if (null == clientJournal) {
+          clientJournal = new ClientJournal();
+          this.entityLifeJournal.put(record.clientID, clientJournal);
         }
+        clientJournal.trim(record.oldestTransactionOnClient);
+        // This is a no-op if the entry is already there.
+        clientJournal.add(record.journalEntry);
+        break;
       }
+      case JOURNAL_REMOVE:
+        this.entityLifeJournal.remove(record.clientID);
+        break;
+      case COUNTER:
+        this.counters.put(record.counterName, record.counterValue);
+        break;
+      default:
+        throw new AssertionError("unknown log operation " + record.operation);
+    }
+  }
+
+  /**
+   * Writes out the full maps as the next snapshot generation, switches to it and then discards the previous generation
+   * and the log records it now covers.
+   */
+  private synchronized void compact() {
+    long next = this.generation + 1;
+    this.counters.put(COUNTERS_LOG_START, this.logNext);
+    EntityData.Snapshot snapshot = new EntityData.Snapshot();
+    snapshot.entities = this.entities;
+    snapshot.entityLifeJournal = this.entityLifeJournal;
+    snapshot.counters = this.counters;
+    storeToDisk(SNAPSHOT_PREFIX + next, snapshot);
+    // This is the switch:  until it lands a restart still uses the previous generation and replays the whole log.
+    storeToDisk(SNAPSHOT_GENERATION_FILE_NAME, next);
+    deleteGeneration(this.generation);
+    deleteLogRecords(this.logStart, this.logNext);
+    this.generation = next;
+    this.logStart = this.logNext;
+  }
+
+  private void deleteGeneration(long generation) {
+    if (0 == generation) {
+      storeToDisk(ENTITIES_ALIVE_FILE_NAME, null);
+      storeToDisk(JOURNAL_CONTAINER_FILE_NAME, null);
+      storeToDisk(COUNTERS_FILE_NAME, null);
+    } else {
+      storeToDisk(SNAPSHOT_PREFIX + generation, null);
+    }
+  }
+
+  /**
+   * Removes whatever a crash during compaction may have left behind:  a snapshot which was written but never switched
+   * to, the generation it replaced, and log records which the current generation already covers.
+   */
+  private void deleteStaleRecords() throws IOException {
+    storeToDisk(SNAPSHOT_PREFIX + (this.generation + 1), null);
+    if (this.generation > 0) {
+      deleteGeneration(this.generation - 1);
+    }
+    long index = this.logStart - 1;
+    while (index >= 0 && null != this.storageManager.loadDataElement(LOG_RECORD_PREFIX + index)) {
+      storeToDisk(LOG_RECORD_PREFIX + index, null);
+      index -= 1;
+    }
+  }
+
+  private void deleteLogRecords(long from, long to) {
+    for (long index = from; index < to; ++index) {
+      storeToDisk(LOG_RECORD_PREFIX + index, null);
+    }
+  }
+
+  /**
+   * @return The index after the last valid record replayed.
+   */
+  private long replayLog(long start) throws IOException {
+    long index = start;
+    byte[] raw = (byte[]) this.storageManager.loadDataElement(LOG_RECORD_PREFIX + index);
+    while (null != raw) {
+      EntityData.LogRecord record = decodeRecord(raw);
+      if (null == record) {
+        // A torn write can only happen at the tail of the log.  Discard it and anything after it.
+        LOGGER.warn("Discarding corrupt entity log record " + index);
+        long corrupt = index;
+        while (null != this.storageManager.loadDataElement(LOG_RECORD_PREFIX + corrupt)) {
+          storeToDisk(LOG_RECORD_PREFIX + corrupt, null);
+          corrupt += 1;
+        }
+        break;
+      }
+      applyRecord(record);
+      index += 1;
+      raw = (byte[]) this.storageManager.loadDataElement(LOG_RECORD_PREFIX + index);
+    }
+    if (index > start) {
+      LOGGER.debug("replayed " + (index - start) + " entity log records");
+    }
+    return index;
+  }
+
+  /**
+   * A record is stored as the CRC32 of the serialized record followed by the serialized record.
+   */
+  private static byte[] encodeRecord(EntityData.LogRecord record) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      ObjectOutputStream out = new ObjectOutputStream(bytes);
+      out.writeObject(record);
+      out.close();
+      byte[] body = bytes.toByteArray();
+      CRC32 crc = new CRC32();
+      crc.update(body);
+      return ByteBuffer.allocate(Long.BYTES + body.length).putLong(crc.getValue()).put(body).array();
+    } catch (IOException e) {
+      throw new RuntimeException("Failure encoding EntityPersistor log record", e);
+    }
+  }
+
+  /**
+   * @return The decoded record or null if the checksum did not match.
+   */
+  private static EntityData.LogRecord decodeRecord(byte[] raw) throws IOException {
+    if (raw.length < Long.BYTES) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(raw);
+    long checksum = buffer.getLong();
+    CRC32 crc = new CRC32();
+    crc.update(raw, Long.BYTES, raw.length - Long.BYTES);
+    if (crc.getValue() != checksum) {
+      return null;
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(raw, Long.BYTES, raw.length - Long.BYTES))) {
+      return (EntityData.LogRecord) in.readObject();
     } catch (ClassNotFoundException cnf) {
       throw new IOException(cnf);
     }
-    storeToDisk(JOURNAL_CONTAINER_FILE_NAME, this.entityLifeJournal);
   }
 
   private void storeToDisk(String dataName, Serializable dataElement) {
@@ -28,11 +28,14 @@ import com.tc.util.Assert;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -41,15 +44,30 @@ import java.util.concurrent.Future;
  * Stores the information mapping the client-local TransactionIDs of in-flight transactions into a global order.
  * This is persisted because reconnect on restart needs to ensure that the transactions being replayed are done so in
  * the same order as their original order.
+ * <p>
+ * Persistence is group-committed:  the sequence writes are started as each message arrives but are only waited on,
+ * along with a single write of the received count, when {@link #flush()} is called.  Callers must flush before
+ * releasing any RECEIVED acknowledgement which depends on the ordering being durable.
  */
 public class TransactionOrderPersistor {
   private static final String RECEIVED_TRANSACTION_COUNT_FILE_NAME = "received_transaction_count.map";
+//  bound on the number of outstanding sequence writes before the caller is made to flush inline
+  private static final int MAX_PENDING_SEQUENCE_STORES = 1024;
   
   private final IPlatformPersistence storageManager;
   private Long receivedTransactionCount;
+  private boolean receivedTransactionCountDirty = false;
+  private List<Future<Void>> pendingSequenceStores = new ArrayList<>();
+//  serializes flushes so an older received count can never overwrite a newer one
+  private final Object flushLock = new Object();
     
-  private List<ClientTransaction> globalList = null;
   private final Set<Long> clientNodeIDs;
+//  in-memory index of every tracked transaction:  client -> (local transaction -> global ID), in local transaction order.
+//  maintained as messages arrive so resend replay never has to read the sequences back from storage
+  private final Map<Long, LinkedHashMap<Long, Long>> transactionIndex = new HashMap<>();
+//  sorted global IDs of every tracked transaction.  the replay index of a transaction is the rank of its global ID in 
+//  this array.  rebuilt lazily, which only happens once for a replay since no new messages arrive during it
+  private long[] globalOrder = null;
   
   public TransactionOrderPersistor(IPlatformPersistence storageManager, Set<ChannelID> clients) {
     this.storageManager = storageManager;
@@ -66,15 +84,35 @@ public class TransactionOrderPersistor {
       // We don't expect this during startup so just throw it as runtime.
       throw new RuntimeException("Failure reading TransactionOrderPersistor count file", e);
     }
-    this.receivedTransactionCount = (null != receivedTransactionCount) ? receivedTransactionCount : new Long(0L);
+    long count = (null != receivedTransactionCount) ? receivedTransactionCount : 0L;
+    // The count is written lazily so a crash can leave sequences with a higher global ID than the stored count.  Make
+    // sure we never hand out a global ID which is already persisted.
+    for (long clientID : this.clientNodeIDs) {
+      try {
+        List<IPlatformPersistence.SequenceTuple> transactions = this.storageManager.loadSequence(clientID);
+        LinkedHashMap<Long, Long> clientIndex = new LinkedHashMap<>();
+        if (null != transactions) {
+          for (IPlatformPersistence.SequenceTuple tuple : transactions) {
+            count = Math.max(count, tuple.globalSequenceID);
+            clientIndex.put(tuple.localSequenceID, tuple.globalSequenceID);
+          }
+        }
+        this.transactionIndex.put(clientID, clientIndex);
+      } catch (IOException e) {
+        throw new RuntimeException("Failure reading TransactionOrderPersistor sequence", e);
+      }
+    }
+    this.receivedTransactionCount = count;
   }
 
   /**
    * Called to handle the changes to persisted transactions, based on a new one.
    * This new transactionID will be enqueued as the most recent transaction for the given source but also globally.
    * Any transactions for this source which are older than oldestTransactionOnClient will be removed from persistence.
+   * <p>
+   * The change is not guaranteed to be durable until the next call to {@link #flush()}.
    */
-  public synchronized void updateWithNewMessage(ClientID source, TransactionID transactionID, TransactionID oldestTransactionOnClient) {
+  public void updateWithNewMessage(ClientID source, TransactionID transactionID, TransactionID oldestTransactionOnClient) {
     // We need to ensure that the arguments are sane.
     if ((null == oldestTransactionOnClient) || (null == transactionID)) {
       throw new IllegalArgumentException("Transactions cannot be null");
@@ -83,114 +121,132 @@ public class TransactionOrderPersistor {
       throw new IllegalArgumentException("Oldest transaction cannot come after new transaction");
     }
     
-    // This operation requires that the globalList be rebuilt.
-    this.globalList = null;
-    
-    // Make sure we have tracking for this client.
-    this.clientNodeIDs.add(source.toLong());
-    
-    // Increment the number of received transactions.
-    this.receivedTransactionCount += 1;
-    storeToDisk(RECEIVED_TRANSACTION_COUNT_FILE_NAME, this.receivedTransactionCount);
-    
-    // Create the new pair.
-    IPlatformPersistence.SequenceTuple transaction = new IPlatformPersistence.SequenceTuple();
-    transaction.localSequenceID = transactionID.toLong();
-    transaction.globalSequenceID = this.receivedTransactionCount;
-    
-    // We now pass this straight into the underlying storage.
-    if (!source.isNull()) {
-      Future<Void> syncFuture = this.storageManager.fastStoreSequence(source.toLong(), transaction, oldestTransactionOnClient.toLong());
-    
-    // TODO:  We need to float this future blocking on the sync further out.
-      try {
-        syncFuture.get();
-      } catch (InterruptedException e) {
-        Assert.fail(e.getLocalizedMessage());
-      } catch (ExecutionException e) {
-        Assert.fail(e.getLocalizedMessage());
+    boolean mustFlush = false;
+    synchronized (this) {
+      // This operation requires that the global order be rebuilt.
+      this.globalOrder = null;
+      
+      // Make sure we have tracking for this client.
+      this.clientNodeIDs.add(source.toLong());
+      
+      // Increment the number of received transactions.  This is written out with the next flush.
+      this.receivedTransactionCount += 1;
+      this.receivedTransactionCountDirty = true;
+      
+      // Create the new pair.
+      IPlatformPersistence.SequenceTuple transaction = new IPlatformPersistence.SequenceTuple();
+      transaction.localSequenceID = transactionID.toLong();
+      transaction.globalSequenceID = this.receivedTransactionCount;
+      
+      // We now pass this straight into the underlying storage.
+      if (!source.isNull()) {
+        // Update the index the same way the storage will be updated:  drop anything older than the client's oldest.
+        LinkedHashMap<Long, Long> clientIndex = this.transactionIndex.get(source.toLong());
+        if (null == clientIndex) {
+          clientIndex = new LinkedHashMap<>();
+          this.transactionIndex.put(source.toLong(), clientIndex);
+        }
+        Iterator<Long> locals = clientIndex.keySet().iterator();
+        while (locals.hasNext() && locals.next() < oldestTransactionOnClient.toLong()) {
+          locals.remove();
+        }
+        clientIndex.put(transaction.localSequenceID, transaction.globalSequenceID);
+        this.pendingSequenceStores.add(this.storageManager.fastStoreSequence(source.toLong(), transaction, oldestTransactionOnClient.toLong()));
+        mustFlush = this.pendingSequenceStores.size() >= MAX_PENDING_SEQUENCE_STORES;
       }
     }
+    if (mustFlush) {
+      flush();
+    }
   }
 
   /**
-   * Called when we no longer need to track transaction ordering information from source (presumably due to a disconnect).
+   * Makes every change made through {@link #updateWithNewMessage(ClientID, TransactionID, TransactionID)} so far durable,
+   * writing the received count once for the whole group and waiting for all the outstanding sequence writes.
+   * <p>
+   * Must not be called while holding the monitor of this persistor.
    */
-  public synchronized void removeTrackingForClient(ClientID source) {
-    long sourceID = source.toLong();
-    try {
-      this.storageManager.deleteSequence(sourceID);
-    } catch (IOException e) {
-      Assert.fail(e.getLocalizedMessage());
+  public void flush() {
+    synchronized (this.flushLock) {
+      List<Future<Void>> toWait = null;
+      Long countToStore = null;
+      synchronized (this) {
+        if (!this.pendingSequenceStores.isEmpty()) {
+          toWait = this.pendingSequenceStores;
+          this.pendingSequenceStores = new ArrayList<>();
+        }
+        if (this.receivedTransactionCountDirty) {
+          countToStore = this.receivedTransactionCount;
+          this.receivedTransactionCountDirty = false;
+        }
+      }
+      if (null != countToStore) {
+        storeToDisk(RECEIVED_TRANSACTION_COUNT_FILE_NAME, countToStore);
+      }
+      if (null != toWait) {
+        for (Future<Void> syncFuture : toWait) {
+          try {
+            syncFuture.get();
+          } catch (InterruptedException e) {
+            Assert.fail(e.getLocalizedMessage());
+          } catch (ExecutionException e) {
+            Assert.fail(e.getLocalizedMessage());
+          }
+        }
+      }
     }
-    this.clientNodeIDs.remove(sourceID);
   }
 
-  private static class ClientTransaction {
-    public long clientID;
-    public long localTransactionID;
-    public long globalTransactionID;
-
-    @Override
-    public int hashCode() {
-      return (int) ((7 * clientID)
-          ^ (5 * localTransactionID)
-          ^ globalTransactionID);
-    }
-    @Override
-    public boolean equals(Object obj) {
-      boolean isEqual = (obj == this);
-      if (!isEqual && (obj instanceof ClientTransaction)) {
-        ClientTransaction other = (ClientTransaction) obj;
-        isEqual = (this.clientID == other.clientID)
-            && (this.localTransactionID == other.localTransactionID)
-            && (this.globalTransactionID == other.globalTransactionID);
+  /**
+   * Called when we no longer need to track transaction ordering information from source (presumably due to a disconnect).
+   */
+  public void removeTrackingForClient(ClientID source) {
+    // Make sure no store for this client is still in flight when it is deleted.
+    flush();
+    synchronized (this) {
+      long sourceID = source.toLong();
+      try {
+        this.storageManager.deleteSequence(sourceID);
+      } catch (IOException e) {
+        Assert.fail(e.getLocalizedMessage());
       }
-      return isEqual;
+      this.clientNodeIDs.remove(sourceID);
+      this.transactionIndex.remove(sourceID);
+      this.globalOrder = null;
     }
   }
-  
-  private List<ClientTransaction> buildGlobalListIfNessessary() {
-    if (null == this.globalList) {
-      TreeMap<Long, ClientTransaction> sortMap = new TreeMap<>();
-      for (long clientID : this.clientNodeIDs) {
-        List<IPlatformPersistence.SequenceTuple> transactions = null;
-        try {
-          transactions = this.storageManager.loadSequence(clientID);
-        } catch (IOException e) {
-          Assert.fail(e.getLocalizedMessage());
-        }
-        for (IPlatformPersistence.SequenceTuple tuple : transactions) {
-          ClientTransaction transaction = new ClientTransaction();
-          transaction.clientID = clientID;
-          transaction.localTransactionID = tuple.localSequenceID;
-          transaction.globalTransactionID = tuple.globalSequenceID;
-          sortMap.put(tuple.globalSequenceID, transaction);
+
+  private long[] buildGlobalOrderIfNecessary() {
+    if (null == this.globalOrder) {
+      int count = 0;
+      for (LinkedHashMap<Long, Long> clientIndex : this.transactionIndex.values()) {
+        count += clientIndex.size();
+      }
+      long[] order = new long[count];
+      int next = 0;
+      for (LinkedHashMap<Long, Long> clientIndex : this.transactionIndex.values()) {
+        for (long globalID : clientIndex.values()) {
+          order[next++] = globalID;
         }
       }
-      globalList = Collections.unmodifiableList(new ArrayList<>(sortMap.values()));
+      Arrays.sort(order);
+      this.globalOrder = order;
     }
-    return globalList;
+    return this.globalOrder;
   }
 
   /**
    * Called to ask where a given client-local transaction exists in the global transaction list.
    * Returns the index or -1 if it isn't known.
    */
-  public int getIndexToReplay(ClientID source, TransactionID transaction) {
-    long sourceID = source.toLong();
-    long transactionID = transaction.toLong();
-    
-    int index = -1;
-    List<ClientTransaction> list = buildGlobalListIfNessessary();
-    int seek = 0;
-    for (ClientTransaction oneTransaction : list) {
-      if ((oneTransaction.clientID == sourceID) && (oneTransaction.localTransactionID == transactionID)) {
-        index = seek;
-        break;
-      }
-      seek += 1;
+  public synchronized int getIndexToReplay(ClientID source, TransactionID transaction) {
+    LinkedHashMap<Long, Long> clientIndex = this.transactionIndex.get(source.toLong());
+    Long globalID = (null != clientIndex) ? clientIndex.get(transaction.toLong()) : null;
+    if (null == globalID) {
+      return -1;
     }
+    int index = Arrays.binarySearch(buildGlobalOrderIfNecessary(), globalID);
+    Assert.assertTrue(index >= 0);
     return index;
   }
 
@@ -198,15 +254,19 @@ public class TransactionOrderPersistor {
    * Clears all internal state.
    */
   public void clearAllRecords() {
-    this.globalList = null;
-    for (long nodeID : clientNodeIDs) {
-      try {
-        this.storageManager.deleteSequence(nodeID);
-      } catch (IOException e) {
-        Assert.fail(e.getLocalizedMessage());
+    flush();
+    synchronized (this) {
+      this.globalOrder = null;
+      for (long nodeID : clientNodeIDs) {
+        try {
+          this.storageManager.deleteSequence(nodeID);
+        } catch (IOException e) {
+          Assert.fail(e.getLocalizedMessage());
+        }
       }
+      this.clientNodeIDs.clear();
+      this.transactionIndex.clear();
     }
-    this.clientNodeIDs.clear();
   }
 
   /**
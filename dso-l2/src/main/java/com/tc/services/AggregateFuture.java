@@ -0,0 +1,79 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.services;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A future which is done once all of the futures it wraps are done.  Used to give a broadcast a single future covering
+ * the response from every client.
+ */
+class AggregateFuture implements Future<Void> {
+  private final List<Future<Void>> futures;
+
+  AggregateFuture(List<Future<Void>> futures) {
+    this.futures = futures;
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    return false;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return false;
+  }
+
+  @Override
+  public boolean isDone() {
+    for (Future<Void> future : this.futures) {
+      if (!future.isDone()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public Void get() throws InterruptedException, ExecutionException {
+    for (Future<Void> future : this.futures) {
+      future.get();
+    }
+    return null;
+  }
+
+  @Override
+  public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    long timeoutTime = unit.toNanos(timeout) + System.nanoTime();
+    for (Future<Void> future : this.futures) {
+      future.get(timeoutTime - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+    return null;
+  }
+
+  @Override
+  public String toString() {
+    return "AggregateFuture{" + this.futures.size() + " futures}";
+  }
+}
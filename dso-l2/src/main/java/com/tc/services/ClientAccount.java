@@ -19,44 +19,104 @@
 
 package com.tc.services;
 
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
 import com.tc.entity.ServerEntityMessage;
+import com.tc.net.ClientID;
 import com.tc.net.protocol.tcm.MessageChannel;
 import com.tc.net.protocol.tcm.TCMessageType;
 import com.tc.object.EntityDescriptor;
+import com.tc.objectserver.api.ServerEntityMessageCoalescer;
 import com.tc.util.Assert;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Map;
 
 public class ClientAccount {
   private final MessageChannel channel;
+  // Null if messages are always sent on their own.
+  private final ServerEntityMessageCoalescer coalescer;
   private final Map<Long, ResponseWaiter> waitingResponse = new HashMap<>();
   private volatile boolean open = true;
   private long responseId = 0;
+  // Flushes handed back by the coalescer.  Queued under our monitor so they keep the order of the messages, but run
+  // outside it under the flush lock since handing a frame to the respond stage can block.
+  private final Deque<Runnable> pendingFlushes = new ArrayDeque<>();
+  private final Object flushLock = new Object();
 
   ClientAccount(MessageChannel channel) {
+    this(channel, null);
+  }
+
+  ClientAccount(MessageChannel channel, ServerEntityMessageCoalescer coalescer) {
     this.channel = channel;
+    this.coalescer = coalescer;
   }
 
-  synchronized ResponseWaiter send(EntityDescriptor entityDescriptor, byte[] payload) {
+  ResponseWaiter send(EntityDescriptor entityDescriptor, byte[] payload) {
+    ResponseWaiter responseWaiter = queue(entityDescriptor, payload);
+    flushPending();
+    return responseWaiter;
+  }
+
+  private synchronized ResponseWaiter queue(EntityDescriptor entityDescriptor, byte[] payload) {
     ResponseWaiter responseWaiter = new ResponseWaiter();
     if (!open) {
       responseWaiter.done();
     } else {
-      waitingResponse.put(responseId, responseWaiter);
-      ServerEntityMessage message = (ServerEntityMessage) channel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
-      message.setMessage(entityDescriptor, payload, responseId++);
-      if (!message.send()) {
-        if (waitingResponse.remove(responseId, responseWaiter)) {
-          responseWaiter.done();
-        }
+      long id = responseId++;
+      waitingResponse.put(id, responseWaiter);
+      if (!coalesce(entityDescriptor, payload, id)) {
+        ServerEntityMessage message = (ServerEntityMessage) channel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
+        message.setMessage(entityDescriptor, payload, id);
+        sendAwaitingResponse(message, id, responseWaiter);
       }
     }
     return responseWaiter;
   }
 
-  synchronized void sendNoResponse(EntityDescriptor entityDescriptor, byte[] payload) {
-    if (open) {
+  /**
+   * As {@link #send(EntityDescriptor, byte[])} but with a payload shared with the messages to other clients.
+   */
+  ResponseWaiter send(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload) {
+    ResponseWaiter responseWaiter = queue(entityDescriptor, sharedPayload);
+    flushPending();
+    return responseWaiter;
+  }
+
+  private synchronized ResponseWaiter queue(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload) {
+    ResponseWaiter responseWaiter = new ResponseWaiter();
+    if (!open) {
+      responseWaiter.done();
+    } else {
+      long id = responseId++;
+      waitingResponse.put(id, responseWaiter);
+      if (!coalesce(entityDescriptor, sharedPayload, id)) {
+        ServerEntityMessage message = (ServerEntityMessage) channel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
+        message.setMessage(entityDescriptor, sharedPayload, id);
+        sendAwaitingResponse(message, id, responseWaiter);
+      }
+    }
+    return responseWaiter;
+  }
+
+  private void sendAwaitingResponse(ServerEntityMessage message, long id, ResponseWaiter responseWaiter) {
+    if (!message.send()) {
+      if (waitingResponse.remove(id, responseWaiter)) {
+        responseWaiter.done();
+      }
+    }
+  }
+
+  void sendNoResponse(EntityDescriptor entityDescriptor, byte[] payload) {
+    queueNoResponse(entityDescriptor, payload);
+    flushPending();
+  }
+
+  private synchronized void queueNoResponse(EntityDescriptor entityDescriptor, byte[] payload) {
+    if (open && !coalesce(entityDescriptor, payload, null)) {
       ServerEntityMessage message = (ServerEntityMessage) channel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
       message.setMessage(entityDescriptor, payload);
       if (!message.send()) {
@@ -65,6 +125,56 @@ public class ClientAccount {
     }
   }
 
+  void sendNoResponse(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload) {
+    queueNoResponse(entityDescriptor, sharedPayload);
+    flushPending();
+  }
+
+  private synchronized void queueNoResponse(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload) {
+    if (open && !coalesce(entityDescriptor, sharedPayload, null)) {
+      ServerEntityMessage message = (ServerEntityMessage) channel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
+      message.setMessage(entityDescriptor, sharedPayload);
+      if (!message.send()) {
+//  message not delivered.  This call is only best efforts so ignore.        
+      }
+    }
+  }
+
+  private boolean coalesce(EntityDescriptor entityDescriptor, byte[] payload, Long id) {
+    return null != coalescer && coalesce(entityDescriptor, new TCByteBuffer[] { TCByteBufferFactory.wrap(payload) }, id);
+  }
+
+  /**
+   * Packs the message in with the acks and responses already headed to this client, so many messages go out in one
+   * frame.  Once the coalescer is running every message to the client takes this path, so they stay in order.
+   */
+  private boolean coalesce(EntityDescriptor entityDescriptor, TCByteBuffer[] payload, Long id) {
+    if (null == coalescer) {
+      return false;
+    }
+    Runnable flush = coalescer.addServerEntityMessage((ClientID) channel.getRemoteNodeID(), entityDescriptor, payload, id);
+    if (null == flush) {
+      return false;
+    }
+    pendingFlushes.add(flush);
+    return true;
+  }
+
+  private void flushPending() {
+    if (null != coalescer) {
+      synchronized (flushLock) {
+        Runnable flush;
+        while (null != (flush = nextFlush())) {
+          flush.run();
+        }
+      }
+    }
+  }
+
+  private synchronized Runnable nextFlush() {
+    return pendingFlushes.poll();
+  }
+
   synchronized void close() {
     open = false;
     for (ResponseWaiter responseWaiter : waitingResponse.values()) {
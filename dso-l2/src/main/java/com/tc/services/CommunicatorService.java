@@ -23,10 +23,12 @@ import com.tc.net.protocol.tcm.MessageChannel;
 import com.tc.object.net.DSOChannelManager;
 import com.tc.object.net.DSOChannelManagerEventListener;
 import com.tc.objectserver.api.ManagedEntity;
+import com.tc.objectserver.api.ServerEntityMessageCoalescer;
+import com.tc.objectserver.handshakemanager.ServerClientHandshakeManager;
 import com.tc.util.Assert;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import org.terracotta.entity.ClientCommunicator;
@@ -36,13 +38,16 @@ import org.terracotta.entity.ServiceProviderCleanupException;
 
 public class CommunicatorService implements ImplementationProvidedServiceProvider, DSOChannelManagerEventListener {
   private final ConcurrentMap<NodeID, ClientAccount> clientAccounts = new ConcurrentHashMap<>();
+  private volatile ServerEntityMessageCoalescer coalescer;
   private boolean serverIsActive;
   // We have late-bound logic so make sure that is called.
   private boolean wasInitialized;
 
   @Override
   public void channelCreated(MessageChannel channel) {
-    clientAccounts.put(channel.getRemoteNodeID(), new ClientAccount(channel));
+    // Older clients of the same version would read coalesced messages as results, they get theirs on their own.
+    boolean coalesce = Boolean.TRUE.equals(channel.getAttachment(ServerClientHandshakeManager.COALESCED_SERVER_MESSAGES_ATTACHMENT));
+    clientAccounts.put(channel.getRemoteNodeID(), new ClientAccount(channel, coalesce ? coalescer : null));
   }
 
   @Override
@@ -76,7 +81,7 @@ public class CommunicatorService implements ImplementationProvidedServiceProvide
 
   @Override
   public Collection<Class<?>> getProvidedServiceTypes() {
-    return Collections.singleton(ClientCommunicator.class);
+    return Arrays.asList(ClientCommunicator.class, MulticastClientCommunicator.class);
   }
 
   public void close() {
@@ -96,6 +101,14 @@ public class CommunicatorService implements ImplementationProvidedServiceProvide
     this.serverIsActive = true;
   }
 
+  /**
+   * Messages to clients connecting after this is set are packed in with their acks and responses rather than sent on
+   * their own, provided the client advertised in its handshake that it unpacks them.
+   */
+  public void setMessageCoalescer(ServerEntityMessageCoalescer coalescer) {
+    this.coalescer = coalescer;
+  }
+
   public void setChannelManager(DSOChannelManager dsoChannelManager) {
     dsoChannelManager.addEventListener(this);
     this.wasInitialized = true;
@@ -18,18 +18,22 @@
  */
 package com.tc.services;
 
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
 import com.tc.net.NodeID;
 import com.tc.object.EntityDescriptor;
 import com.tc.objectserver.api.ManagedEntity;
 import com.tc.objectserver.entity.ClientDescriptorImpl;
 import com.tc.util.Assert;
 
-import org.terracotta.entity.ClientCommunicator;
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodec;
 import org.terracotta.entity.MessageCodecException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -37,7 +41,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 
-public class EntityClientCommunicatorService implements ClientCommunicator {
+public class EntityClientCommunicatorService implements MulticastClientCommunicator {
   private final ConcurrentMap<NodeID, ClientAccount> clientAccounts;
   private final ManagedEntity owningEntity;
   
@@ -101,6 +105,51 @@ public class EntityClientCommunicatorService implements ClientCommunicator {
     }
   }
 
+  /**
+   * The message is encoded once and the message to each client shares the encoded buffers so a broadcast costs one
+   * encode no matter how many clients it reaches.
+   */
+  @Override
+  public void sendNoResponse(Collection<? extends ClientDescriptor> clientDescriptors, EntityResponse message) throws MessageCodecException {
+    if (clientDescriptors.isEmpty()) {
+      return;
+    }
+    TCByteBuffer[] payload = sharedPayload(message);
+    for (ClientDescriptor clientDescriptor : clientDescriptors) {
+      // We are in internal code so downcast the descriptor.
+      ClientDescriptorImpl rawDescriptor = (ClientDescriptorImpl)clientDescriptor;
+      ClientAccount clientAccount = clientAccounts.get(rawDescriptor.getNodeID());
+      if (clientAccount != null) {
+        clientAccount.sendNoResponse(rawDescriptor.getEntityDescriptor(), payload);
+      }
+    }
+  }
+
+  /**
+   * Encodes the message once, as in {@link #sendNoResponse(Collection, EntityResponse)}.
+   */
+  @Override
+  public Future<Void> send(Collection<? extends ClientDescriptor> clientDescriptors, EntityResponse message) throws MessageCodecException {
+    List<Future<Void>> waiters = new ArrayList<>(clientDescriptors.size());
+    if (!clientDescriptors.isEmpty()) {
+      TCByteBuffer[] payload = sharedPayload(message);
+      for (ClientDescriptor clientDescriptor : clientDescriptors) {
+        // We are in internal code so downcast the descriptor.
+        ClientDescriptorImpl rawDescriptor = (ClientDescriptorImpl)clientDescriptor;
+        ClientAccount clientAccount = clientAccounts.get(rawDescriptor.getNodeID());
+        if (clientAccount != null) {
+          waiters.add(clientAccount.send(rawDescriptor.getEntityDescriptor(), payload));
+        }
+      }
+    }
+    return new AggregateFuture(waiters);
+  }
+
+  private TCByteBuffer[] sharedPayload(EntityResponse message) throws MessageCodecException {
+    // Wrapping doesn't copy and each message only ever writes duplicates of these buffers into its stream.
+    return new TCByteBuffer[] { TCByteBufferFactory.wrap(serialize(this.owningEntity.getCodec(), message)) };
+  }
+
   @SuppressWarnings("unchecked")
   private <R extends EntityResponse> byte[] serialize(MessageCodec<?, R> codec, EntityResponse response) throws MessageCodecException {
     // We do this downcast, inline, instead of asking the codec (since a safer cast is all it could do, anyway).
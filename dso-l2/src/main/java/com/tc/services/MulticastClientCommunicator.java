@@ -0,0 +1,45 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.services;
+
+import org.terracotta.entity.ClientCommunicator;
+import org.terracotta.entity.ClientDescriptor;
+import org.terracotta.entity.EntityResponse;
+import org.terracotta.entity.MessageCodecException;
+
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+/**
+ * A {@link ClientCommunicator} which can also send one message to many clients.  The message is encoded once, however
+ * many clients it reaches.  Entities ask for it with a {@link MulticastCommunicatorServiceConfiguration}.
+ */
+public interface MulticastClientCommunicator extends ClientCommunicator {
+  /**
+   * Sends the same message to every one of the given clients, without waiting for them to receive it.
+   */
+  void sendNoResponse(Collection<? extends ClientDescriptor> clientDescriptors, EntityResponse message) throws MessageCodecException;
+
+  /**
+   * Sends the same message to every one of the given clients.
+   * 
+   * @return A future which completes once every client still connected has received the message.
+   */
+  Future<Void> send(Collection<? extends ClientDescriptor> clientDescriptors, EntityResponse message) throws MessageCodecException;
+}
@@ -18,6 +18,8 @@
  */
 package com.tc.stats;
 
+import com.tc.async.api.StageLatencyStats;
+import com.tc.async.api.StageManager;
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
 import com.tc.management.RemoteManagement;
@@ -44,10 +46,12 @@ import com.tc.stats.api.Stats;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.TreeMap;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
@@ -89,6 +93,7 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
   private final TerracottaOperatorEventHistoryProvider operatorEventHistoryProvider;
   private final ConnectionPolicy                       connectionPolicy;
   private final RemoteManagement                       remoteManagement;
+  private final StageManager                           stageManager;
 
   public DSO(ServerManagementContext managementContext, ServerConfigurationContext configContext,
              MBeanServer mbeanServer,
@@ -108,6 +113,7 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
     this.operatorEventHistoryProvider = operatorEventHistoryProvider;
     this.connectionPolicy = managementContext.getConnectionPolicy();
     this.remoteManagement = managementContext.getRemoteManagement();
+    this.stageManager = managementContext.getStageManager();
 
     // add various listeners (do this before the setupXXX() methods below so we don't ever miss anything)
     channelMgr.addEventListener(new ChannelManagerListener());
@@ -673,4 +679,22 @@ public class DSO extends AbstractNotifyingMBean implements DSOMBean {
   public RemoteManagement getRemoteManagement() {
     return remoteManagement;
   }
+
+  @Override
+  public Map<String, Map<String, Long>> getStageLatencies() {
+    Map<String, Map<String, Long>> latencies = new TreeMap<>();
+    if (stageManager != null) {
+      for (StageLatencyStats stats : stageManager.getLatencyStats()) {
+        Map<String, Long> summary = new LinkedHashMap<>();
+        for (Entry<String, Long> e : stats.getQueueTime().summary().entrySet()) {
+          summary.put("queue." + e.getKey(), e.getValue());
+        }
+        for (Entry<String, Long> e : stats.getServiceTime().summary().entrySet()) {
+          summary.put("service." + e.getKey(), e.getValue());
+        }
+        latencies.put(stats.getName(), summary);
+      }
+    }
+    return latencies;
+  }
 }
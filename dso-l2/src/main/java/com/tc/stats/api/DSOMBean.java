@@ -107,4 +107,10 @@ public interface DSOMBean extends Stats, TerracottaMBean {
 
   RemoteManagement getRemoteManagement();
 
+  /**
+   * @return For each SEDA stage, summaries (count, mean, p50, p90, p99, p99.9 and max, in microseconds) of the time
+   *         contexts spend queued ("queue.*") and in the stage's handler ("service.*")
+   */
+  Map<String, Map<String, Long>> getStageLatencies();
+
 }
@@ -149,6 +149,32 @@ public class ServiceLocatorTest {
      } 
    }
    
+   @Test
+   public void testImplementationsIndexedUntilJarChanges() throws Exception {
+     File f = folder.newFolder();
+     new File(f, Directories.SERVER_PLUGIN_LIB_DIR).mkdirs();
+     new File(f, Directories.SERVER_PLUGIN_API_DIR).mkdirs();
+     System.setProperty(TC_INSTALL_ROOT_PROPERTY_NAME, f.getAbsolutePath());
+     File plugin = new File(f, "plugin.jar");
+     ZipBuilder zip = new ZipBuilder(plugin, false);
+     zip.putEntry("META-INF/services/java.lang.Runnable", "com.tc.classloader.TestInterfaceHandle".getBytes());
+     zip.putEntry("com/tc/classloader/TestInterfaceHandle.class", resourceToBytes("com/tc/classloader/TestInterfaceHandle.class"));
+     zip.finish();
+     ClassLoader apiLoader = new ApiClassLoader(new URL[0], new URLClassLoader(new URL[] {plugin.toURI().toURL()}, getClass().getClassLoader()));
+
+     List<Class<? extends Runnable>> first = ServiceLocator.getImplementations(Runnable.class, apiLoader);
+     Assert.assertEquals(1, first.size());
+     Assert.assertTrue(first.get(0).getClassLoader() instanceof ComponentURLClassLoader);
+     // Nothing changed so the same classes come back without another discovery.
+     List<Class<? extends Runnable>> second = ServiceLocator.getImplementations(Runnable.class, apiLoader);
+     Assert.assertTrue(first.get(0) == second.get(0));
+
+     Assert.assertTrue(plugin.setLastModified(plugin.lastModified() + 10000));
+     List<Class<? extends Runnable>> changed = ServiceLocator.getImplementations(Runnable.class, apiLoader);
+     Assert.assertEquals(1, changed.size());
+     Assert.assertTrue(first.get(0) != changed.get(0));
+   }
+
    private File writeZip(File api, String...classes) throws IOException {
      ZipBuilder builder = new ZipBuilder(api, true);
      for (String className : classes) {
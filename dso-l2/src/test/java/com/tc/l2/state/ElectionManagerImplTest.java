@@ -0,0 +1,140 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.l2.state;
+
+import com.tc.l2.ha.RandomWeightGenerator;
+import com.tc.l2.ha.WeightGeneratorFactory;
+import com.tc.l2.msg.L2StateMessage;
+import com.tc.net.NodeID;
+import com.tc.net.ServerID;
+import com.tc.net.groups.GroupEventsListener;
+import com.tc.net.groups.GroupManager;
+import com.tc.net.groups.GroupResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+
+public class ElectionManagerImplTest {
+  private static final int LONG_ELECTION_SECONDS = 60;
+
+  private final ServerID me = new ServerID("me", new byte[] {1});
+  private final ServerID two = new ServerID("two", new byte[] {2});
+  private final ServerID three = new ServerID("three", new byte[] {3});
+  private final WeightGeneratorFactory weights = RandomWeightGenerator.createTestingFactory(2);
+  private GroupManager<L2StateMessage> groupManager;
+
+  @SuppressWarnings("unchecked")
+  @Before
+  public void setUp() throws Exception {
+    groupManager = mock(GroupManager.class);
+    GroupResponse<L2StateMessage> noResponses = mock(GroupResponse.class);
+    when(noResponses.getResponses()).thenReturn(Collections.emptyList());
+    when(groupManager.sendAllAndWaitForResponse(any(L2StateMessage.class))).thenReturn(noResponses);
+  }
+
+  @Test
+  public void testSingleServerDoesNotWaitOutElection() throws Exception {
+    ElectionManagerImpl election = new ElectionManagerImpl(groupManager, 1, LONG_ELECTION_SECONDS, 0);
+    assertEquals(me, startElection(election).get(10, TimeUnit.SECONDS));
+    assertTrue(election.getLastElectionDuration() < election.getElectionTime());
+  }
+
+  @Test
+  public void testAllExpectedServersVoted() throws Exception {
+    ElectionManagerImpl election = new ElectionManagerImpl(groupManager, 2, LONG_ELECTION_SECONDS, 0);
+    memberListener().nodeJoined(two);
+    CompletableFuture<NodeID> winner = startElection(election);
+    vote(election, two);
+    NodeID result = winner.get(10, TimeUnit.SECONDS);
+    assertTrue(me.equals(result) || two.equals(result));
+    assertTrue(election.getLastElectionDuration() < election.getElectionTime());
+  }
+
+  @Test
+  public void testJoinedMembersAloneWaitForTimeout() throws Exception {
+    ElectionManagerImpl election = new ElectionManagerImpl(groupManager, 3, 1, 0);
+    memberListener().nodeJoined(two);
+    CompletableFuture<NodeID> winner = startElection(election);
+    vote(election, two);
+    // Everyone we have heard of voted but the third server may still be connecting so the whole time is waited out.
+    NodeID result = winner.get(10, TimeUnit.SECONDS);
+    assertTrue(me.equals(result) || two.equals(result));
+    assertTrue(election.getLastElectionDuration() >= election.getElectionTime());
+  }
+
+  @Test
+  public void testQuorumReached() throws Exception {
+    ElectionManagerImpl election = new ElectionManagerImpl(groupManager, 3, LONG_ELECTION_SECONDS, 2);
+    GroupEventsListener listener = memberListener();
+    listener.nodeJoined(two);
+    listener.nodeJoined(three);
+    CompletableFuture<NodeID> winner = startElection(election);
+    vote(election, two);
+    NodeID result = winner.get(10, TimeUnit.SECONDS);
+    assertTrue(me.equals(result) || two.equals(result));
+  }
+
+  @Test
+  public void testMinorityWaitsForTimeout() throws Exception {
+    ElectionManagerImpl election = new ElectionManagerImpl(groupManager, 3, 1, 0);
+    assertEquals(me, startElection(election).get(10, TimeUnit.SECONDS));
+    assertTrue(election.getLastElectionDuration() >= election.getElectionTime());
+  }
+
+  private GroupEventsListener memberListener() {
+    ArgumentCaptor<GroupEventsListener> listener = ArgumentCaptor.forClass(GroupEventsListener.class);
+    verify(groupManager).registerForGroupEvents(listener.capture());
+    return listener.getValue();
+  }
+
+  private CompletableFuture<NodeID> startElection(ElectionManagerImpl election) {
+    CompletableFuture<NodeID> winner = new CompletableFuture<>();
+    Thread runner = new Thread(() -> {
+      try {
+        election.getEventHandler().handleEvent(new ElectionContext(me, false, weights, StateManager.START_STATE, winner::complete));
+      } catch (Throwable t) {
+        winner.completeExceptionally(t);
+      }
+    });
+    runner.setDaemon(true);
+    runner.start();
+    return winner;
+  }
+
+  private void vote(ElectionManagerImpl election, ServerID voter) throws InterruptedException {
+    L2StateMessage vote = L2StateMessage.createElectionStartedMessage(EnrollmentFactory.createEnrollment(voter, false, weights), StateManager.START_STATE);
+    vote.setMessageOrginator(voter);
+    // The vote is ignored until our own election has started.
+    while (!election.handleStartElectionRequest(vote, StateManager.START_STATE)) {
+      Thread.sleep(10);
+    }
+  }
+}
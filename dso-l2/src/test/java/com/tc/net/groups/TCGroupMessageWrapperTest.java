@@ -169,6 +169,10 @@ public class TCGroupMessageWrapperTest extends TestCase {
   }
 
   private GroupMessage sendGroupMessage(AbstractGroupMessage sendMesg) throws Exception {
+    return sendGroupMessage(sendMesg, false);
+  }
+
+  private GroupMessage sendGroupMessage(AbstractGroupMessage sendMesg, boolean sendTypeID) throws Exception {
     NetworkListener lsnr = initServer();
     channelManager = lsnr.getChannelManager();
     assertEquals(0, channelManager.getChannels().length);
@@ -176,7 +180,7 @@ public class TCGroupMessageWrapperTest extends TestCase {
     ClientMessageChannel channel = openChannel(lsnr);
 
     TCGroupMessageWrapper wrapper = (TCGroupMessageWrapper) channel.createMessage(TCMessageType.GROUP_WRAPPER_MESSAGE);
-    wrapper.setGroupMessage(sendMesg);
+    wrapper.setGroupMessage(sendMesg, sendTypeID);
     wrapper.send();
     GroupMessage receivedMesg = queue.poll(timeout, unit);
     assertNotNull(receivedMesg);
@@ -203,6 +207,15 @@ public class TCGroupMessageWrapperTest extends TestCase {
     sendGroupMessage(sendMesg);
   }
 
+  public void testL2StateMessageByTypeID() throws Exception {
+    long weights[] = new long[] { 1, 23, 44, 78 };
+    Enrollment enroll = new Enrollment(makeNodeID("test"), true, weights);
+    AbstractGroupMessage sendMesg = new L2StateMessage(L2StateMessage.START_ELECTION, enroll, new State("dummy"));
+    assertTrue(GroupMessageRegistry.typeOf(sendMesg) != GroupMessageRegistry.UNREGISTERED);
+    L2StateMessage received = (L2StateMessage) sendGroupMessage(sendMesg, true);
+    assertEquals(enroll, received.getEnrollment());
+  }
+
   private ServerID makeNodeID(String name) {
     return (new ServerID(name, UUID.getUUID().toString().getBytes()));
   }
@@ -56,6 +56,11 @@ public class TestActiveGroupManager implements GroupManager<GroupMessage> {
     return connected;
   }
   
+  @Override
+  public boolean isBatchedReplicationSupported(NodeID sid) {
+    return true;
+  }
+
   public void setConnected(boolean connected) {
     this.connected = connected;
   }
@@ -26,6 +26,7 @@ import com.tc.util.Assert;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
@@ -181,6 +182,28 @@ public class ActivePassiveAckWaiterTest {
     lockStep.join();
   }
 
+  @Test
+  public void testRunWhenReceived() throws Exception {
+    Set<NodeID> passives = new HashSet<NodeID>();
+    NodeID onePassive = mock(NodeID.class);
+    passives.add(onePassive);
+    NodeID twoPassive = mock(NodeID.class);
+    passives.add(twoPassive);
+    ActivePassiveAckWaiter waiter = new ActivePassiveAckWaiter(passives, null);
+    AtomicInteger calls = new AtomicInteger();
+    waiter.runWhenReceived(calls::incrementAndGet);
+    Assert.assertEquals(0, calls.get());
+    waiter.didReceiveOnPassive(onePassive);
+    Assert.assertEquals(0, calls.get());
+    // A passive disappearing also counts as received.
+    waiter.didCompleteOnPassive(twoPassive, false, ReplicationResultCode.NONE);
+    Assert.assertEquals(1, calls.get());
+    Assert.assertTrue(waiter.isReceived());
+    // Once received, the callback runs immediately.
+    waiter.runWhenReceived(calls::incrementAndGet);
+    Assert.assertEquals(2, calls.get());
+  }
+
 
   private static class LockStep extends Thread {
     private final ActivePassiveAckWaiter waiter;
@@ -110,6 +110,47 @@ public class ClientEntityStateManagerImplTest {
     assertTrue(verifyNoReferences(new EntityID("foo", "bar")));
   }
 
+  @Test
+  public void testReferenceCountAcrossClients() throws Exception {
+    EntityID entityID = new EntityID("foo", "bar");
+    ClientID one = new ClientID(1);
+    ClientID two = new ClientID(2);
+    EntityDescriptor first = new EntityDescriptor(entityID, new ClientInstanceID(1), 1);
+    EntityDescriptor second = new EntityDescriptor(entityID, new ClientInstanceID(2), 1);
+    assertTrue(addReference(one, first));
+    assertTrue(addReference(one, second));
+    assertTrue(addReference(two, first));
+    assertEquals(3, clientEntityStateManager.getReferenceCount(entityID));
+    assertEquals(2, clientEntityStateManager.getReferencingClients(entityID).size());
+    assertEquals(0, clientEntityStateManager.getReferenceCount(new EntityID("foo", "baz")));
+
+    assertTrue(removeReference(one, first));
+    assertEquals(2, clientEntityStateManager.getReferenceCount(entityID));
+    assertTrue(clientEntityStateManager.getReferencingClients(entityID).contains(one));
+    assertTrue(removeReference(one, second));
+    assertFalse(clientEntityStateManager.getReferencingClients(entityID).contains(one));
+    assertFalse(verifyNoReferences(entityID));
+    assertTrue(removeReference(two, first));
+    assertTrue(verifyNoReferences(entityID));
+    assertTrue(clientEntityStateManager.getReferencingClients(entityID).isEmpty());
+  }
+
+  @Test
+  public void testReleasesAfterDisconnectDropClient() throws Exception {
+    ClientID clientID = new ClientID(1);
+    for (int i = 0; i < 100; ++i) {
+      assertTrue(addReference(clientID, new EntityDescriptor(new EntityID("foo", "bar" + i), new ClientInstanceID(i), 1)));
+    }
+    List<VoltronEntityMessage> releases = clientEntityStateManager.clientDisconnected(clientID);
+    assertEquals(100, releases.size());
+    for (VoltronEntityMessage release : releases) {
+      assertTrue(removeReference(clientID, release.getEntityDescriptor()));
+      assertTrue(verifyNoReferences(release.getEntityDescriptor().getEntityID()));
+    }
+    // Once every reference is released the client is forgotten.
+    assertTrue(clientEntityStateManager.clientDisconnected(clientID).isEmpty());
+  }
+
   private boolean addReference(ClientID clientID, EntityDescriptor descriptor) {
     // This only fails by asserting.
     boolean didSucceed = false;
@@ -0,0 +1,89 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.objectserver.entity;
+
+import com.tc.l2.msg.ReplicationResultCode;
+import com.tc.net.NodeID;
+import com.tc.net.ServerID;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PassiveSyncWindowTest {
+  private final NodeID passive = new ServerID("passive", new byte[] { 1 });
+
+  @Test
+  public void testPayloadsRunAheadUpToTheWindow() throws Exception {
+    final PassiveSyncWindow window = new PassiveSyncWindow(2);
+    final ActivePassiveAckWaiter first = waiter();
+    window.payloadSent(first);
+    window.payloadSent(waiter());
+    Assert.assertEquals(2, window.outstanding());
+
+    // The third payload has to wait for the first to be received.
+    final CountDownLatch sent = new CountDownLatch(1);
+    Thread sender = new Thread() {
+      @Override
+      public void run() {
+        window.payloadSent(waiter());
+        sent.countDown();
+      }
+    };
+    sender.start();
+    Assert.assertFalse(sent.await(100, TimeUnit.MILLISECONDS));
+    first.didReceiveOnPassive(this.passive);
+    Assert.assertTrue(sent.await(10, TimeUnit.SECONDS));
+    sender.join();
+    Assert.assertEquals(2, window.outstanding());
+  }
+
+  @Test
+  public void testSectionsAreWaitedForTogether() throws Exception {
+    final PassiveSyncWindow window = new PassiveSyncWindow(2);
+    ActivePassiveAckWaiter start = waiter();
+    ActivePassiveAckWaiter end = waiter();
+    window.sectionSent(start);
+    window.sectionSent(end);
+
+    final CountDownLatch done = new CountDownLatch(1);
+    Thread syncer = new Thread() {
+      @Override
+      public void run() {
+        window.waitForSections();
+        done.countDown();
+      }
+    };
+    syncer.start();
+    start.didCompleteOnPassive(this.passive, true, ReplicationResultCode.SUCCESS);
+    Assert.assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+    end.didCompleteOnPassive(this.passive, true, ReplicationResultCode.SUCCESS);
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    syncer.join();
+    Assert.assertEquals(0, window.outstanding());
+  }
+
+  private ActivePassiveAckWaiter waiter() {
+    return new ActivePassiveAckWaiter(Collections.singleton(this.passive), null);
+  }
+}
@@ -196,6 +196,86 @@ public class RequestProcessorTest {
 //    verify(broker).replicateMessage(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any(),Matchers.any(), Matchers.any());
   }
   
+  @Test
+  public void testDeferUntilReceived() {
+    System.out.println("defer until received");
+    EntityID testid = new EntityID("MockEntity", "foo");
+    EntityDescriptor descriptor = new EntityDescriptor(testid, ClientInstanceID.NULL_ID, 1);
+
+    ServerEntityRequest request = mock(ServerEntityRequest.class);
+    when(request.getAction()).thenReturn(ServerEntityAction.INVOKE_ACTION);
+    when(request.replicateTo(Matchers.anySet())).thenAnswer(new Answer<Set<NodeID>>() {
+      @Override
+      public Set<NodeID> answer(InvocationOnMock invocation) throws Throwable {
+        return (Set<NodeID>)invocation.getArguments()[0];
+      }
+    });
+    when(request.getOldestTransactionOnClient()).thenReturn(TransactionID.NULL_ID);
+    when(request.getTransaction()).thenReturn(TransactionID.NULL_ID);
+    when(request.getNodeID()).thenReturn(mock(ClientID.class));
+
+    Sink dump = mock(Sink.class);
+    NodeID passive = mock(NodeID.class);
+    ActivePassiveAckWaiter first = new ActivePassiveAckWaiter(Collections.singleton(passive), null);
+    ActivePassiveAckWaiter second = new ActivePassiveAckWaiter(Collections.singleton(passive), null);
+
+    PassiveReplicationBroker broker = mock(PassiveReplicationBroker.class);
+    when(broker.passives()).thenReturn(Collections.singleton(passive));
+    when(broker.replicateMessage(Matchers.any(), Matchers.any())).thenReturn(first, second);
+    RequestProcessor instance = new RequestProcessor(dump, true);
+    instance.setReplication(broker);
+    instance.enterActiveState();
+
+    instance.scheduleRequest(descriptor, request, MessagePayload.EMPTY, ()->{}, true, ConcurrencyStrategy.UNIVERSAL_KEY);
+    instance.scheduleRequest(descriptor, request, MessagePayload.EMPTY, ()->{}, true, ConcurrencyStrategy.UNIVERSAL_KEY);
+//  nothing is dispatched until the passive has received it
+    verify(dump, times(0)).addMultiThreaded(Matchers.any());
+//  the second request can not overtake the first
+    second.didReceiveOnPassive(passive);
+    verify(dump, times(0)).addMultiThreaded(Matchers.any());
+    first.didReceiveOnPassive(passive);
+    verify(dump, times(2)).addMultiThreaded(Matchers.any());
+  }
+  
+  @Test
+  public void testDeferredRequestOnlyHoldsItsOwnEntity() {
+    System.out.println("defer until received per entity");
+    EntityDescriptor waiting = new EntityDescriptor(new EntityID("MockEntity", "foo"), ClientInstanceID.NULL_ID, 1);
+    EntityDescriptor other = new EntityDescriptor(new EntityID("MockEntity", "bar"), ClientInstanceID.NULL_ID, 1);
+
+    ServerEntityRequest request = mock(ServerEntityRequest.class);
+    when(request.getAction()).thenReturn(ServerEntityAction.INVOKE_ACTION);
+    when(request.replicateTo(Matchers.anySet())).thenAnswer(new Answer<Set<NodeID>>() {
+      @Override
+      public Set<NodeID> answer(InvocationOnMock invocation) throws Throwable {
+        return (Set<NodeID>)invocation.getArguments()[0];
+      }
+    });
+    when(request.getOldestTransactionOnClient()).thenReturn(TransactionID.NULL_ID);
+    when(request.getTransaction()).thenReturn(TransactionID.NULL_ID);
+    when(request.getNodeID()).thenReturn(mock(ClientID.class));
+
+    Sink dump = mock(Sink.class);
+    NodeID passive = mock(NodeID.class);
+    ActivePassiveAckWaiter first = new ActivePassiveAckWaiter(Collections.singleton(passive), null);
+    ActivePassiveAckWaiter second = new ActivePassiveAckWaiter(Collections.singleton(passive), null);
+
+    PassiveReplicationBroker broker = mock(PassiveReplicationBroker.class);
+    when(broker.passives()).thenReturn(Collections.singleton(passive));
+    when(broker.replicateMessage(Matchers.any(), Matchers.any())).thenReturn(first, second);
+    RequestProcessor instance = new RequestProcessor(dump, true);
+    instance.setReplication(broker);
+    instance.enterActiveState();
+
+    instance.scheduleRequest(waiting, request, MessagePayload.EMPTY, ()->{}, true, ConcurrencyStrategy.UNIVERSAL_KEY);
+    instance.scheduleRequest(other, request, MessagePayload.EMPTY, ()->{}, true, ConcurrencyStrategy.UNIVERSAL_KEY);
+//  a request for another entity is not held behind one still waiting on a passive
+    second.didReceiveOnPassive(passive);
+    verify(dump, times(1)).addMultiThreaded(Matchers.any());
+    first.didReceiveOnPassive(passive);
+    verify(dump, times(2)).addMultiThreaded(Matchers.any());
+  }
+  
   private static byte[] intToArray(int val) {
     byte[] four = new byte[4];
     for (int x=0;x<four.length;x++) {
@@ -24,6 +24,7 @@ import static org.mockito.Mockito.when;
 import org.junit.After;
 import org.junit.Before;
 
+import com.tc.async.api.BatchEventHandler;
 import com.tc.async.api.EventHandler;
 import com.tc.async.api.EventHandlerException;
 import com.tc.async.api.Sink;
@@ -57,6 +58,8 @@ import com.tc.stats.Stats;
 import com.tc.util.Assert;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Optional;
 import java.util.Random;
 import java.util.function.Consumer;
@@ -197,6 +200,78 @@ public class ReplicatedTransactionHandlerTest {
     verify(groupManager, times(2)).sendToWithSentCallback(Matchers.eq(sid), Matchers.any(), Matchers.any());
   }
   
+  @Test
+  public void testReceivedAckNotHeldByBatch() throws Exception {
+    EntityID eid = new EntityID("foo", "bar");
+    EntityDescriptor descriptor = new EntityDescriptor(eid, ClientInstanceID.NULL_ID, 1);
+    ServerID sid = new ServerID("test", "test".getBytes());
+    ManagedEntity entity = mock(ManagedEntity.class);
+    ReplicationMessage msg = mock(ReplicationMessage.class);
+    MessageCodec codec = mock(MessageCodec.class);
+    when(msg.getConcurrency()).thenReturn(1);
+    when(msg.getType()).thenReturn(ReplicationMessage.REPLICATE);
+    when(msg.getReplicationType()).thenReturn(SyncReplicationActivity.ActivityType.INVOKE_ACTION);
+    when(msg.getEntityID()).thenReturn(eid);
+    when(msg.messageFrom()).thenReturn(sid);
+    when(msg.getEntityDescriptor()).thenReturn(descriptor);
+    when(msg.getOldestTransactionOnClient()).thenReturn(TransactionID.NULL_ID);
+    when(this.entityManager.getEntity(Matchers.any(), Matchers.anyInt())).thenReturn(Optional.of(entity));
+    when(entity.getCodec()).thenReturn(codec);
+    when(this.entityManager.getMessageCodec(Matchers.any())).thenReturn(codec);
+    Mockito.doAnswer(invocation->{
+//  the RECEIVED ack is already out by the time the request reaches the entity, even though the batch is still running
+      verify(groupManager, times(1)).sendToWithSentCallback(Matchers.eq(sid), Matchers.any(), Matchers.any());
+      Consumer consumer = (Consumer)invocation.getArguments()[2];
+      if (consumer != null) {
+        consumer.accept(new byte[0]);
+      }
+      return null;
+    }).when(entity).addRequestMessage(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
+    this.loopbackSink.addSingleThreaded(ReplicationMessage.createStartSyncMessage());
+    this.loopbackSink.addSingleThreaded(ReplicationMessage.createEndSyncMessage(new byte[0]));
+    ((BatchEventHandler<ReplicationMessage>)this.rth.getEventHandler()).handleEvents(Collections.singletonList(msg));
+//  the COMPLETED ack waits for the end of the batch
+    verify(groupManager, times(2)).sendToWithSentCallback(Matchers.eq(sid), Matchers.any(), Matchers.any());
+  }
+  
+  @Test
+  public void testHeldAcksReleasedBeforeStart() throws Exception {
+    EntityID eid = new EntityID("foo", "bar");
+    EntityDescriptor descriptor = new EntityDescriptor(eid, ClientInstanceID.NULL_ID, 1);
+    ServerID sid = new ServerID("test", "test".getBytes());
+    ManagedEntity entity = mock(ManagedEntity.class);
+    ReplicationMessage msg = mock(ReplicationMessage.class);
+    MessageCodec codec = mock(MessageCodec.class);
+    when(msg.getConcurrency()).thenReturn(1);
+    when(msg.getType()).thenReturn(ReplicationMessage.REPLICATE);
+    when(msg.getReplicationType()).thenReturn(SyncReplicationActivity.ActivityType.INVOKE_ACTION);
+    when(msg.getEntityID()).thenReturn(eid);
+    when(msg.messageFrom()).thenReturn(sid);
+    when(msg.getEntityDescriptor()).thenReturn(descriptor);
+    when(msg.getOldestTransactionOnClient()).thenReturn(TransactionID.NULL_ID);
+    when(this.entityManager.getEntity(Matchers.any(), Matchers.anyInt())).thenReturn(Optional.of(entity));
+    when(entity.getCodec()).thenReturn(codec);
+    when(this.entityManager.getMessageCodec(Matchers.any())).thenReturn(codec);
+    Mockito.doAnswer(invocation->{
+      Consumer consumer = (Consumer)invocation.getArguments()[2];
+      if (consumer != null) {
+        consumer.accept(new byte[0]);
+      }
+      return null;
+    }).when(entity).addRequestMessage(Matchers.any(), Matchers.any(), Matchers.any(), Matchers.any());
+    Mockito.doAnswer(invocation->{
+//  the COMPLETED ack of the replicated message is out before the start is handled
+      verify(groupManager, times(2)).sendToWithSentCallback(Matchers.eq(sid), Matchers.any(), Matchers.any());
+      return null;
+    }).when(this.entityManager).resetReferences();
+    this.loopbackSink.addSingleThreaded(ReplicationMessage.createStartSyncMessage());
+    this.loopbackSink.addSingleThreaded(ReplicationMessage.createEndSyncMessage(new byte[0]));
+    ReplicationMessage batch = ReplicationMessage.createBatchMessage(Arrays.asList(msg, ReplicationMessage.createStartMessage()));
+    ((BatchEventHandler<ReplicationMessage>)this.rth.getEventHandler()).handleEvents(Collections.singletonList(batch));
+    verify(this.entityManager).resetReferences();
+    verify(this.transactionOrderPersistor, times(2)).flush();
+  }
+
   @Test
   public void testDestroy() throws Exception {
     this.rth.getEventHandler().destroy();
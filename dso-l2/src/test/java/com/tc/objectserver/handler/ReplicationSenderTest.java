@@ -19,6 +19,8 @@
 package com.tc.objectserver.handler;
 
 import com.tc.async.api.EventHandlerException;
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
 import com.tc.l2.msg.ReplicationEnvelope;
 import com.tc.l2.msg.ReplicationMessage;
 import com.tc.l2.msg.SyncReplicationActivity;
@@ -31,6 +33,7 @@ import com.tc.object.EntityID;
 import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -42,6 +45,7 @@ import org.junit.Test;
 import org.mockito.Matchers;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 
 public class ReplicationSenderTest {
@@ -71,6 +75,7 @@ public class ReplicationSenderTest {
       collector.add(new ReplicationEnvelope((NodeID)args[0], (ReplicationMessage)args[1], null, null));
       return null;
     }).when(groupMgr).sendTo(Matchers.any(NodeID.class), Matchers.any(ReplicationMessage.class));
+    when(groupMgr.isBatchedReplicationSupported(Matchers.any(NodeID.class))).thenReturn(true);
   }
   
   private void makeAndSendSequence(Collection<SyncReplicationActivity.ActivityType> list) throws Exception {
@@ -220,6 +225,65 @@ public class ReplicationSenderTest {
     validateCollector(validation);
   }
   
+  @Test
+  public void batchesDrainedMessagesPerPassive() throws Exception {
+    entity = new EntityID("TEST", "test");
+    testSender.handleEvent(new ReplicationEnvelope(node, ReplicationMessage.createStartMessage(), null, null));
+    List<ReplicationEnvelope> drained = new LinkedList<>();
+    List<ReplicationMessage> sent = new LinkedList<>();
+    for (SyncReplicationActivity.ActivityType type : EnumSet.of(SyncReplicationActivity.ActivityType.SYNC_BEGIN, 
+        SyncReplicationActivity.ActivityType.CREATE_ENTITY, SyncReplicationActivity.ActivityType.INVOKE_ACTION, 
+        SyncReplicationActivity.ActivityType.SYNC_END)) {
+      ReplicationMessage msg = makeMessage(type);
+      sent.add(msg);
+      drained.add(new ReplicationEnvelope(node, msg, null, null));
+    }
+    testSender.handleEvents(drained);
+    drained.forEach(e->Assert.assertTrue(e.wasSentOrDropped()));
+//  the start message and then a single frame carrying the whole drain
+    Assert.assertEquals(2, collector.size());
+    ReplicationMessage frame = collector.get(1).getMessage();
+    Assert.assertEquals(ReplicationMessage.BATCH, frame.getType());
+    Assert.assertEquals(1L, frame.getSequenceID());
+
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream();
+    frame.serializeTo(out);
+    ReplicationMessage read = new ReplicationMessage();
+    read.deserializeFrom(new TCByteBufferInputStream(out.toArray()));
+    Assert.assertEquals(1L, read.getSequenceID());
+    List<ReplicationMessage> batch = read.getBatch();
+    Assert.assertEquals(sent.size(), batch.size());
+    Iterator<ReplicationMessage> expected = sent.iterator();
+    for (ReplicationMessage msg : batch) {
+      ReplicationMessage original = expected.next();
+//  acks from the passive refer to the original message ids
+      Assert.assertEquals(original.getMessageID(), msg.getMessageID());
+      Assert.assertEquals(original.getReplicationType(), msg.getReplicationType());
+    }
+  }
+
+  @Test
+  public void passiveWithoutBatchSupportGetsSingleMessages() throws Exception {
+    when(groupMgr.isBatchedReplicationSupported(node)).thenReturn(false);
+    entity = new EntityID("TEST", "test");
+    testSender.handleEvent(new ReplicationEnvelope(node, ReplicationMessage.createStartMessage(), null, null));
+    List<ReplicationEnvelope> drained = new LinkedList<>();
+    for (SyncReplicationActivity.ActivityType type : EnumSet.of(SyncReplicationActivity.ActivityType.SYNC_BEGIN, 
+        SyncReplicationActivity.ActivityType.CREATE_ENTITY, SyncReplicationActivity.ActivityType.INVOKE_ACTION, 
+        SyncReplicationActivity.ActivityType.SYNC_END)) {
+      drained.add(new ReplicationEnvelope(node, makeMessage(type), null, null));
+    }
+    testSender.handleEvents(drained);
+    drained.forEach(e->Assert.assertTrue(e.wasSentOrDropped()));
+//  the start message and then each drained message on its own
+    Assert.assertEquals(5, collector.size());
+    long sequence = 0;
+    for (ReplicationEnvelope sent : collector) {
+      Assert.assertTrue(sent.getMessage().getType() != ReplicationMessage.BATCH);
+      Assert.assertEquals(sequence++, sent.getMessage().getSequenceID());
+    }
+  }
+
   private void validateCollector(Collection<ReplicationMessage> valid) {
     Iterator<ReplicationMessage> next = valid.iterator();
     collector.stream().forEach(cmsg->{
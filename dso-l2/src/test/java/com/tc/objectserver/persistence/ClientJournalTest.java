@@ -0,0 +1,151 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.objectserver.persistence;
+
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.objectserver.persistence.EntityData.JournalEntry;
+import com.tc.test.TCTestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+
+public class ClientJournalTest extends TCTestCase {
+  public void testAppendTrimLookup() {
+    ClientJournal journal = new ClientJournal();
+    for (long i = 1; i <= 100; ++i) {
+      assertTrue(journal.add(entry(i)));
+    }
+    assertEquals(100, journal.size());
+    assertEquals(42, journal.get(42).transactionID);
+    assertNull(journal.get(101));
+    
+    journal.trim(50);
+    assertEquals(51, journal.size());
+    assertNull(journal.get(49));
+    assertEquals(50, journal.get(50).transactionID);
+    
+    // Keep appending and trimming so the head wraps back around many times.
+    for (long i = 101; i <= 1000; ++i) {
+      journal.add(entry(i));
+      journal.trim(i - 10);
+    }
+    assertEquals(11, journal.size());
+    assertEquals(990, journal.entries().get(0).transactionID);
+    assertEquals(1000, journal.get(1000).transactionID);
+  }
+
+  public void testOutOfOrderAndDuplicate() {
+    ClientJournal journal = new ClientJournal();
+    journal.add(entry(10));
+    journal.add(entry(30));
+    journal.add(entry(20));
+    journal.add(entry(5));
+    assertFalse(journal.add(entry(20)));
+    List<JournalEntry> entries = journal.entries();
+    assertEquals(4, entries.size());
+    assertEquals(5, entries.get(0).transactionID);
+    assertEquals(10, entries.get(1).transactionID);
+    assertEquals(20, entries.get(2).transactionID);
+    assertEquals(30, entries.get(3).transactionID);
+  }
+
+  public void testSerialization() throws Exception {
+    ClientJournal journal = new ClientJournal();
+    for (long i = 1; i <= 20; ++i) {
+      journal.add(entry(i));
+    }
+    journal.trim(15);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(journal);
+    }
+    ClientJournal copy;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (ClientJournal) in.readObject();
+    }
+    assertEquals(6, copy.size());
+    assertEquals(15, copy.get(15).transactionID);
+    assertNull(copy.get(14));
+  }
+
+  public void testMerge() {
+    ClientJournal journal = new ClientJournal();
+    JournalEntry ours = entry(20);
+    journal.add(entry(10));
+    journal.add(ours);
+    journal.add(entry(30));
+    ClientJournal other = new ClientJournal();
+    JournalEntry theirs = entry(20);
+    other.add(entry(5));
+    other.add(theirs);
+    other.add(entry(25));
+    other.add(entry(40));
+    journal.merge(other);
+    List<JournalEntry> entries = journal.entries();
+    assertEquals(6, entries.size());
+    long[] expected = {5, 10, 20, 25, 30, 40};
+    for (int i = 0; i < expected.length; ++i) {
+      assertEquals(expected[i], entries.get(i).transactionID);
+    }
+    // The entry we already had wins.
+    assertSame(ours, journal.get(20));
+    // Appending still works after a merge.
+    assertTrue(journal.add(entry(50)));
+    assertEquals(7, journal.size());
+  }
+
+  public void testEncodeDecode() throws Exception {
+    ClientJournal journal = new ClientJournal();
+    for (long i = 1; i <= 20; ++i) {
+      journal.add(entry(i));
+    }
+    JournalEntry reconfigure = new JournalEntry();
+    reconfigure.operation = EntityData.Operation.RECONFIGURE;
+    reconfigure.transactionID = 21;
+    reconfigure.reconfigureResponse = new byte[] {1, 2, 3};
+    journal.add(reconfigure);
+    journal.trim(15);
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream();
+    journal.encode(out);
+    out.writeInt(42);
+    TCByteBufferInputStream in = new TCByteBufferInputStream(out.toArray());
+    ClientJournal copy = ClientJournal.decode(in);
+    assertEquals(42, in.readInt());
+    assertEquals(7, copy.size());
+    assertEquals(15, copy.get(15).transactionID);
+    assertEquals(EntityData.Operation.CREATE, copy.get(15).operation);
+    assertNull(copy.get(15).reconfigureResponse);
+    assertNull(copy.get(14));
+    assertEquals(EntityData.Operation.RECONFIGURE, copy.get(21).operation);
+    assertTrue(Arrays.equals(new byte[] {1, 2, 3}, copy.get(21).reconfigureResponse));
+  }
+
+  private static JournalEntry entry(long transactionID) {
+    JournalEntry entry = new JournalEntry();
+    entry.operation = EntityData.Operation.CREATE;
+    entry.transactionID = transactionID;
+    return entry;
+  }
+}
@@ -18,10 +18,15 @@
  */
 package com.tc.objectserver.persistence;
 
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
 import com.tc.net.ClientID;
 import com.tc.object.EntityID;
 import com.tc.test.TCTestCase;
 
+import java.io.IOException;
+import java.io.Serializable;
+
 import org.junit.Assert;
 import org.terracotta.exception.EntityException;
 
@@ -221,4 +226,145 @@ public class EntityPersistorTest extends TCTestCase {
       // Expected.
     }
   }
+
+  /**
+   * Test that changes written to the log, and not yet compacted, are replayed on reload.
+   */
+  public void testReloadReplaysLog() throws Exception {
+    EntityID id = new EntityID("class name", "entity name");
+    EntityID destroyed = new EntityID("class name", "destroyed");
+    long oldestTransactionOnClient = 1;
+    long version = 1;
+    byte[] configuration = new byte[0];
+    
+    long consumerID = this.entityPersistor.getNextConsumerID();
+    this.entityPersistor.entityCreated(this.client, 1, oldestTransactionOnClient, id, version, consumerID, true, configuration);
+    this.entityPersistor.entityCreated(this.client, 2, oldestTransactionOnClient, destroyed, version, this.entityPersistor.getNextConsumerID(), true, configuration);
+    this.entityPersistor.entityDestroyed(this.client, 3, oldestTransactionOnClient, destroyed);
+    byte[] newConfiguration = new byte[1];
+    this.entityPersistor.entityReconfigureSucceeded(this.client, 4, oldestTransactionOnClient, id, version, newConfiguration);
+    
+    EntityPersistor reloaded = new EntityPersistor(this.persistentStorage);
+    Assert.assertEquals(1, reloaded.loadEntityData().size());
+    Assert.assertArrayEquals(newConfiguration, reloaded.loadEntityData().iterator().next().configuration);
+    Assert.assertTrue(reloaded.wasEntityCreatedInJournal(this.client, 1));
+    Assert.assertTrue(reloaded.wasEntityDestroyedInJournal(this.client, 3));
+    Assert.assertArrayEquals(configuration, reloaded.reconfiguredResultInJournal(this.client, 4));
+    Assert.assertEquals(consumerID + 2, reloaded.getNextConsumerID());
+  }
+
+  /**
+   * Test that a corrupt record at the tail of the log is discarded, rather than failing the load.
+   */
+  public void testReloadDiscardsCorruptTail() throws Exception {
+    EntityID id = new EntityID("class name", "entity name");
+    this.entityPersistor.entityCreated(this.client, 1, 1, id, 1, 1, true, new byte[0]);
+    // Write garbage where the next record would go.
+    this.persistentStorage.storeDataElement("entity_log.1", new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+    
+    EntityPersistor reloaded = new EntityPersistor(this.persistentStorage);
+    Assert.assertEquals(1, reloaded.loadEntityData().size());
+    Assert.assertNull(this.persistentStorage.loadDataElement("entity_log.1"));
+  }
+
+  /**
+   * Test that the journal serialized on the active is merged into the journal on the passive.
+   */
+  public void testSerializeAndLayer() throws Exception {
+    EntityID id = new EntityID("class name", "entity name");
+    ClientID other = new ClientID(2);
+    this.entityPersistor.entityCreated(this.client, 1, 1, id, 1, 1, true, new byte[] {7});
+    this.entityPersistor.entityReconfigureSucceeded(this.client, 3, 1, id, 1, new byte[] {8});
+    this.entityPersistor.entityDestroyed(other, 5, 1, id);
+    
+    EntityPersistor passive = new EntityPersistor(new NullPlatformPersistentStorage());
+    // The passive already saw one of these transactions and another the active doesn't know about.
+    passive.entityCreated(this.client, 1, 1, id, 1, 1, true, new byte[] {7});
+    passive.entityCreated(this.client, 2, 1, new EntityID("class name", "other"), 1, 2, true, new byte[0]);
+    
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream();
+    this.entityPersistor.serialize(out);
+    passive.layer(new TCByteBufferInputStream(out.toArray()));
+    
+    Assert.assertTrue(passive.wasEntityCreatedInJournal(this.client, 1));
+    Assert.assertTrue(passive.wasEntityCreatedInJournal(this.client, 2));
+    Assert.assertArrayEquals(new byte[] {7}, passive.reconfiguredResultInJournal(this.client, 3));
+    Assert.assertTrue(passive.wasEntityDestroyedInJournal(other, 5));
+  }
+
+  /**
+   * Test that a crash after the new snapshot is written, but before it is switched to, loads the previous generation and
+   * replays the whole log.
+   */
+  public void testCrashBeforeSnapshotSwitch() throws Exception {
+    CrashingStorage storage = new CrashingStorage();
+    EntityPersistor persistor = new EntityPersistor(storage);
+    EntityID id = new EntityID("class name", "entity name");
+    persistor.entityCreated(this.client, 1, 1, id, 1, 1, true, new byte[0]);
+    
+    storage.crashOn = "entity_snapshot.generation";
+    try {
+      compact(persistor);
+      Assert.fail();
+    } catch (RuntimeException expected) {
+      // The server died here.
+    }
+    storage.crashOn = null;
+    
+    EntityPersistor reloaded = new EntityPersistor(storage);
+    Assert.assertEquals(1, reloaded.loadEntityData().size());
+    Assert.assertTrue(reloaded.wasEntityCreatedInJournal(this.client, 1));
+  }
+
+  /**
+   * Test that a crash after switching to the new snapshot, but before the covered log records are deleted, does not
+   * replay those records and removes them on load.
+   */
+  public void testCrashAfterSnapshotSwitch() throws Exception {
+    CrashingStorage storage = new CrashingStorage();
+    EntityPersistor persistor = new EntityPersistor(storage);
+    EntityID id = new EntityID("class name", "entity name");
+    EntityID destroyed = new EntityID("class name", "destroyed");
+    persistor.entityCreated(this.client, 1, 1, id, 1, 1, true, new byte[0]);
+    persistor.entityCreated(this.client, 2, 1, destroyed, 1, 2, true, new byte[0]);
+    persistor.entityDestroyed(this.client, 3, 1, destroyed);
+    
+    storage.crashOn = "entity_log.2";
+    try {
+      compact(persistor);
+      Assert.fail();
+    } catch (RuntimeException expected) {
+      // The server died here.
+    }
+    storage.crashOn = null;
+    Assert.assertNotNull(storage.loadDataElement("entity_log.2"));
+    
+    EntityPersistor reloaded = new EntityPersistor(storage);
+    Assert.assertEquals(1, reloaded.loadEntityData().size());
+    Assert.assertTrue(reloaded.wasEntityDestroyedInJournal(this.client, 3));
+    Assert.assertNull(storage.loadDataElement("entity_log.2"));
+    
+    // New records start after the ones the snapshot covers and are replayed on the next load.
+    reloaded.entityCreated(this.client, 4, 1, destroyed, 1, 3, true, new byte[0]);
+    Assert.assertEquals(2, new EntityPersistor(storage).loadEntityData().size());
+  }
+
+  private static void compact(EntityPersistor persistor) throws Exception {
+    // Layering an empty journal is the simplest way to force a compaction.
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream();
+    new EntityPersistor(new NullPlatformPersistentStorage()).serialize(out);
+    persistor.layer(new TCByteBufferInputStream(out.toArray()));
+  }
+
+  private static class CrashingStorage extends NullPlatformPersistentStorage {
+    private String crashOn;
+
+    @Override
+    public void storeDataElement(String name, Serializable element) throws IOException {
+      if (name.equals(this.crashOn)) {
+        throw new IOException("crash storing " + name);
+      }
+      super.storeDataElement(name, element);
+    }
+  }
 }
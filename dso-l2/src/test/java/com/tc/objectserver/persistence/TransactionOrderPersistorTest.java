@@ -19,6 +19,7 @@
 package com.tc.objectserver.persistence;
 
 import com.tc.net.ClientID;
+import com.tc.net.protocol.tcm.ChannelID;
 import com.tc.object.tx.TransactionID;
 
 import com.tc.test.TCTestCase;
@@ -240,6 +241,32 @@ public class TransactionOrderPersistorTest extends TCTestCase {
     assertEquals(0, this.orderPersistor.getIndexToReplay(this.client1, newTransaction));
   }
 
+  /**
+   * Failover replay of 1000 clients, each with 200 transactions in flight:  every resent transaction is looked up and
+   * the indices must reproduce the original interleaving.  With a linear scan per lookup this would not finish.
+   */
+  public void testFailoverReplayManyClients() throws IOException {
+    int clients = 1000;
+    int inFlight = 200;
+    NullPlatformPersistentStorage storage = new NullPlatformPersistentStorage();
+    TransactionOrderPersistor persistor = new TransactionOrderPersistor(storage, Collections.emptySet());
+    TransactionID oldest = new TransactionID(1);
+    for (int t = 1; t <= inFlight; ++t) {
+      TransactionID transaction = new TransactionID(t);
+      for (int c = 1; c <= clients; ++c) {
+        persistor.updateWithNewMessage(new ClientID(c), transaction, oldest);
+      }
+    }
+    persistor.flush();
+    
+    for (int c = 1; c <= clients; ++c) {
+      ClientID client = new ClientID(c);
+      for (int t = 1; t <= inFlight; ++t) {
+        assertEquals((t - 1) * clients + (c - 1), persistor.getIndexToReplay(client, new TransactionID(t)));
+      }
+    }
+  }
+
   public void testSaveReloadEmpty() throws IOException {
     // Create the storage.
     NullPlatformPersistentStorage storage = new NullPlatformPersistentStorage();
@@ -272,6 +299,31 @@ public class TransactionOrderPersistorTest extends TCTestCase {
     }
   }
 
+  /**
+   * Test that the received count is only written when flushed and that reloading never reuses a persisted global ID.
+   */
+  public void testGroupCommitReload() throws IOException {
+    ClientID client1 = new ClientID(1);
+    TransactionID oldest = new TransactionID(0);
+
+    NullPlatformPersistentStorage storage = new NullPlatformPersistentStorage();
+    TransactionOrderPersistor persistor = new TransactionOrderPersistor(storage, Collections.emptySet());
+    for (int i = 1; i < 10; ++i) {
+      persistor.updateWithNewMessage(client1, new TransactionID(i), oldest);
+    }
+    assertEquals(9, persistor.getReceivedTransactionCount());
+    persistor.flush();
+    assertEquals(9L, storage.loadDataElement("received_transaction_count.map"));
+    
+    // These are not flushed so the stored count falls behind the stored sequence.
+    for (int i = 10; i < 20; ++i) {
+      persistor.updateWithNewMessage(client1, new TransactionID(i), oldest);
+    }
+    persistor = new TransactionOrderPersistor(storage, Collections.singleton(new ChannelID(1)));
+    assertEquals(19, persistor.getReceivedTransactionCount());
+    assertEquals(18, persistor.getIndexToReplay(client1, new TransactionID(19)));
+  }
+
   public void testSaveReloadMultipleThreads() throws IOException, InterruptedException {
     TransactionID oldest = new TransactionID(0);
 
@@ -21,12 +21,14 @@ package com.tc.services;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.terracotta.entity.ClientCommunicator;
 import org.terracotta.entity.ClientDescriptor;
 import org.terracotta.entity.EntityMessage;
 import org.terracotta.entity.EntityResponse;
 import org.terracotta.entity.MessageCodec;
 
+import com.tc.bytes.TCByteBuffer;
 import com.tc.entity.ServerEntityMessage;
 import com.tc.net.ClientID;
 import com.tc.net.protocol.tcm.MessageChannel;
@@ -36,18 +38,25 @@ import com.tc.object.EntityDescriptor;
 import com.tc.object.EntityID;
 import com.tc.object.net.DSOChannelManager;
 import com.tc.objectserver.api.ManagedEntity;
+import com.tc.objectserver.api.ServerEntityMessageCoalescer;
 import com.tc.objectserver.entity.ClientDescriptorImpl;
+import com.tc.objectserver.handshakemanager.ServerClientHandshakeManager;
 
+import java.util.Arrays;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -226,4 +235,111 @@ public class CommunicatorServiceTest {
     verify(serverEntityMessage2, never()).setMessage(eq(entity1), any(byte[].class));
     verify(serverEntityMessage2).send();
   }
+
+  @Test
+  public void testBroadcastEncodesOnce() throws Exception {
+    ClientID otherClientID = new ClientID(2);
+    MessageChannel otherChannel = mock(MessageChannel.class);
+    when(otherChannel.getRemoteNodeID()).thenReturn(otherClientID);
+    ServerEntityMessage otherMessage = mock(ServerEntityMessage.class);
+    when(otherChannel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE)).thenReturn(otherMessage);
+    communicatorService.channelCreated(otherChannel);
+    ClientDescriptor otherDescriptor = new ClientDescriptorImpl(otherClientID, entityDescriptor);
+    // A client which has gone away is skipped.
+    ClientDescriptor goneDescriptor = new ClientDescriptorImpl(new ClientID(3), entityDescriptor);
+
+    MulticastClientCommunicator clientCommunicator = communicatorService.getService(consumerID, this.owningEntity, new MulticastCommunicatorServiceConfiguration());
+    clientCommunicator.sendNoResponse(Arrays.asList(clientDescriptor, otherDescriptor, goneDescriptor), response);
+
+    verify(codec, times(1)).encodeResponse(response);
+    ArgumentCaptor<TCByteBuffer[]> first = ArgumentCaptor.forClass(TCByteBuffer[].class);
+    ArgumentCaptor<TCByteBuffer[]> second = ArgumentCaptor.forClass(TCByteBuffer[].class);
+    verify(serverEntityMessage).setMessage(eq(entityDescriptor), first.capture());
+    verify(otherMessage).setMessage(eq(entityDescriptor), second.capture());
+    // Both messages share the one encoded payload.
+    assertSame(first.getValue(), second.getValue());
+    verify(serverEntityMessage).send();
+    verify(otherMessage).send();
+  }
+
+  @Test
+  public void testBroadcastWaitForResponses() throws Exception {
+    ClientID otherClientID = new ClientID(2);
+    MessageChannel otherChannel = mock(MessageChannel.class);
+    when(otherChannel.getRemoteNodeID()).thenReturn(otherClientID);
+    ServerEntityMessage otherMessage = mock(ServerEntityMessage.class);
+    when(otherChannel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE)).thenReturn(otherMessage);
+    communicatorService.channelCreated(otherChannel);
+    ClientDescriptor otherDescriptor = new ClientDescriptorImpl(otherClientID, entityDescriptor);
+
+    MulticastClientCommunicator clientCommunicator = communicatorService.getService(consumerID, this.owningEntity, new MulticastCommunicatorServiceConfiguration());
+    Future<Void> future = clientCommunicator.send(Arrays.asList(clientDescriptor, otherDescriptor), response);
+
+    verify(codec, times(1)).encodeResponse(response);
+    verify(serverEntityMessage).setMessage(eq(entityDescriptor), any(TCByteBuffer[].class), eq(0L));
+    verify(otherMessage).setMessage(eq(entityDescriptor), any(TCByteBuffer[].class), eq(0L));
+
+    communicatorService.response(clientID, 0L);
+    assertFalse(future.isDone());
+    try {
+      future.get(100, TimeUnit.MILLISECONDS);
+      fail("Should have timed out");
+    } catch (TimeoutException e) {
+      // expected
+    }
+
+    communicatorService.response(otherClientID, 0L);
+    future.get();
+    assertTrue(future.isDone());
+  }
+
+  @Test
+  public void testCoalescedSend() throws Exception {
+    ServerEntityMessageCoalescer coalescer = mock(ServerEntityMessageCoalescer.class);
+    Runnable flush = mock(Runnable.class);
+    when(coalescer.addServerEntityMessage(any(ClientID.class), any(EntityDescriptor.class), any(TCByteBuffer[].class), any(Long.class))).thenReturn(flush);
+    communicatorService.setMessageCoalescer(coalescer);
+    // Only clients connecting once the coalescer is set use it.
+    ClientID otherClientID = new ClientID(2);
+    MessageChannel otherChannel = mock(MessageChannel.class);
+    when(otherChannel.getRemoteNodeID()).thenReturn(otherClientID);
+    when(otherChannel.getAttachment(ServerClientHandshakeManager.COALESCED_SERVER_MESSAGES_ATTACHMENT)).thenReturn(Boolean.TRUE);
+    communicatorService.channelCreated(otherChannel);
+    ClientDescriptor otherDescriptor = new ClientDescriptorImpl(otherClientID, entityDescriptor);
+
+    ClientCommunicator clientCommunicator = communicatorService.getService(consumerID, this.owningEntity, new CommunicatorServiceConfiguration());
+    clientCommunicator.sendNoResponse(otherDescriptor, response);
+    Future<Void> future = clientCommunicator.send(otherDescriptor, response);
+
+    verify(coalescer).addServerEntityMessage(eq(otherClientID), eq(entityDescriptor), any(TCByteBuffer[].class), eq((Long) null));
+    verify(coalescer).addServerEntityMessage(eq(otherClientID), eq(entityDescriptor), any(TCByteBuffer[].class), eq(0L));
+    verify(otherChannel, never()).createMessage(TCMessageType.SERVER_ENTITY_MESSAGE);
+    // Each coalesced message is flushed once the account's monitor is released.
+    verify(flush, times(2)).run();
+    assertFalse(future.isDone());
+    communicatorService.response(otherClientID, 0L);
+    future.get();
+  }
+
+  @Test
+  public void testClientWithoutCoalescingGetsStandaloneMessages() throws Exception {
+    ServerEntityMessageCoalescer coalescer = mock(ServerEntityMessageCoalescer.class);
+    communicatorService.setMessageCoalescer(coalescer);
+    // A client which didn't advertise coalescing in its handshake would misread the packed messages.
+    ClientID otherClientID = new ClientID(2);
+    MessageChannel otherChannel = mock(MessageChannel.class);
+    when(otherChannel.getRemoteNodeID()).thenReturn(otherClientID);
+    ServerEntityMessage otherMessage = mock(ServerEntityMessage.class);
+    when(otherMessage.send()).thenReturn(true);
+    when(otherChannel.createMessage(TCMessageType.SERVER_ENTITY_MESSAGE)).thenReturn(otherMessage);
+    communicatorService.channelCreated(otherChannel);
+    ClientDescriptor otherDescriptor = new ClientDescriptorImpl(otherClientID, entityDescriptor);
+
+    ClientCommunicator clientCommunicator = communicatorService.getService(consumerID, this.owningEntity, new CommunicatorServiceConfiguration());
+    clientCommunicator.sendNoResponse(otherDescriptor, response);
+
+    verify(coalescer, never()).addServerEntityMessage(any(ClientID.class), any(EntityDescriptor.class), any(TCByteBuffer[].class), any(Long.class));
+    verify(otherMessage).setMessage(entityDescriptor, payload);
+    verify(otherMessage).send();
+  }
 }
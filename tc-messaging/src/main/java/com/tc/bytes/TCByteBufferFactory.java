@@ -20,20 +20,15 @@ package com.tc.bytes;
 
 import com.tc.logging.TCLogger;
 import com.tc.logging.TCLogging;
-import com.tc.util.Assert;
 import com.tc.util.ServiceUtil;
-import com.tc.util.VicariousThreadLocal;
 
 import java.util.Collections;
-import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.Map;
 
 /**
  * TCByteBuffer source that hides JDK dependencies and that can pool instances. Instance pooling is likely to be a good
  * idea for fixed size buffers and definitely a good idea for java direct buffers (since their allocation/deallocation
- * is more expensive than regular java objects).
+ * is more expensive than regular java objects). See {@link TCByteBufferPool} for how the pool is organized.
  * 
  * @author teck
  */
@@ -46,51 +41,18 @@ public class TCByteBufferFactory {
   private static final TCLogger            logger                  = TCLogging.getLogger(TCByteBufferFactory.class);
   
   private static final boolean             disablePooling;
-  private static final int                 poolMaxBufCount;
-  private static final int                 commonPoolMaxBufCount;
+  private static final TCByteBufferPool    pool;
   
   static {
     TCByteBufferFactoryConfig config = getConfig();
     disablePooling = config.isDisabled();
-    poolMaxBufCount = config.getPoolMaxBufCount();
-    commonPoolMaxBufCount = config.getCommonPoolMaxBufCount();
+    pool = disablePooling ? null : new TCByteBufferPool(config.getPoolMaxBytes(), config.getPoolMagazineBytes());
   }
-  
-
-  // always use ThreadLocal variables for accessing the buffer pools.
-  private static final LinkedBlockingQueue<TCByteBuffer> directCommonFreePool    = new LinkedBlockingQueue<TCByteBuffer>(commonPoolMaxBufCount);
-  private static final LinkedBlockingQueue<TCByteBuffer> nonDirectCommonFreePool = new LinkedBlockingQueue<TCByteBuffer>(commonPoolMaxBufCount);
-
-  private static final Set<ThreadGroup> handledGroups = Collections.newSetFromMap(new WeakHashMap<ThreadGroup, Boolean>());
-  
-  private static final ThreadLocal<LinkedBlockingQueue<TCByteBuffer>> directFreePool = new VicariousThreadLocal<LinkedBlockingQueue<TCByteBuffer>>() {
-                                                                     @Override
-                                                                     protected LinkedBlockingQueue<TCByteBuffer> initialValue() {
-                                                                       if (handledGroups.contains(Thread.currentThread().getThreadGroup())) {
-                                                                         return new LinkedBlockingQueue<TCByteBuffer>(poolMaxBufCount);
-                                                                       } else {
-                                                                         logger.debug("Buf pool direct for " + Thread.currentThread().getName() + " - using Common Pool");
-                                                                         return directCommonFreePool;
-                                                                       }
-                                                                     }
-                                                                   };
-  private static final ThreadLocal<LinkedBlockingQueue<TCByteBuffer>> nonDirectFreePool = new VicariousThreadLocal<LinkedBlockingQueue<TCByteBuffer>>() {
-                                                                     @Override
-                                                                     protected LinkedBlockingQueue<TCByteBuffer> initialValue() {
-                                                                       if (handledGroups.contains(Thread.currentThread().getThreadGroup())) {
-                                                                         return new LinkedBlockingQueue<TCByteBuffer>(poolMaxBufCount);
-                                                                       } else {
-                                                                         logger.debug("Buf pool nonDirect for " + Thread.currentThread().getName() + " - using Common Pool");
-                                                                         return nonDirectCommonFreePool;
-                                                                       }
-                                                                     }
-                                                                   };
 
-  private static TCByteBuffer createNewInstance(boolean direct, int capacity, int index, int totalCount) {
+  private static TCByteBuffer createNewInstance(boolean direct, int capacity, BufferPool bufferPool, int index,
+                                                int totalCount) {
     try {
-      LinkedBlockingQueue<TCByteBuffer> poolQueue = getPoolQueue(direct);
-
-      TCByteBuffer rv = new TCByteBufferImpl(capacity, direct, poolQueue);
+      TCByteBuffer rv = new TCByteBufferImpl(capacity, direct, bufferPool);
       // Assert.assertEquals(0, rv.position());
       // Assert.assertEquals(capacity, rv.capacity());
       // Assert.assertEquals(capacity, rv.limit());
@@ -108,14 +70,14 @@ public class TCByteBufferFactory {
   }
 
   /**
-   * Get a single variable sized TCByteBuffer instance Note: These are not pooled (yet)
+   * Get a single variable sized TCByteBuffer instance. Sizes the pool has a size class for are pooled, anything else
+   * is freshly allocated.
    * 
-   * @param size The desired minimum capacity of the buffer. The actual capacity may be higher. The buffer's limit will
-   *        be equal to it's capacity.
+   * @param size The desired minimum capacity of the buffer. The actual capacity may be higher (pooled buffers come in
+   *        powers of two). The buffer's limit will be equal to it's capacity.
    * @param direct True to hint that the buffer should be a direct buffer (ie. not on the Java heap). A direct buffer
    *        will never be returned if this parameter is false. A direct buffer may or MAY NOT returned if the parameter
-   *        is true TODO :: Make this the only interface and make it return fixed size buffer also make sure only
-   *        fixedBufferSize gets to the pool back.
+   *        is true
    */
   public static TCByteBuffer getInstance(boolean direct, int size) {
 
@@ -125,35 +87,29 @@ public class TCByteBufferFactory {
     if (size < 0) { throw new IllegalArgumentException("Requested length cannot be less than zero"); }
     if (size == 0) { return ZERO_BYTE_BUFFER; }
 
-    // Don't give 4k ByteBuffer from pool for smaller size requests.
-    if (disablePooling || size < (FIXED_BUFFER_SIZE - 500) || size > FIXED_BUFFER_SIZE) {
-      return createNewInstance(direct, size);
-    } else {
-      return getFromPoolOrCreate(direct);
-    }
-  }
-
-  private static TCByteBuffer getFromPoolOrCreate(boolean direct) {
-    return getFromPoolOrCreate(direct, 0, 1);
+    return getFromPoolOrCreate(direct, size, 0, 1);
   }
 
-  private static TCByteBuffer getFromPoolOrCreate(boolean direct, int i, int numBuffers) {
+  private static TCByteBuffer getFromPoolOrCreate(boolean direct, int size, int i, int numBuffers) {
+    TCByteBufferPool.SizeClass sizeClass = disablePooling ? null : pool.sizeClassFor(direct, size);
+    if (sizeClass == null) { return createNewInstance(direct, size, null, i, numBuffers); }
 
-    TCByteBuffer buffer = getFromPool(direct);
+    TCByteBuffer buffer = pool.checkOut(sizeClass);
     if (null == buffer) {
-      buffer = createNewInstance(direct, FIXED_BUFFER_SIZE, i, numBuffers);
+      buffer = createNewInstance(direct, sizeClass.size(), sizeClass, i, numBuffers);
+      sizeClass.allocated();
     }
     return buffer;
   }
 
-  private static TCByteBuffer createNewInstance(boolean direct, int bufferSize) {
-    return createNewInstance(direct, bufferSize, 0, 1);
+  /**
+   * @return The pool's counters (see {@link TCByteBufferPool#getStatistics()}), empty if pooling is disabled.
+   */
+  public static Map<String, Long> getPoolStatistics() {
+    if (disablePooling) { return Collections.emptyMap(); }
+    return pool.getStatistics();
   }
 
-  public static void registerThreadGroup(ThreadGroup group) {
-    handledGroups.add(group);
-  }
-  
   /**
    * Get enough fixed sized TCByteBuffer instances to contain the given number of bytes
    * 
@@ -176,14 +132,8 @@ public class TCByteBufferFactory {
     int numBuffers = getBufferCountNeededForMessageSize(length);
     TCByteBuffer rv[] = new TCByteBuffer[numBuffers];
 
-    if (disablePooling) {
-      for (int i = 0; i < numBuffers; i++) {
-        rv[i] = createNewInstance(direct, FIXED_BUFFER_SIZE, i, numBuffers);
-      }
-    } else { // do pooling logic
-      for (int i = 0; i < numBuffers; i++) {
-        rv[i] = getFromPoolOrCreate(direct, i, numBuffers);
-      }
+    for (int i = 0; i < numBuffers; i++) {
+      rv[i] = getFromPoolOrCreate(direct, FIXED_BUFFER_SIZE, i, numBuffers);
     }
 
     // adjust limit of last buffer returned
@@ -207,34 +157,6 @@ public class TCByteBufferFactory {
     return (getBufferCountNeededForMessageSize(length) * FIXED_BUFFER_SIZE);
   }
   
-  private static LinkedBlockingQueue<TCByteBuffer> getPoolQueue(boolean direct) {
-    if (disablePooling) {
-      return null;     
-    } else {
-      return direct ? directFreePool.get() : nonDirectFreePool.get();
-    }
-  }
-
-  private static TCByteBuffer getFromPool(boolean direct) {
-    if (disablePooling) return null;
-    TCByteBuffer buf = null;
-
-    LinkedBlockingQueue<TCByteBuffer> poolQueue = getPoolQueue(direct);
-
-    Assert.assertNotNull(poolQueue);
-
-    try {
-      if ((buf = poolQueue.poll(0, TimeUnit.MILLISECONDS)) != null) {
-        buf.checkedOut();
-      }
-    } catch (InterruptedException e) {
-      logger.warn("interrupted while getting buffer from pool");
-      Thread.currentThread().interrupt();
-      return null;
-    }
-    return buf;
-  }
-
   public static void returnBuffers(TCByteBuffer buffers[]) {
     if (disablePooling) { return; }
 
@@ -246,17 +168,13 @@ public class TCByteBufferFactory {
   public static void returnBuffer(TCByteBuffer buf) {
     if (disablePooling) { return; }
 
-    if (buf.capacity() == FIXED_BUFFER_SIZE) {
-      BufferPool bufferPool = buf.getBufferPool();
-      buf.commit();
-
-      if (bufferPool != null) {
-        try {
-          bufferPool.offer(buf);
-        } catch (InterruptedException e) {
-          logger.warn("interrupted while trying to return buffer", e);
-          Thread.currentThread().interrupt();
-        }
+    BufferPool bufferPool = buf.getBufferPool();
+    if (bufferPool != null) {
+      try {
+        bufferPool.offer(buf);
+      } catch (InterruptedException e) {
+        logger.warn("interrupted while trying to return buffer", e);
+        Thread.currentThread().interrupt();
       }
     }
   }
@@ -269,7 +187,7 @@ public class TCByteBufferFactory {
     TCByteBuffer rv = null;
     if (buf != null) {
       rv = getInstance(false, buf.length);
-      rv.put(buf).rewind();
+      rv.put(buf).flip();
     } else {
       rv = getInstance(false, 0);
     }
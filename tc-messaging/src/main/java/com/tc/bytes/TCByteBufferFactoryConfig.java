@@ -21,7 +21,13 @@ package com.tc.bytes;
 public interface TCByteBufferFactoryConfig {
   boolean isDisabled();
 
-  int getPoolMaxBufCount();
+  /**
+   * @return upper bound, in bytes, on all the pooled buffers, whether in the shared depot or in any thread's magazines
+   */
+  long getPoolMaxBytes();
 
-  int getCommonPoolMaxBufCount();
+  /**
+   * @return roughly how many bytes of each buffer size a thread keeps to itself before sharing them
+   */
+  int getPoolMagazineBytes();
 }
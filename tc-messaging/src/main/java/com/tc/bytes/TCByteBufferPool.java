@@ -0,0 +1,290 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.bytes;
+
+import com.tc.util.VicariousThreadLocal;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The size-classed buffer pool behind {@link TCByteBufferFactory}.
+ * <p>
+ * Buffers are pooled in power of two sizes from {@link #MIN_POOLED_SIZE} to {@link #MAX_POOLED_SIZE}, heap and direct
+ * ones kept apart.  Each thread checks buffers out of, and back into, its own magazine (a small stack per size class)
+ * without any synchronization.  Only when a magazine runs full or empty does the thread touch the shared depot, handing
+ * over the whole full magazine or taking a full one in exchange for its empty one, so the lock-free depot is hit once
+ * per magazine rather than once per buffer.
+ * <p>
+ * The pool is bounded in bytes, counting every buffer it holds, whether in the depot or in any thread's magazine:  a
+ * return which would take it past the bound is dropped and left for the GC.  Buffers a thread returns but never checks
+ * out again (a thread freeing what others allocated) therefore can't pile up beyond the bound; once they fill a
+ * magazine it goes to the depot for the allocating threads.  A thread's magazines are tied to it by a weak reference,
+ * so once a dead thread has been collected the bytes it held are given back to the bound.  Collected threads are
+ * checked for when a new thread starts using the pool and when the bound is hit, at no more cost than polling a
+ * reference queue.
+ * <p>
+ * Each size class counts the buffers it allocated, served from the pool, took back and dropped.  A count of
+ * outstanding buffers (checked out and never returned) which keeps on growing points at a leak.
+ */
+class TCByteBufferPool {
+  static final int              MIN_POOLED_SIZE = 512;
+  static final int              MAX_POOLED_SIZE = 1024 * 1024;
+
+  private static final int      MIN_SHIFT       = Integer.numberOfTrailingZeros(MIN_POOLED_SIZE);
+  private static final int      CLASS_COUNT     = Integer.numberOfTrailingZeros(MAX_POOLED_SIZE) - MIN_SHIFT + 1;
+
+  private final SizeClass[]     sizeClasses     = new SizeClass[2 * CLASS_COUNT];
+  private final long            maxPooledBytes;
+  private final AtomicLong      pooledBytes     = new AtomicLong();
+  // keeps every thread's magazines reachable until the thread has been collected and its reference queued
+  private final Set<OwnedMagazines>    allMagazines = ConcurrentHashMap.newKeySet();
+  private final ReferenceQueue<Thread> deadOwners   = new ReferenceQueue<Thread>();
+  private final ThreadLocal<Magazines> magazines = new VicariousThreadLocal<Magazines>() {
+                                                  @Override
+                                                  protected Magazines initialValue() {
+                                                    reclaimDeadThreads();
+                                                    Magazines own = new Magazines();
+                                                    allMagazines.add(new OwnedMagazines(Thread.currentThread(), own, deadOwners));
+                                                    return own;
+                                                  }
+                                                };
+
+  /**
+   * @param maxPooledBytes upper bound on the bytes held by the pool, in the shared depot and in every thread's magazines
+   * @param magazineBytes how many bytes of each size class go in one magazine (at least one buffer)
+   */
+  TCByteBufferPool(long maxPooledBytes, int magazineBytes) {
+    this.maxPooledBytes = maxPooledBytes;
+    for (int i = 0; i < CLASS_COUNT; ++i) {
+      int size = MIN_POOLED_SIZE << i;
+      int magazineSize = Math.max(1, magazineBytes / size);
+      this.sizeClasses[i] = new SizeClass(i, size, false, magazineSize);
+      this.sizeClasses[CLASS_COUNT + i] = new SizeClass(CLASS_COUNT + i, size, true, magazineSize);
+    }
+  }
+
+  /**
+   * @return The size class which serves buffers of the given size, or null if buffers that size aren't pooled.
+   */
+  SizeClass sizeClassFor(boolean direct, int size) {
+    if (size < MIN_POOLED_SIZE || size > MAX_POOLED_SIZE) { return null; }
+    // round up to the next power of two
+    int shift = 32 - Integer.numberOfLeadingZeros(size - 1);
+    return this.sizeClasses[(direct ? CLASS_COUNT : 0) + shift - MIN_SHIFT];
+  }
+
+  /**
+   * @return A pooled buffer of the given class, or null if there is none and the caller has to allocate one.
+   */
+  TCByteBuffer checkOut(SizeClass sizeClass) {
+    TCByteBuffer buffer = this.magazines.get().pop(sizeClass);
+    if (buffer != null) {
+      this.pooledBytes.addAndGet(-sizeClass.size);
+      buffer.checkedOut();
+      sizeClass.pooled.increment();
+    }
+    return buffer;
+  }
+
+  long getPooledBytes() {
+    reclaimDeadThreads();
+    return this.pooledBytes.get();
+  }
+
+  /**
+   * Takes room for a returned buffer out of the pool's budget.
+   */
+  private boolean reserve(int bytes) {
+    if (tryReserve(bytes)) { return true; }
+    return reclaimDeadThreads() && tryReserve(bytes);
+  }
+
+  private boolean tryReserve(int bytes) {
+    if (this.pooledBytes.addAndGet(bytes) > this.maxPooledBytes) {
+      this.pooledBytes.addAndGet(-bytes);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Drops the buffers held in the magazines of threads which have been collected, giving their bytes back to the
+   * budget.  Each dead thread is handled once, by whoever polls its reference.
+   *
+   * @return True if anything was reclaimed.
+   */
+  private boolean reclaimDeadThreads() {
+    boolean reclaimed = false;
+    Reference<? extends Thread> ref;
+    while ((ref = this.deadOwners.poll()) != null) {
+      OwnedMagazines dead = (OwnedMagazines) ref;
+      this.allMagazines.remove(dead);
+      // the owner is gone, so nothing writes its magazines any more
+      this.pooledBytes.addAndGet(-dead.magazines.heldBytes());
+      reclaimed = true;
+    }
+    return reclaimed;
+  }
+
+  /**
+   * @return The counters of every size class which has seen any use, keyed by
+   *         <code>&lt;heap|direct&gt;.&lt;size&gt;.&lt;counter&gt;</code>, plus the bytes currently held by the pool.
+   */
+  Map<String, Long> getStatistics() {
+    Map<String, Long> stats = new LinkedHashMap<String, Long>();
+    for (SizeClass sizeClass : this.sizeClasses) {
+      long allocated = sizeClass.allocated.sum();
+      long pooled = sizeClass.pooled.sum();
+      if (allocated + pooled == 0) {
+        continue;
+      }
+      long returned = sizeClass.returned.sum();
+      String prefix = (sizeClass.direct ? "direct." : "heap.") + sizeClass.size + ".";
+      stats.put(prefix + "allocated", allocated);
+      stats.put(prefix + "pooled", pooled);
+      stats.put(prefix + "returned", returned);
+      stats.put(prefix + "dropped", sizeClass.dropped.sum());
+      stats.put(prefix + "outstanding", allocated + pooled - returned);
+    }
+    stats.put("pooled.bytes", getPooledBytes());
+    return stats;
+  }
+
+  /**
+   * One size class of one kind (heap or direct) of buffer.  Buffers created for a class carry it as their
+   * {@link BufferPool} so a recycled buffer finds its way back.
+   */
+  final class SizeClass implements BufferPool {
+    private final int                             index;
+    private final int                             size;
+    private final boolean                         direct;
+    private final int                             magazineSize;
+    private final ConcurrentLinkedQueue<TCByteBuffer[]> depot     = new ConcurrentLinkedQueue<TCByteBuffer[]>();
+    private final LongAdder                       allocated = new LongAdder();
+    private final LongAdder                       pooled    = new LongAdder();
+    private final LongAdder                       returned  = new LongAdder();
+    private final LongAdder                       dropped   = new LongAdder();
+
+    private SizeClass(int index, int size, boolean direct, int magazineSize) {
+      this.index = index;
+      this.size = size;
+      this.direct = direct;
+      this.magazineSize = magazineSize;
+    }
+
+    int size() {
+      return this.size;
+    }
+
+    boolean isDirect() {
+      return this.direct;
+    }
+
+    /**
+     * Counts a buffer the caller had to allocate because the pool had none.
+     */
+    void allocated() {
+      this.allocated.increment();
+    }
+
+    @Override
+    public void offer(TCByteBuffer buf) {
+      this.returned.increment();
+      if (!magazines.get().push(this, buf)) {
+        this.dropped.increment();
+      }
+    }
+
+    private TCByteBuffer[] takeFromDepot() {
+      return this.depot.poll();
+    }
+
+    private void giveToDepot(TCByteBuffer[] magazine) {
+      this.depot.offer(magazine);
+    }
+  }
+
+  /**
+   * Ties a thread's magazines to the thread without keeping it alive.
+   */
+  private static final class OwnedMagazines extends WeakReference<Thread> {
+    private final Magazines magazines;
+
+    OwnedMagazines(Thread owner, Magazines magazines, ReferenceQueue<Thread> queue) {
+      super(owner, queue);
+      this.magazines = magazines;
+    }
+  }
+
+  /**
+   * A thread's own magazines, one per size class.
+   */
+  private final class Magazines {
+    private final TCByteBuffer[][] loaded = new TCByteBuffer[sizeClasses.length][];
+    private final int[]            counts = new int[sizeClasses.length];
+
+    long heldBytes() {
+      long held = 0;
+      for (SizeClass sizeClass : sizeClasses) {
+        held += (long) this.counts[sizeClass.index] * sizeClass.size;
+      }
+      return held;
+    }
+
+    TCByteBuffer pop(SizeClass sizeClass) {
+      int i = sizeClass.index;
+      if (this.counts[i] == 0) {
+        TCByteBuffer[] full = sizeClass.takeFromDepot();
+        if (full == null) { return null; }
+        // the empty magazine is simply dropped, they are cheap to make
+        this.loaded[i] = full;
+        this.counts[i] = full.length;
+      }
+      TCByteBuffer[] magazine = this.loaded[i];
+      int top = --this.counts[i];
+      TCByteBuffer buffer = magazine[top];
+      magazine[top] = null;
+      return buffer;
+    }
+
+    boolean push(SizeClass sizeClass, TCByteBuffer buffer) {
+      if (!reserve(sizeClass.size)) { return false; }
+      int i = sizeClass.index;
+      TCByteBuffer[] magazine = this.loaded[i];
+      if (magazine == null) {
+        magazine = this.loaded[i] = new TCByteBuffer[sizeClass.magazineSize];
+      } else if (this.counts[i] == magazine.length) {
+        sizeClass.giveToDepot(magazine);
+        magazine = this.loaded[i] = new TCByteBuffer[sizeClass.magazineSize];
+        this.counts[i] = 0;
+      }
+      magazine[this.counts[i]++] = buffer;
+      return true;
+    }
+  }
+}
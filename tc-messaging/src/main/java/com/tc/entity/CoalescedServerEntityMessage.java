@@ -0,0 +1,58 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import com.tc.object.EntityDescriptor;
+
+
+/**
+ * A server-initiated entity message which arrived packed into a {@link VoltronEntityMultiResponse} rather than as its
+ * own {@link ServerEntityMessage}.
+ */
+public class CoalescedServerEntityMessage {
+  private final EntityDescriptor entityDescriptor;
+  private final byte[] message;
+  private final Long responseId;
+
+  public CoalescedServerEntityMessage(EntityDescriptor entityDescriptor, byte[] message, Long responseId) {
+    this.entityDescriptor = entityDescriptor;
+    this.message = message;
+    this.responseId = responseId;
+  }
+
+  public EntityDescriptor getEntityDescriptor() {
+    return entityDescriptor;
+  }
+
+  public byte[] getMessage() {
+    return message;
+  }
+
+  /**
+   * @return The ID the client must acknowledge receipt with, or null if the server isn't waiting for one.
+   */
+  public Long getResponseId() {
+    return responseId;
+  }
+
+  @Override
+  public String toString() {
+    return "CoalescedServerEntityMessage{" + "entityDescriptor=" + entityDescriptor + ", responseId=" + responseId + '}';
+  }
+}
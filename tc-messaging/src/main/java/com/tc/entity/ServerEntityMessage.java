@@ -19,6 +19,7 @@
 
 package com.tc.entity;
 
+import com.tc.bytes.TCByteBuffer;
 import com.tc.net.protocol.tcm.TCMessage;
 import com.tc.object.EntityDescriptor;
 
@@ -31,6 +32,14 @@ public interface ServerEntityMessage extends TCMessage {
 
   void setMessage(EntityDescriptor entityDescriptor, byte[] payload, long responseId);
 
+  /**
+   * Sets a payload which may be shared by many messages, as when the same message is broadcast to many clients.  The
+   * buffers are written into the message by reference and are never modified.
+   */
+  void setMessage(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload);
+
+  void setMessage(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload, long responseId);
+
   EntityDescriptor getEntityDescriptor();
   
   byte[] getMessage();
@@ -0,0 +1,38 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.object.EntityDescriptor;
+
+
+/**
+ * The server side of a {@link VoltronEntityMultiResponse}:  packs server-initiated entity messages in with the acks
+ * and results headed to a client.  Clients only ever read these messages back so they don't implement this.
+ */
+public interface ServerEntityMessageCarrier {
+  /**
+   * Packs a server-initiated entity message in with the acks and results for this client.  The payload buffers are
+   * written by reference, so they may be shared with messages to other clients.
+   * 
+   * @param responseId The ID the client must acknowledge receipt with, or null if no acknowledgement is wanted
+   * @return False if this message is sealed or has no room left for the payload, in which case a new one is needed
+   */
+  boolean addServerEntityMessage(EntityDescriptor descriptor, TCByteBuffer[] payload, Long responseId);
+}
@@ -40,6 +40,8 @@ public class ServerEntityMessageImpl extends DSOMessageBase implements ServerEnt
   private static final byte RESPONSE_ID = 2;
 
   private byte[] message;
+  // Set instead of message when the payload is shared with other messages.
+  private TCByteBuffer[] sharedMessage;
   private EntityDescriptor entityDescriptor;
   private Long responseId;
 
@@ -64,6 +66,19 @@ public class ServerEntityMessageImpl extends DSOMessageBase implements ServerEnt
     this.responseId = responseId;
   }
 
+  @Override
+  public void setMessage(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload) {
+    this.entityDescriptor = entityDescriptor;
+    this.sharedMessage = sharedPayload;
+  }
+
+  @Override
+  public void setMessage(EntityDescriptor entityDescriptor, TCByteBuffer[] sharedPayload, long responseId) {
+    this.entityDescriptor = entityDescriptor;
+    this.sharedMessage = sharedPayload;
+    this.responseId = responseId;
+  }
+
   @Override
   public Long getResponseId() {
     return responseId;
@@ -76,17 +91,41 @@ public class ServerEntityMessageImpl extends DSOMessageBase implements ServerEnt
 
   @Override
   public byte[] getMessage() {
+    if (null == message && null != sharedMessage) {
+      // Only a sender would ask, so this copy is never on the broadcast path.
+      message = new byte[sharedLength()];
+      int offset = 0;
+      for (TCByteBuffer buffer : sharedMessage) {
+        int length = buffer.limit();
+        buffer.get(0, message, offset, length);
+        offset += length;
+      }
+    }
     return message;
   }
 
+  private int sharedLength() {
+    int length = 0;
+    for (TCByteBuffer buffer : sharedMessage) {
+      length += buffer.limit();
+    }
+    return length;
+  }
+
   @Override
   protected void dehydrateValues() {
     putNVPair(ENTITY_DESCRIPTOR, this.entityDescriptor);
     if (responseId != null) {
       putNVPair(RESPONSE_ID, responseId);
     }
-    putNVPair(MESSAGE, message.length);
-    getOutputStream().write(message);
+    if (null != sharedMessage) {
+      // The stream takes duplicates of the buffers so the shared ones are neither copied nor moved.
+      putNVPair(MESSAGE, sharedLength());
+      getOutputStream().write(sharedMessage);
+    } else {
+      putNVPair(MESSAGE, message.length);
+      getOutputStream().write(message);
+    }
   }
 
   @Override
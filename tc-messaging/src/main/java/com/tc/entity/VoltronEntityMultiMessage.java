@@ -0,0 +1,45 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import com.tc.net.protocol.tcm.TCMessage;
+
+import java.util.List;
+
+
+/**
+ * Carries several client requests to the server in one network message, the request direction counterpart of
+ * {@link VoltronEntityMultiResponse}.  The server hands the contained messages to the request processing stage in the
+ * order they were added.
+ */
+public interface VoltronEntityMultiMessage extends TCMessage {
+  /**
+   * Adds the contents of the given request.  The request itself is never sent.
+   *
+   * @return False if the message has already been sealed, in which case it is unchanged.
+   */
+  boolean addMessage(VoltronEntityMessage message);
+
+  /**
+   * @return The contained requests, in the order they were added.
+   */
+  List<VoltronEntityMessage> getMessages();
+
+  void setMessageCodecSupplier(MessageCodecSupplier supplier);
+}
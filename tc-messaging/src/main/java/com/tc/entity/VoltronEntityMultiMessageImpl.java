@@ -0,0 +1,164 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.io.TCByteBufferInputStream;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.ClientID;
+import com.tc.net.protocol.tcm.MessageChannel;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.msg.DSOMessageBase;
+import com.tc.object.session.SessionID;
+import com.tc.object.tx.TransactionID;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.terracotta.entity.EntityMessage;
+import org.terracotta.entity.MessageCodecException;
+
+
+public class VoltronEntityMultiMessageImpl extends DSOMessageBase implements VoltronEntityMultiMessage {
+  private static final byte MESSAGES_ID = 0;
+
+  private final List<VoltronEntityMessage> messages = new ArrayList<VoltronEntityMessage>();
+  private MessageCodecSupplier supplier;
+
+  public VoltronEntityMultiMessageImpl(SessionID sessionID, MessageMonitor monitor, TCByteBufferOutputStream out, MessageChannel channel, TCMessageType type) {
+    super(sessionID, monitor, out, channel, type);
+  }
+
+  public VoltronEntityMultiMessageImpl(SessionID sessionID, MessageMonitor monitor, MessageChannel channel, TCMessageHeader header, TCByteBuffer[] data) {
+    super(sessionID, monitor, channel, header, data);
+  }
+
+  @Override
+  public synchronized boolean addMessage(VoltronEntityMessage message) {
+    if (isSealed()) {
+      return false;
+    }
+    this.messages.add(message);
+    return true;
+  }
+
+  @Override
+  public List<VoltronEntityMessage> getMessages() {
+    return Collections.unmodifiableList(this.messages);
+  }
+
+  @Override
+  public void setMessageCodecSupplier(MessageCodecSupplier supplier) {
+    this.supplier = supplier;
+  }
+
+  @Override
+  protected void dehydrateValues() {
+    TCByteBufferOutputStream outputStream = getOutputStream();
+    putNVPair(MESSAGES_ID, this.messages.size());
+    for (VoltronEntityMessage message : this.messages) {
+      new ResendVoltronEntityMessage(message.getSource(), message.getTransactionID(), message.getEntityDescriptor(),
+          message.getVoltronType(), message.doesRequireReplication(), message.getExtendedData(),
+          message.getOldestTransactionOnClient()).serializeTo(outputStream);
+    }
+  }
+
+  @Override
+  protected boolean hydrateValue(byte name) throws IOException {
+    if (MESSAGES_ID != name) {
+      return false;
+    }
+    TCByteBufferInputStream input = getInputStream();
+    int size = getIntValue();
+    for (int i = 0; i < size; ++i) {
+      ResendVoltronEntityMessage message = new ResendVoltronEntityMessage().deserializeFrom(input);
+      this.messages.add(decode(message));
+    }
+    return true;
+  }
+
+  private VoltronEntityMessage decode(VoltronEntityMessage message) {
+    // As with a single message, decode invokes here on the hydrate stage.  A failure is left for the request processor
+    // to hit again, and report to the client.
+    if (null != this.supplier && VoltronEntityMessage.Type.INVOKE_ACTION == message.getVoltronType()) {
+      try {
+        EntityMessage decoded = this.supplier.getMessageCodec(message.getEntityDescriptor().getEntityID()).decodeMessage(message.getExtendedData());
+        return new DecodedMessage(message, decoded);
+      } catch (MessageCodecException exception) {
+        // swallow it, see NetworkVoltronEntityMessageImpl.hydrateValue()
+      }
+    }
+    return message;
+  }
+
+  private static class DecodedMessage implements VoltronEntityMessage {
+    private final VoltronEntityMessage message;
+    private final EntityMessage decoded;
+
+    DecodedMessage(VoltronEntityMessage message, EntityMessage decoded) {
+      this.message = message;
+      this.decoded = decoded;
+    }
+
+    @Override
+    public ClientID getSource() {
+      return this.message.getSource();
+    }
+
+    @Override
+    public TransactionID getTransactionID() {
+      return this.message.getTransactionID();
+    }
+
+    @Override
+    public EntityDescriptor getEntityDescriptor() {
+      return this.message.getEntityDescriptor();
+    }
+
+    @Override
+    public boolean doesRequireReplication() {
+      return this.message.doesRequireReplication();
+    }
+
+    @Override
+    public Type getVoltronType() {
+      return this.message.getVoltronType();
+    }
+
+    @Override
+    public byte[] getExtendedData() {
+      return this.message.getExtendedData();
+    }
+
+    @Override
+    public TransactionID getOldestTransactionOnClient() {
+      return this.message.getOldestTransactionOnClient();
+    }
+
+    @Override
+    public EntityMessage getEntityMessage() {
+      return this.decoded;
+    }
+  }
+}
@@ -21,6 +21,7 @@ package com.tc.entity;
 
 import com.tc.net.protocol.tcm.TCMessage;
 import com.tc.object.tx.TransactionID;
+import java.util.List;
 import java.util.Map;
 
 
@@ -36,4 +37,9 @@ public interface VoltronEntityMultiResponse extends TCMessage {
   boolean addReceived(TransactionID tid);
   boolean addRetired(TransactionID tid);
   boolean addResult(TransactionID tid, byte[] result);
+
+  /**
+   * @return The server-initiated entity messages which arrived packed into this message, in the order they were added.
+   */
+  List<CoalescedServerEntityMessage> getServerEntityMessages();
 }
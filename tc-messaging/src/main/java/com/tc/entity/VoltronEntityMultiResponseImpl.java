@@ -25,6 +25,7 @@ import com.tc.net.protocol.tcm.MessageChannel;
 import com.tc.net.protocol.tcm.MessageMonitor;
 import com.tc.net.protocol.tcm.TCMessageHeader;
 import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.object.EntityDescriptor;
 import com.tc.object.msg.DSOMessageBase;
 import com.tc.object.session.SessionID;
 import com.tc.object.tx.TransactionID;
@@ -38,14 +39,23 @@ import java.util.List;
 import java.util.Map;
 
 
-public class VoltronEntityMultiResponseImpl extends DSOMessageBase implements VoltronEntityMultiResponse {
+public class VoltronEntityMultiResponseImpl extends DSOMessageBase implements VoltronEntityMultiResponse, ServerEntityMessageCarrier {
   private static final byte TRANSACTION_ID = 0;
   private static final byte RESULTS_ID = 1;
   private static final byte RECEIVED_ID = 2;
+  // Older clients take any name they don't know for RESULTS_ID, so this is only packed for clients which advertised
+  // coalescing in their handshake.
+  private static final byte SERVER_MESSAGES_ID = 3;
+  // Once this many bytes of server-initiated messages are packed in, the next one has to go in a new message.
+  private static final int MAX_SERVER_MESSAGE_BYTES = 256 * 1024;
   
   private List<TransactionID> receivedIDs;
   private List<TransactionID> retiredIDs;
   private Map<TransactionID, byte[]> results;
+  // Outgoing server-initiated messages keep their (possibly shared) payload buffers until dehydrate.
+  private List<OutgoingServerMessage> outgoingServerMessages;
+  private int serverMessageBytes;
+  private List<CoalescedServerEntityMessage> serverMessages;
   
   public VoltronEntityMultiResponseImpl(SessionID sessionID, MessageMonitor monitor, TCByteBufferOutputStream out, MessageChannel channel, TCMessageType type) {
     super(sessionID, monitor, out, channel, type);
@@ -108,6 +118,31 @@ public class VoltronEntityMultiResponseImpl extends DSOMessageBase implements Vo
     return false;
   }
   
+  @Override
+  public synchronized boolean addServerEntityMessage(EntityDescriptor descriptor, TCByteBuffer[] payload, Long responseId) {
+    if (!isSealed()) {
+      int length = 0;
+      for (TCByteBuffer buffer : payload) {
+        length += buffer.limit();
+      }
+      if (serverMessageBytes > 0 && serverMessageBytes + length > MAX_SERVER_MESSAGE_BYTES) {
+        return false;
+      }
+      if (outgoingServerMessages == null) {
+        outgoingServerMessages = new ArrayList<OutgoingServerMessage>();
+      }
+      outgoingServerMessages.add(new OutgoingServerMessage(descriptor, payload, length, responseId));
+      serverMessageBytes += length;
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public List<CoalescedServerEntityMessage> getServerEntityMessages() {
+    return (this.serverMessages == null) ? Collections.<CoalescedServerEntityMessage>emptyList() : Collections.unmodifiableList(this.serverMessages);
+  }
+
   @Override
   public TransactionID[] getReceivedTransactions() {
     return (this.receivedIDs != null) ? receivedIDs.toArray(new TransactionID[receivedIDs.size()]) : new TransactionID[0];
@@ -140,6 +175,17 @@ public class VoltronEntityMultiResponseImpl extends DSOMessageBase implements Vo
         retiredIDs.add(new TransactionID(input.readLong()));
       }
       return true;
+    } else if (name == SERVER_MESSAGES_ID) {
+      int size = getIntValue();
+      serverMessages = new ArrayList<CoalescedServerEntityMessage>(size);
+      for (int x=0;x<size;x++) {
+        EntityDescriptor descriptor = EntityDescriptor.readFrom(input);
+        Long responseId = input.readBoolean() ? input.readLong() : null;
+        byte[] message = new byte[input.readInt()];
+        input.readFully(message);
+        serverMessages.add(new CoalescedServerEntityMessage(descriptor, message, responseId));
+      }
+      return true;
     } else {
       int size = getIntValue();
       results = new HashMap<TransactionID, byte[]>();
@@ -177,5 +223,32 @@ public class VoltronEntityMultiResponseImpl extends DSOMessageBase implements Vo
         outputStream.write(entries.getValue());
       }
     }
+    if (outgoingServerMessages != null) {
+      putNVPair(SERVER_MESSAGES_ID, outgoingServerMessages.size());
+      for (OutgoingServerMessage message : outgoingServerMessages) {
+        message.descriptor.serializeTo(outputStream);
+        outputStream.writeBoolean(message.responseId != null);
+        if (message.responseId != null) {
+          outputStream.writeLong(message.responseId);
+        }
+        outputStream.writeInt(message.length);
+        // The stream takes duplicates of the buffers so shared payloads are neither copied nor moved.
+        outputStream.write(message.payload);
+      }
+    }
+  }
+
+  private static class OutgoingServerMessage {
+    private final EntityDescriptor descriptor;
+    private final TCByteBuffer[] payload;
+    private final int length;
+    private final Long responseId;
+
+    OutgoingServerMessage(EntityDescriptor descriptor, TCByteBuffer[] payload, int length, Long responseId) {
+      this.descriptor = descriptor;
+      this.payload = payload;
+      this.length = length;
+      this.responseId = responseId;
+    }
   }
 }
@@ -29,6 +29,9 @@ import com.tc.object.tx.TransactionID;
 import com.tc.util.Assert;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 
 public class ReplicationMessage extends AbstractGroupMessage implements OrderedEventContext {
@@ -37,6 +40,7 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
   public static final int REPLICATE               = 1; // Sent to replicate a request on the passive
   public static final int SYNC               = 2; // Sent as part of a sync sequence
   public static final int START                = 3; // start replication
+  public static final int BATCH                = 4; // several REPLICATE or SYNC messages sent to a passive as one frame
 
   // Factory methods.
   public static ReplicationMessage createStartMessage() {
@@ -53,6 +57,17 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
     return new ReplicationMessage(activity);
   }
 
+  /**
+   * Wraps replicated and sync messages bound for the same passive so they go over the wire as a single frame.  The
+   * wrapped messages keep their own message IDs, which is what the passive acks, and are handled in list order.  Only
+   * send these to a passive which advertised support for them in its group handshake.
+   */
+  public static ReplicationMessage createBatchMessage(List<ReplicationMessage> messages) {
+    ReplicationMessage batch = new ReplicationMessage(BATCH);
+    batch.batch = new ArrayList<>(messages);
+    return batch;
+  }
+
   // Sync-related factory methods (here temporarily while this message type is refactored to permit batching).
   public static ReplicationMessage createStartSyncMessage() {
     SyncReplicationActivity activity = SyncReplicationActivity.createStartSyncMessage();
@@ -91,6 +106,7 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
   }
 
   private SyncReplicationActivity activity;
+  private List<ReplicationMessage> batch;
   
   long rid = 0;
   
@@ -154,6 +170,25 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
   public int getConcurrency() {
     return this.activity.concurrency;
   }
+
+  /**
+   * @return The messages carried by a BATCH frame, in the order they were replicated.  They are reported as coming
+   * from the same node as the frame itself.
+   */
+  public List<ReplicationMessage> getBatch() {
+    Assert.assertTrue(BATCH == getType());
+    for (ReplicationMessage message : this.batch) {
+      message.setMessageOrginator(messageFrom());
+    }
+    return Collections.unmodifiableList(this.batch);
+  }
+
+  /**
+   * @return The number of payload bytes this message puts on the wire, used to size batches
+   */
+  public int getPayloadSize() {
+    return (this.activity != null && this.activity.payload != null) ? this.activity.payload.length : 0;
+  }
   
   @Override
   protected void basicDeserializeFrom(TCByteBufferInput in) throws IOException {
@@ -178,6 +213,17 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
           Assert.assertTrue(this.activity.action, REPLICATE == messageType);
         }
         break;
+      case BATCH:
+        this.rid = in.readLong();
+        int size = in.readInt();
+        this.batch = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+          ReplicationMessage message = new ReplicationMessage();
+          message.deserializeFrom(in);
+          Assert.assertTrue(REPLICATE == message.getType() || SYNC == message.getType());
+          this.batch.add(message);
+        }
+        break;
     }
   }
 
@@ -197,6 +243,13 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
         out.writeLong(rid);
         this.activity.serializeTo(out);
         break;
+      case BATCH:
+        out.writeLong(rid);
+        out.writeInt(this.batch.size());
+        for (ReplicationMessage message : this.batch) {
+          message.serializeTo(out);
+        }
+        break;
     }
   }
   
@@ -206,6 +259,9 @@ public class ReplicationMessage extends AbstractGroupMessage implements OrderedE
 
   @Override
   public String toString() {
+    if (BATCH == getType()) {
+      return "ReplicationMessage{rid=" + rid + ", batch=" + this.batch.size() + "}";
+    }
     return "ReplicationMessage{rid=" + rid + ", activity=" + this.activity + "}";
   }
 }
@@ -0,0 +1,102 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.net.groups;
+
+import com.tc.l2.msg.ActiveJoinMessage;
+import com.tc.l2.msg.ClusterStateMessage;
+import com.tc.l2.msg.L2StateMessage;
+import com.tc.l2.msg.PlatformInfoRequest;
+import com.tc.l2.msg.ReplicationMessage;
+import com.tc.l2.msg.ReplicationMessageAck;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Numeric type IDs for the group messages exchanged between servers.
+ * <p>
+ * A {@link TCGroupMessageWrapper} normally names its payload by class name, which the receiver resolves and
+ * instantiates reflectively.  Messages registered here can instead be sent as a small integer and created through a
+ * factory.  Peers advertise their {@link #VERSION} during the group handshake and type IDs are only used between
+ * servers which advertised the same one, so any change to the table below must bump the version.  Unregistered
+ * messages, and every message to a peer with a different table, still go by class name.  Servers built before this
+ * table existed advertise nothing, so they are only ever sent class names.
+ */
+public final class GroupMessageRegistry {
+  /**
+   * Version of the type table, exchanged in the group handshake.
+   */
+  public static final int VERSION      = 1;
+  /**
+   * Type ID of messages which aren't in the table, and the version advertised by peers which don't know of it.
+   */
+  public static final int UNREGISTERED = 0;
+
+  private static final Map<Class<? extends AbstractGroupMessage>, Integer> TYPE_IDS = new IdentityHashMap<>();
+  private static final Supplier<?>[] FACTORIES = new Supplier<?>[11];
+
+  static {
+    register(1, ReplicationMessage.class, ReplicationMessage::new);
+    register(2, ReplicationMessageAck.class, ReplicationMessageAck::new);
+    register(3, L2StateMessage.class, L2StateMessage::new);
+    register(4, ClusterStateMessage.class, ClusterStateMessage::new);
+    register(5, ActiveJoinMessage.class, ActiveJoinMessage::new);
+    register(6, PlatformInfoRequest.class, PlatformInfoRequest::new);
+    register(7, GroupZapNodeMessage.class, GroupZapNodeMessage::new);
+    register(8, L1RemovedGroupMessage.class, L1RemovedGroupMessage::new);
+    register(9, StripeIDGroupMessage.class, StripeIDGroupMessage::new);
+    register(10, StripeIDMismatchGroupMessage.class, StripeIDMismatchGroupMessage::new);
+  }
+
+  private GroupMessageRegistry() {
+    // static only
+  }
+
+  private static <T extends AbstractGroupMessage> void register(int typeID, Class<T> type, Supplier<T> factory) {
+    FACTORIES[typeID] = factory;
+    TYPE_IDS.put(type, typeID);
+  }
+
+  /**
+   * @return True if type IDs can be used with a peer which advertised the given table version
+   */
+  public static boolean isCompatible(int peerVersion) {
+    return VERSION == peerVersion;
+  }
+
+  /**
+   * @return The type ID of the message or {@link #UNREGISTERED} if it has to be sent by class name
+   */
+  public static int typeOf(AbstractGroupMessage message) {
+    Integer typeID = TYPE_IDS.get(message.getClass());
+    return (typeID != null) ? typeID : UNREGISTERED;
+  }
+
+  /**
+   * @return A new, empty message of the given type, ready to be deserialized
+   */
+  public static AbstractGroupMessage create(int typeID) {
+    Supplier<?> factory = (typeID > UNREGISTERED && typeID < FACTORIES.length) ? FACTORIES[typeID] : null;
+    if (factory == null) {
+      throw new IllegalArgumentException("Unknown group message type " + typeID);
+    }
+    return (AbstractGroupMessage) factory.get();
+  }
+}
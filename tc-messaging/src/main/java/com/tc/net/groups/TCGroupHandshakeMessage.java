@@ -43,6 +43,10 @@ public class TCGroupHandshakeMessage extends DSOMessageBase {
   private final static int  HANDSHAKE_ACK        = 2;
   private final static int  HANDSHAKE_OK         = 1;
   private final static int  HANDSHAKE_DENY       = 0;
+  // NODE_ID advertises what the server understands in the header's message type version, which servers from before
+  // it was used read but ignore.  The low byte is the GroupMessageRegistry version, the bits above it are features.
+  private final static int  MESSAGE_TYPES_MASK   = 0xFF;
+  private final static int  BATCHED_REPLICATION  = 0x100;
   private byte              messageType;
   private ServerID          nodeID;
   private int               message;
@@ -94,6 +98,9 @@ public class TCGroupHandshakeMessage extends DSOMessageBase {
     this.nodeID = aNodeID;
     this.version = ver;
     this.weights = weightsArray;
+    // Carried in the header rather than as name-value pairs: older servers ignore the header version but reject
+    // unknown names, so this doesn't stop them from joining.
+    setMessageVersion(GroupMessageRegistry.VERSION | BATCHED_REPLICATION);
   }
 
   public String getVersion() {
@@ -104,6 +111,22 @@ public class TCGroupHandshakeMessage extends DSOMessageBase {
     return weights;
   }
 
+  /**
+   * @return The {@link GroupMessageRegistry} version of the peer, UNREGISTERED if it only knows class names
+   */
+  public int getMessageTypesVersion() {
+    Assert.eval(this.messageType == NODE_ID);
+    return getMessageVersion() & MESSAGE_TYPES_MASK;
+  }
+
+  /**
+   * @return True if the peer unpacks BATCH replication messages, false if each one has to be sent on its own
+   */
+  public boolean isBatchedReplicationSupported() {
+    Assert.eval(this.messageType == NODE_ID);
+    return (getMessageVersion() & BATCHED_REPLICATION) != 0;
+  }
+
   @Override
   protected void dehydrateValues() {
     putNVPair(MESSAGE_TYPE, messageType);
@@ -34,8 +34,10 @@ import java.io.IOException;
  * @author EY
  */
 public class TCGroupMessageWrapper extends DSOMessageBase {
-  private final static byte GROUP_MESSAGE_ID = 1;
+  private final static byte GROUP_MESSAGE_ID      = 1;
+  private final static byte GROUP_MESSAGE_TYPE_ID = 2;
   private AbstractGroupMessage      message;
+  private boolean                   sendTypeID;
 
   public TCGroupMessageWrapper(SessionID sessionID, MessageMonitor monitor, TCByteBufferOutputStream out,
                                MessageChannel channel, TCMessageType type) {
@@ -48,7 +50,16 @@ public class TCGroupMessageWrapper extends DSOMessageBase {
   }
 
   public void setGroupMessage(AbstractGroupMessage message) {
+    setGroupMessage(message, false);
+  }
+
+  /**
+   * @param sendTypeID True if the peer shares our {@link GroupMessageRegistry} table, so that registered messages can
+   *        be named by type ID rather than class name
+   */
+  public void setGroupMessage(AbstractGroupMessage message, boolean sendTypeID) {
     this.message = message;
+    this.sendTypeID = sendTypeID;
   }
 
   public AbstractGroupMessage getGroupMessage() {
@@ -57,7 +68,12 @@ public class TCGroupMessageWrapper extends DSOMessageBase {
 
   @Override
   protected void dehydrateValues() {
-    putNVPair(GROUP_MESSAGE_ID, this.message.getClass().getName());
+    int typeID = this.sendTypeID ? GroupMessageRegistry.typeOf(this.message) : GroupMessageRegistry.UNREGISTERED;
+    if (typeID != GroupMessageRegistry.UNREGISTERED) {
+      putNVPair(GROUP_MESSAGE_TYPE_ID, typeID);
+    } else {
+      putNVPair(GROUP_MESSAGE_ID, this.message.getClass().getName());
+    }
     this.message.serializeTo(getOutputStream());
   }
 
@@ -77,6 +93,10 @@ public class TCGroupMessageWrapper extends DSOMessageBase {
         }
         this.message.deserializeFrom(in);
         return true;
+      case GROUP_MESSAGE_TYPE_ID:
+        this.message = GroupMessageRegistry.create(getIntValue());
+        this.message.deserializeFrom(getInputStream());
+        return true;
       default:
         return false;
     }
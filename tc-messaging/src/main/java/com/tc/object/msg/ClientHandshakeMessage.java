@@ -52,6 +52,11 @@ public interface ClientHandshakeMessage extends TCMessage {
 
   long getLocalTimeMills();
 
+  /**
+   * @return True if the client unpacks server entity messages coalesced into its multi-responses
+   */
+  boolean acceptsCoalescedServerMessages();
+
   void addReconnectReference(ClientEntityReferenceContext context);
 
   Collection<ClientEntityReferenceContext> getReconnectReferences();
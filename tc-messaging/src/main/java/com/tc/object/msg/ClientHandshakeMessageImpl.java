@@ -47,6 +47,9 @@ public class ClientHandshakeMessageImpl extends DSOMessageBase implements Client
   private static final byte   CLIENT_PID               = 7;
   private static final byte   CLIENT_UUID              = 8;
   private static final byte   CLIENT_NAME              = 9;
+  // Capabilities go in the header's message type version, which servers from before it was used read but ignore.
+  // Name-value pairs they don't know of would fail the handshake instead.
+  private static final int    COALESCED_SERVER_MESSAGES = 0x1;
 
   private final Set<ClientServerExchangeLockContext> lockContexts             = new HashSet<ClientServerExchangeLockContext>();
   private long                currentLocalTimeMills    = System.currentTimeMillis();
@@ -66,6 +69,7 @@ public class ClientHandshakeMessageImpl extends DSOMessageBase implements Client
   public ClientHandshakeMessageImpl(SessionID sessionID, MessageMonitor monitor, TCByteBufferOutputStream out,
                                     MessageChannel channel, TCMessageType messageType) {
     super(sessionID, monitor, out, channel, messageType);
+    setMessageVersion(COALESCED_SERVER_MESSAGES);
   }
 
   public ClientHandshakeMessageImpl(SessionID sessionID, MessageMonitor monitor, MessageChannel channel,
@@ -138,6 +142,11 @@ public class ClientHandshakeMessageImpl extends DSOMessageBase implements Client
     return this.currentLocalTimeMills;
   }
 
+  @Override
+  public boolean acceptsCoalescedServerMessages() {
+    return (getMessageVersion() & COALESCED_SERVER_MESSAGES) != 0;
+  }
+
   @Override
   protected void dehydrateValues() {
     for (final ClientServerExchangeLockContext lockContext : this.lockContexts) {
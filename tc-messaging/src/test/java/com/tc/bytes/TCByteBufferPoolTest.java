@@ -0,0 +1,207 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.bytes;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TCByteBufferPoolTest {
+
+  @Test
+  public void testSizeClasses() {
+    TCByteBufferPool pool = new TCByteBufferPool(1024 * 1024, 64 * 1024);
+    assertNull(pool.sizeClassFor(false, TCByteBufferPool.MIN_POOLED_SIZE - 1));
+    assertNull(pool.sizeClassFor(false, TCByteBufferPool.MAX_POOLED_SIZE + 1));
+    assertEquals(512, pool.sizeClassFor(false, 512).size());
+    assertEquals(1024, pool.sizeClassFor(false, 513).size());
+    assertEquals(4096, pool.sizeClassFor(true, 4096).size());
+    assertEquals(TCByteBufferPool.MAX_POOLED_SIZE, pool.sizeClassFor(false, TCByteBufferPool.MAX_POOLED_SIZE).size());
+    assertNotSame(pool.sizeClassFor(false, 4096), pool.sizeClassFor(true, 4096));
+  }
+
+  @Test
+  public void testReturnedBufferIsReused() throws Exception {
+    TCByteBufferPool pool = new TCByteBufferPool(1024 * 1024, 64 * 1024);
+    TCByteBufferPool.SizeClass sizeClass = pool.sizeClassFor(false, 4000);
+    assertNull(pool.checkOut(sizeClass));
+
+    TCByteBuffer buffer = allocate(sizeClass);
+    buffer.putInt(42);
+    recycle(buffer);
+
+    TCByteBuffer again = pool.checkOut(sizeClass);
+    assertSame(buffer, again);
+    assertEquals(0, again.position());
+    assertEquals(again.capacity(), again.limit());
+    assertNull(pool.checkOut(sizeClass));
+  }
+
+  @Test
+  public void testFullMagazinesMoveBetweenThreads() throws Exception {
+    // 4 buffers of 4K to a magazine
+    final TCByteBufferPool pool = new TCByteBufferPool(1024 * 1024, 16 * 1024);
+    final TCByteBufferPool.SizeClass sizeClass = pool.sizeClassFor(true, 4096);
+
+    final List<TCByteBuffer> returned = new ArrayList<TCByteBuffer>();
+    for (int i = 0; i < 9; ++i) {
+      returned.add(allocate(sizeClass));
+    }
+    for (TCByteBuffer buffer : returned) {
+      recycle(buffer);
+    }
+    // two full magazines went to the depot, the ninth buffer stays with this thread, all of them count
+    assertEquals(9 * 4096, pool.getPooledBytes());
+
+    final AtomicReference<List<TCByteBuffer>> fromOtherThread = new AtomicReference<List<TCByteBuffer>>();
+    Thread other = new Thread() {
+      @Override
+      public void run() {
+        List<TCByteBuffer> got = new ArrayList<TCByteBuffer>();
+        TCByteBuffer buffer;
+        while ((buffer = pool.checkOut(sizeClass)) != null) {
+          got.add(buffer);
+        }
+        fromOtherThread.set(got);
+      }
+    };
+    other.start();
+    other.join();
+
+    assertEquals(8, fromOtherThread.get().size());
+    assertTrue(returned.containsAll(fromOtherThread.get()));
+    assertEquals(4096, pool.getPooledBytes());
+    assertNotNull(pool.checkOut(sizeClass));
+    assertEquals(0, pool.getPooledBytes());
+  }
+
+  @Test
+  public void testPoolIsBounded() throws Exception {
+    // room in the pool for a single magazine of 2 x 1K
+    TCByteBufferPool pool = new TCByteBufferPool(2 * 1024, 2 * 1024);
+    TCByteBufferPool.SizeClass sizeClass = pool.sizeClassFor(false, 1024);
+
+    List<TCByteBuffer> buffers = new ArrayList<TCByteBuffer>();
+    for (int i = 0; i < 6; ++i) {
+      buffers.add(allocate(sizeClass));
+    }
+    for (TCByteBuffer buffer : buffers) {
+      recycle(buffer);
+    }
+
+    // 2 in this thread's magazine and the rest dropped
+    Map<String, Long> stats = pool.getStatistics();
+    assertEquals(Long.valueOf(2 * 1024), stats.get("pooled.bytes"));
+    assertEquals(Long.valueOf(6), stats.get("heap.1024.returned"));
+    assertEquals(Long.valueOf(4), stats.get("heap.1024.dropped"));
+    assertEquals(Long.valueOf(0), stats.get("heap.1024.outstanding"));
+  }
+
+  @Test
+  public void testMagazinesOfEveryThreadShareTheBound() throws Exception {
+    // room for 4 x 1K in all, a magazine holds 2
+    final TCByteBufferPool pool = new TCByteBufferPool(4 * 1024, 2 * 1024);
+    final TCByteBufferPool.SizeClass sizeClass = pool.sizeClassFor(false, 1024);
+
+    final List<TCByteBuffer> buffers = new ArrayList<TCByteBuffer>();
+    for (int i = 0; i < 8; ++i) {
+      buffers.add(allocate(sizeClass));
+    }
+    // each thread keeps what it returns in its own magazine
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; ++t) {
+      final List<TCByteBuffer> mine = buffers.subList(2 * t, 2 * t + 2);
+      threads.add(new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (TCByteBuffer buffer : mine) {
+              recycle(buffer);
+            }
+            // stay alive so the magazine can't be reclaimed
+            Thread.sleep(Long.MAX_VALUE);
+          } catch (InterruptedException e) {
+            // done
+          }
+        }
+      });
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    while (pool.getStatistics().get("heap.1024.returned") < 8) {
+      Thread.sleep(10);
+    }
+    assertEquals(4 * 1024, pool.getPooledBytes());
+    assertEquals(Long.valueOf(4), pool.getStatistics().get("heap.1024.dropped"));
+
+    // once the threads are gone and collected the bytes they held are reclaimed for new returns
+    for (Thread thread : threads) {
+      thread.interrupt();
+      thread.join();
+    }
+    threads.clear();
+    for (int i = 0; i < 100 && pool.getPooledBytes() > 0; ++i) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    assertEquals(0, pool.getPooledBytes());
+    recycle(allocate(sizeClass));
+    assertEquals(1024, pool.getPooledBytes());
+    assertEquals(Long.valueOf(4), pool.getStatistics().get("heap.1024.dropped"));
+  }
+
+  @Test
+  public void testOutstandingCountsUnreturnedBuffers() throws Exception {
+    TCByteBufferPool pool = new TCByteBufferPool(1024 * 1024, 64 * 1024);
+    TCByteBufferPool.SizeClass sizeClass = pool.sizeClassFor(false, 2048);
+
+    recycle(allocate(sizeClass));
+    TCByteBuffer leaked = pool.checkOut(sizeClass);
+    assertNotNull(leaked);
+    allocate(sizeClass);
+
+    Map<String, Long> stats = pool.getStatistics();
+    assertEquals(Long.valueOf(2), stats.get("heap.2048.allocated"));
+    assertEquals(Long.valueOf(1), stats.get("heap.2048.pooled"));
+    assertEquals(Long.valueOf(1), stats.get("heap.2048.returned"));
+    assertEquals(Long.valueOf(2), stats.get("heap.2048.outstanding"));
+  }
+
+  // what TCByteBuffer.recycle() does, without going through the factory's own pool
+  private static void recycle(TCByteBuffer buffer) throws InterruptedException {
+    buffer.reInit().getBufferPool().offer(buffer);
+  }
+
+  // what TCByteBufferFactory does when the pool has no buffer to hand out
+  private static TCByteBuffer allocate(TCByteBufferPool.SizeClass sizeClass) {
+    sizeClass.allocated();
+    return new TCByteBufferImpl(sizeClass.size(), sizeClass.isDirect(), sizeClass);
+  }
+}
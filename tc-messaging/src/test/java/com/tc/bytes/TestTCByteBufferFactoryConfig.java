@@ -37,13 +37,13 @@ public class TestTCByteBufferFactoryConfig implements TCByteBufferFactoryConfig
   }
 
   @Override
-  public int getPoolMaxBufCount() {
-    return 2000;
+  public long getPoolMaxBytes() {
+    return 16 * 1024 * 1024;
   }
 
   @Override
-  public int getCommonPoolMaxBufCount() {
-    return 3000;
+  public int getPoolMagazineBytes() {
+    return 64 * 1024;
   }
   
 }
@@ -0,0 +1,81 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import java.io.IOException;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.net.protocol.tcm.UnknownNameException;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.EntityID;
+import com.tc.object.session.SessionID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+
+public class ServerEntityMessageImplTest {
+  @Test
+  public void testSharedPayloadIsNotConsumed() throws UnknownNameException, IOException {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    byte[] raw = new byte[] { 1, 2, 3, 4 };
+    TCByteBuffer[] shared = new TCByteBuffer[] { TCByteBufferFactory.wrap(raw) };
+    EntityDescriptor first = new EntityDescriptor(new EntityID("class", "name"), new ClientInstanceID(1), 1);
+    EntityDescriptor second = new EntityDescriptor(new EntityID("class", "name"), new ClientInstanceID(2), 1);
+
+    // The same buffers go into two messages, as they would for a broadcast.
+    ServerEntityMessage one = roundTrip(monitor, first, shared, null);
+    ServerEntityMessage two = roundTrip(monitor, second, shared, 7L);
+
+    assertEquals(first, one.getEntityDescriptor());
+    assertArrayEquals(raw, one.getMessage());
+    assertEquals(null, one.getResponseId());
+    assertEquals(second, two.getEntityDescriptor());
+    assertArrayEquals(raw, two.getMessage());
+    assertEquals(Long.valueOf(7), two.getResponseId());
+    assertEquals(0, shared[0].position());
+    assertEquals(raw.length, shared[0].limit());
+  }
+
+  private static ServerEntityMessage roundTrip(MessageMonitor monitor, EntityDescriptor descriptor, TCByteBuffer[] payload, Long responseId) throws UnknownNameException, IOException {
+    TCByteBufferOutputStream outputStream = new TCByteBufferOutputStream(4, 4096, false);
+    ServerEntityMessageImpl message = new ServerEntityMessageImpl(new SessionID(0), monitor, outputStream, null, TCMessageType.SERVER_ENTITY_MESSAGE);
+    if (null != responseId) {
+      message.setMessage(descriptor, payload, responseId);
+    } else {
+      message.setMessage(descriptor, payload);
+    }
+    message.dehydrate();
+    TCMessageHeader header = (TCMessageHeader) message.getHeader();
+    TCByteBuffer[] data = message.getPayload();
+    outputStream.close();
+    ServerEntityMessageImpl decodingMessage = new ServerEntityMessageImpl(SessionID.NULL_ID, monitor, null, header, data);
+    decodingMessage.hydrate();
+    return decodingMessage;
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.entity.VoltronEntityMessage.Type;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.ClientID;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.net.protocol.tcm.UnknownNameException;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.EntityID;
+import com.tc.object.session.SessionID;
+import com.tc.object.tx.TransactionID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.Mockito.mock;
+
+
+public class VoltronEntityMultiMessageImplTest {
+  @Test
+  public void testSerializationKeepsOrder() throws UnknownNameException, IOException {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    TCByteBufferOutputStream outputStream = new TCByteBufferOutputStream(4, 4096, false);
+    VoltronEntityMultiMessageImpl message = new VoltronEntityMultiMessageImpl(new SessionID(0), monitor, outputStream, null, TCMessageType.VOLTRON_ENTITY_MULTI_MESSAGE);
+
+    ClientID clientID = new ClientID(1);
+    EntityDescriptor first = new EntityDescriptor(new EntityID("class", "first"), new ClientInstanceID(1), 1);
+    EntityDescriptor second = new EntityDescriptor(new EntityID("class", "second"), new ClientInstanceID(2), 1);
+    message.addMessage(new ResendVoltronEntityMessage(clientID, new TransactionID(3), first, Type.INVOKE_ACTION, true, new byte[] { 1, 2 }, new TransactionID(2)));
+    message.addMessage(new ResendVoltronEntityMessage(clientID, new TransactionID(4), second, Type.INVOKE_ACTION, false, new byte[0], new TransactionID(2)));
+    message.addMessage(new ResendVoltronEntityMessage(clientID, new TransactionID(5), first, Type.INVOKE_ACTION, true, new byte[] { 3 }, new TransactionID(3)));
+    message.dehydrate();
+    // Once sealed, nothing more can be packed.
+    assertFalse(message.addMessage(new ResendVoltronEntityMessage(clientID, new TransactionID(6), first, Type.INVOKE_ACTION, true, new byte[0], new TransactionID(3))));
+
+    TCMessageHeader header = (TCMessageHeader) message.getHeader();
+    TCByteBuffer[] payload = message.getPayload();
+    outputStream.close();
+    VoltronEntityMultiMessageImpl decodingMessage = new VoltronEntityMultiMessageImpl(SessionID.NULL_ID, monitor, null, header, payload);
+    decodingMessage.hydrate();
+
+    List<VoltronEntityMessage> messages = decodingMessage.getMessages();
+    assertEquals(3, messages.size());
+    assertEquals(new TransactionID(3), messages.get(0).getTransactionID());
+    assertEquals(first, messages.get(0).getEntityDescriptor());
+    assertArrayEquals(new byte[] { 1, 2 }, messages.get(0).getExtendedData());
+    assertEquals(new TransactionID(4), messages.get(1).getTransactionID());
+    assertEquals(second, messages.get(1).getEntityDescriptor());
+    assertFalse(messages.get(1).doesRequireReplication());
+    assertEquals(new TransactionID(5), messages.get(2).getTransactionID());
+    assertEquals(new TransactionID(3), messages.get(2).getOldestTransactionOnClient());
+    assertEquals(clientID, messages.get(2).getSource());
+  }
+}
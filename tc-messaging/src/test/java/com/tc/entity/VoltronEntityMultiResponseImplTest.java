@@ -0,0 +1,138 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.entity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.bytes.TCByteBufferFactory;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.net.protocol.tcm.UnknownNameException;
+import com.tc.object.ClientInstanceID;
+import com.tc.object.EntityDescriptor;
+import com.tc.object.EntityID;
+import com.tc.object.session.SessionID;
+import com.tc.object.tx.TransactionID;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+
+public class VoltronEntityMultiResponseImplTest {
+  @Test
+  public void testServerMessagesRideWithAcks() throws UnknownNameException, IOException {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    TCByteBufferOutputStream outputStream = new TCByteBufferOutputStream(4, 4096, false);
+    VoltronEntityMultiResponseImpl message = new VoltronEntityMultiResponseImpl(new SessionID(0), monitor, outputStream, null, TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
+
+    EntityDescriptor first = new EntityDescriptor(new EntityID("class", "first"), new ClientInstanceID(1), 1);
+    EntityDescriptor second = new EntityDescriptor(new EntityID("class", "second"), new ClientInstanceID(2), 1);
+    TCByteBuffer[] shared = new TCByteBuffer[] { TCByteBufferFactory.wrap(new byte[] { 1, 2, 3 }) };
+    assertTrue(message.addReceived(new TransactionID(1)));
+    assertTrue(message.addServerEntityMessage(first, shared, null));
+    assertTrue(message.addResult(new TransactionID(1), new byte[] { 9 }));
+    assertTrue(message.addServerEntityMessage(second, shared, 5L));
+    assertTrue(message.addRetired(new TransactionID(1)));
+    message.dehydrate();
+    // Once sealed, nothing more can be packed.
+    assertFalse(message.addServerEntityMessage(first, shared, null));
+
+    TCMessageHeader header = (TCMessageHeader) message.getHeader();
+    TCByteBuffer[] payload = message.getPayload();
+    outputStream.close();
+    VoltronEntityMultiResponseImpl decodingMessage = new VoltronEntityMultiResponseImpl(SessionID.NULL_ID, monitor, null, header, payload);
+    decodingMessage.hydrate();
+
+    assertEquals(1, decodingMessage.getReceivedTransactions().length);
+    assertEquals(1, decodingMessage.getRetiredTransactions().length);
+    assertArrayEquals(new byte[] { 9 }, decodingMessage.getResults().get(new TransactionID(1)));
+    List<CoalescedServerEntityMessage> messages = decodingMessage.getServerEntityMessages();
+    assertEquals(2, messages.size());
+    assertEquals(first, messages.get(0).getEntityDescriptor());
+    assertArrayEquals(new byte[] { 1, 2, 3 }, messages.get(0).getMessage());
+    assertNull(messages.get(0).getResponseId());
+    assertEquals(second, messages.get(1).getEntityDescriptor());
+    assertArrayEquals(new byte[] { 1, 2, 3 }, messages.get(1).getMessage());
+    assertEquals(Long.valueOf(5), messages.get(1).getResponseId());
+  }
+
+  @Test
+  public void testOlderReaderSeesNoServerMessages() throws UnknownNameException, IOException {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    TCByteBufferOutputStream outputStream = new TCByteBufferOutputStream(4, 4096, false);
+    VoltronEntityMultiResponseImpl message = new VoltronEntityMultiResponseImpl(new SessionID(0), monitor, outputStream, null, TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
+    // What the server sends a client which didn't advertise coalescing:  acks and results only.
+    assertTrue(message.addReceived(new TransactionID(1)));
+    assertTrue(message.addResult(new TransactionID(1), new byte[] { 9 }));
+    assertTrue(message.addRetired(new TransactionID(1)));
+    message.dehydrate();
+
+    TCMessageHeader header = (TCMessageHeader) message.getHeader();
+    TCByteBuffer[] payload = message.getPayload();
+    outputStream.close();
+    LegacyMultiResponse decodingMessage = new LegacyMultiResponse(monitor, header, payload);
+    decodingMessage.hydrate();
+
+    assertEquals(3, decodingMessage.names.size());
+    assertFalse(decodingMessage.names.contains((byte) 3));
+    assertArrayEquals(new byte[] { 9 }, decodingMessage.getResults().get(new TransactionID(1)));
+  }
+
+  @Test
+  public void testServerMessagesAreCapped() {
+    MessageMonitor monitor = mock(MessageMonitor.class);
+    VoltronEntityMultiResponseImpl message = new VoltronEntityMultiResponseImpl(new SessionID(0), monitor, new TCByteBufferOutputStream(4, 4096, false), null, TCMessageType.VOLTRON_ENTITY_MULTI_RESPONSE);
+    EntityDescriptor descriptor = new EntityDescriptor(new EntityID("class", "name"), new ClientInstanceID(1), 1);
+    TCByteBuffer[] large = new TCByteBuffer[] { TCByteBufferFactory.wrap(new byte[200 * 1024]) };
+    // A single message always fits, however large.
+    assertTrue(message.addServerEntityMessage(descriptor, large, null));
+    assertFalse(message.addServerEntityMessage(descriptor, large, null));
+    // Acks are never refused.
+    assertTrue(message.addReceived(new TransactionID(1)));
+  }
+
+  /**
+   * Reads like a client from before coalescing:  any name other than received or retired is taken for the results.
+   */
+  private static class LegacyMultiResponse extends VoltronEntityMultiResponseImpl {
+    private final List<Byte> names = new ArrayList<Byte>();
+
+    LegacyMultiResponse(MessageMonitor monitor, TCMessageHeader header, TCByteBuffer[] data) {
+      super(SessionID.NULL_ID, monitor, null, header, data);
+    }
+
+    @Override
+    protected boolean hydrateValue(byte name) throws IOException {
+      names.add(name);
+      // TRANSACTION_ID, RESULTS_ID and RECEIVED_ID
+      return super.hydrateValue(name <= 2 ? name : 1);
+    }
+  }
+}
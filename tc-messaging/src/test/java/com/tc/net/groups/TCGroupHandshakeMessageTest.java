@@ -0,0 +1,86 @@
+/*
+ *
+ *  The contents of this file are subject to the Terracotta Public License Version
+ *  2.0 (the "License"); You may not use this file except in compliance with the
+ *  License. You may obtain a copy of the License at
+ *
+ *  http://terracotta.org/legal/terracotta-public-license.
+ *
+ *  Software distributed under the License is distributed on an "AS IS" basis,
+ *  WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License for
+ *  the specific language governing rights and limitations under the License.
+ *
+ *  The Covered Software is Terracotta Core.
+ *
+ *  The Initial Developer of the Covered Software is
+ *  Terracotta, Inc., a Software AG company
+ *
+ */
+package com.tc.net.groups;
+
+import com.tc.bytes.TCByteBuffer;
+import com.tc.io.TCByteBufferOutputStream;
+import com.tc.net.ServerID;
+import com.tc.net.protocol.tcm.MessageChannel;
+import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.NullMessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
+import com.tc.net.protocol.tcm.TCMessageType;
+import com.tc.object.session.SessionID;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class TCGroupHandshakeMessageTest {
+  private final MessageMonitor monitor = new NullMessageMonitor();
+
+  @Test
+  public void testNodeIDAdvertisesCapabilities() throws Exception {
+    TCGroupHandshakeMessage received = roundTrip(false);
+    assertEquals(GroupMessageRegistry.VERSION, received.getMessageTypesVersion());
+    assertTrue(received.isBatchedReplicationSupported());
+    assertEquals("1.0", received.getVersion());
+    assertArrayEquals(new long[] { 1, 2 }, received.getWeights());
+  }
+
+  @Test
+  public void testServerFromBeforeTheRegistryReadsNodeID() throws Exception {
+    // only knows the names the handshake had before the registry and fails on anything else
+    TCGroupHandshakeMessage received = roundTrip(true);
+    assertEquals("1.0", received.getVersion());
+  }
+
+  private TCGroupHandshakeMessage roundTrip(boolean legacyReader) throws Exception {
+    TCByteBufferOutputStream out = new TCByteBufferOutputStream(4, 4096, false);
+    TCGroupHandshakeMessage msg = new TCGroupHandshakeMessage(new SessionID(0), monitor, out, null,
+                                                              TCMessageType.GROUP_HANDSHAKE_MESSAGE);
+    msg.initializeNodeID(new ServerID("test", new byte[] { 1, 2, 3 }), "1.0", new long[] { 1, 2 });
+    msg.dehydrate();
+    TCMessageHeader header = (TCMessageHeader) msg.getHeader();
+    TCByteBuffer[] payload = msg.getPayload();
+    out.close();
+    TCGroupHandshakeMessage received = legacyReader
+        ? new LegacyHandshakeMessage(monitor, header, payload)
+        : new TCGroupHandshakeMessage(SessionID.NULL_ID, monitor, null, header, payload);
+    received.hydrate();
+    return received;
+  }
+
+  private static class LegacyHandshakeMessage extends TCGroupHandshakeMessage {
+    LegacyHandshakeMessage(MessageMonitor monitor, TCMessageHeader header, TCByteBuffer[] data) {
+      super(SessionID.NULL_ID, monitor, (MessageChannel) null, header, data);
+    }
+
+    @Override
+    protected boolean hydrateValue(byte name) throws IOException {
+      // MESSAGE_TYPE through WEIGHTS_ID
+      return name >= 1 && name <= 5 && super.hydrateValue(name);
+    }
+  }
+}
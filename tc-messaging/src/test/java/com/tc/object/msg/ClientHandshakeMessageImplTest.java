@@ -1,11 +1,13 @@
 package com.tc.object.msg;
 
 import com.tc.entity.ResendVoltronEntityMessage;
+import com.tc.bytes.TCByteBuffer;
 import com.tc.entity.VoltronEntityMessage;
 import com.tc.io.TCByteBufferOutputStream;
 import com.tc.net.ClientID;
 import com.tc.net.protocol.tcm.MessageChannel;
 import com.tc.net.protocol.tcm.MessageMonitor;
+import com.tc.net.protocol.tcm.TCMessageHeader;
 import com.tc.net.protocol.tcm.TCMessageType;
 import com.tc.object.EntityDescriptor;
 import com.tc.object.session.SessionID;
@@ -41,4 +43,22 @@ public class ClientHandshakeMessageImplTest {
                 equalTo(new ResendVoltronEntityMessage[] { msg1, msg2, msg3 }));
     }
 
+    @Test
+    public void testAdvertisesCoalescedServerMessages() throws Exception {
+        MessageMonitor monitor = mock(MessageMonitor.class);
+        TCByteBufferOutputStream out = new TCByteBufferOutputStream(4, 4096, false);
+        ClientHandshakeMessageImpl chm = new ClientHandshakeMessageImpl(new SessionID(0), monitor, out,
+                mock(MessageChannel.class), TCMessageType.getInstance(TCMessageType.TYPE_CLIENT_HANDSHAKE_MESSAGE));
+        chm.setClientVersion("1.0");
+        chm.dehydrate();
+        TCMessageHeader header = (TCMessageHeader) chm.getHeader();
+        TCByteBuffer[] payload = chm.getPayload();
+        out.close();
+
+        ClientHandshakeMessageImpl received = new ClientHandshakeMessageImpl(SessionID.NULL_ID, monitor, null, header, payload);
+        received.hydrate();
+        Assert.assertTrue(received.acceptsCoalescedServerMessages());
+        Assert.assertEquals("1.0", received.getClientVersion());
+    }
+
 }
\ No newline at end of file